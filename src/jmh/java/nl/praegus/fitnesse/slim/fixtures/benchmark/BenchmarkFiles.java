@@ -0,0 +1,98 @@
+package nl.praegus.fitnesse.slim.fixtures.benchmark;
+
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvFormat;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvGenerator;
+import nl.praegus.fitnesse.slim.fixtures.csv.ValueTemplate;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Generates the input files of the benchmarks. All files have the same content for the same number of rows, so
+ * results of different runs can be compared.
+ */
+final class BenchmarkFiles {
+    static final String[] COUNTRIES = {"NL", "BE", "DE", "FR", "UK"};
+
+    private BenchmarkFiles() {
+    }
+
+    static File createDirectory() throws IOException {
+        return Files.createTempDirectory("fixture-benchmark").toFile();
+    }
+
+    /**
+     * A csv file with columns id (the row number), invoice, country, amount and date
+     */
+    static File csv(File dir, int rows) throws IOException {
+        File file = new File(dir, "data-" + rows + ".csv");
+        new CsvGenerator(CsvFormat.DEFAULT)
+                .withColumn("id", ValueTemplate.parse("${row}"))
+                .withColumn("invoice", ValueTemplate.parse("INV-${sequence(100000)}"))
+                .withColumn("country", ValueTemplate.parse("${oneOf(" + String.join(",", COUNTRIES) + ")}"))
+                .withColumn("amount", ValueTemplate.parse("${decimal(0,10000,2)}"))
+                .withColumn("date", ValueTemplate.parse("${date(2020-01-01,2024-12-31)}"))
+                .generate(file, rows);
+        return file;
+    }
+
+    /**
+     * A fixed length file with per line an id (positions 1-10), a country (11-12), an amount (13-24) and a
+     * name (25-44)
+     */
+    static File fixedLength(File dir, int rows) throws IOException {
+        File file = new File(dir, "data-" + rows + ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int row = 1; row <= rows; row++) {
+                writer.write(String.format(Locale.ROOT, "%010d%-2s%12.2f%-20s", row, COUNTRIES[row % COUNTRIES.length],
+                        (row % 1_000_000) / 100.0, "name " + row));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * An xlsx file with one sheet with the same columns as the csv file
+     */
+    static File excel(File dir, int rows) throws IOException {
+        File file = new File(dir, "data-" + rows + ".xlsx");
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try (OutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("data");
+            for (int row = 0; row < rows; row++) {
+                Row sheetRow = sheet.createRow(row);
+                sheetRow.createCell(0).setCellValue(row + 1);
+                sheetRow.createCell(1).setCellValue("INV-" + (100000 + row));
+                sheetRow.createCell(2).setCellValue(COUNTRIES[row % COUNTRIES.length]);
+                sheetRow.createCell(3).setCellValue((row % 1_000_000) / 100.0);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return file;
+    }
+
+    static void delete(File dir) throws IOException {
+        if (dir == null || !dir.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nl.praegus.fitnesse.slim.fixtures.benchmark;
+
+import nl.praegus.fitnesse.slim.fixtures.CsvFileFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups, counts, row maps and aggregates of the csv file fixture, per size of file and way of reading it.
+ * Lookups search the last row, the worst case for reading modes that scan the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvFileFixtureBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"cached", "columnar", "streaming", "indexed", "sorted"})
+    public String mode;
+
+    private File dir;
+    private String file;
+    private String lastId;
+    private CsvFileFixture fixture;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        dir = BenchmarkFiles.createDirectory();
+        file = BenchmarkFiles.csv(dir, rows).getAbsolutePath();
+        lastId = String.valueOf(rows);
+        fixture = new CsvFileFixture();
+        switch (mode) {
+            case "cached":
+                break;
+            case "columnar":
+                fixture.setColumnar(true);
+                break;
+            case "streaming":
+                fixture.setStreaming(true);
+                break;
+            case "indexed":
+                fixture.setSidecarIndex(true);
+                break;
+            case "sorted":
+                fixture.setSortedOnColumnOfType("id", "long");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        // a lookup parses and caches the file (cached, columnar) or builds its sidecar index (indexed) outside of
+        // the measurements; a count would stream the file without caching it
+        lookup();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        fixture.clearCache();
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public String lookup() {
+        return fixture.valueOfInRowWhereIsIn("amount", "id", lastId, file);
+    }
+
+    @Benchmark
+    public int count() {
+        return fixture.numberOfLinesWhereIsIn("country", "NL", file);
+    }
+
+    @Benchmark
+    public Map<String, String> rowMap() {
+        return fixture.dataInRowIn(rows / 2, file);
+    }
+
+    @Benchmark
+    public String sum() {
+        return fixture.sumOfColumnIn("amount", file);
+    }
+}
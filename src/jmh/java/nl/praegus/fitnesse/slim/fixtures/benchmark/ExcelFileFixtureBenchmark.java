@@ -0,0 +1,90 @@
+package nl.praegus.fitnesse.slim.fixtures.benchmark;
+
+import nl.praegus.fitnesse.slim.fixtures.ExcelFileFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening xlsx files, reading cells and writing a cell (which saves the whole workbook), per size of file, and
+ * opening and reading them for streaming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ExcelFileFixtureBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private File dir;
+    private String file;
+    private ExcelFileFixture fixture;
+    private ExcelFileFixture streamingFixture;
+    private int written;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        dir = BenchmarkFiles.createDirectory();
+        file = BenchmarkFiles.excel(dir, rows).getAbsolutePath();
+        fixture = new ExcelFileFixture();
+        fixture.openExcelSheet(file);
+        streamingFixture = new ExcelFileFixture();
+        streamingFixture.openExcelSheetForStreaming(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public ExcelFileFixture open() {
+        ExcelFileFixture opened = new ExcelFileFixture();
+        opened.openExcelSheet(file);
+        return opened;
+    }
+
+    @Benchmark
+    public String read() {
+        return fixture.valueInRowColumn(rows - 1, 1);
+    }
+
+    @Benchmark
+    public ExcelFileFixture openStreaming() {
+        ExcelFileFixture opened = new ExcelFileFixture();
+        opened.openExcelSheetForStreaming(file);
+        return opened;
+    }
+
+    @Benchmark
+    public String readStreaming() {
+        return streamingFixture.valueInRowColumn(rows - 1, 1);
+    }
+
+    @Benchmark
+    public Integer findRowStreaming() {
+        return streamingFixture.rowWhereColumnIs(0, String.valueOf(rows));
+    }
+
+    @Benchmark
+    public void write() {
+        fixture.writeToRowColumn(String.valueOf(written++), rows - 1, 4);
+    }
+}
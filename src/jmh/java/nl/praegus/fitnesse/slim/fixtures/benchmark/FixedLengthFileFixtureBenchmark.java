@@ -0,0 +1,60 @@
+package nl.praegus.fitnesse.slim.fixtures.benchmark;
+
+import nl.praegus.fitnesse.slim.fixtures.FixedLengthFileFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading fixed length files and reading fields from them, per size of file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixedLengthFileFixtureBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private File dir;
+    private String file;
+    private FixedLengthFileFixture fixture;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        dir = BenchmarkFiles.createDirectory();
+        file = BenchmarkFiles.fixedLength(dir, rows).getAbsolutePath();
+        fixture = new FixedLengthFileFixture(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public FixedLengthFileFixture load() {
+        return new FixedLengthFileFixture(file);
+    }
+
+    @Benchmark
+    public String lookup() {
+        return fixture.trimmedValueOnPositionWithLengthOnLine(13, 12, rows);
+    }
+}
@@ -0,0 +1,155 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvDiff;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvDiffResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compares an expected csv file to an actual one (e.g. the output of a batch job), matching rows on key columns
+ * regardless of their order. Files that do not fit in the memory budget are sorted on disk, so files with millions
+ * of rows can be compared. Separator and encoding are set as for the csv file fixture.
+ */
+public class CsvDiffFixture extends CsvFileFixture {
+    private List<String> keyColumns = new ArrayList<>();
+    private long memoryBudget = CsvDiff.DEFAULT_MEMORY_BUDGET;
+    private int maxExamples = CsvDiff.DEFAULT_MAX_EXAMPLES;
+    private CsvDiffResult lastResult;
+
+    /**
+     * Set the columns that identify a row
+     * Usage: | set key columns | [columns] |
+     *
+     * @param columns Comma separated list of column names
+     */
+    public void setKeyColumns(String columns) {
+        keyColumns = new ArrayList<>();
+        for (String column : columns.split(",")) {
+            if (!column.trim().isEmpty()) {
+                keyColumns.add(column.trim());
+            }
+        }
+    }
+
+    /**
+     * Set the (estimated) memory rows may take while comparing. When the actual file does not fit, both files are
+     * sorted on disk instead. Defaults to 256 MB.
+     * Usage: | set memory budget in megabytes | [megabytes] |
+     *
+     * @param megabytes The memory budget
+     */
+    public void setMemoryBudgetInMegabytes(int megabytes) {
+        if (megabytes <= 0) {
+            throw new SlimFixtureException(false, "Memory budget must be positive");
+        }
+        memoryBudget = megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * Set the maximum number of differences listed in the report. Defaults to 100.
+     * Usage: | set maximum differences in report | [number] |
+     *
+     * @param maxExamples The maximum number of listed differences
+     */
+    public void setMaximumDifferencesInReport(int maxExamples) {
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * Compare two files and create a report of the differences
+     * Usage: | differences between | [expected] | and | [actual] |
+     *
+     * @param expected The file with the expected rows
+     * @param actual   The file with the actual rows
+     * @return a link to the html report
+     */
+    public String differencesBetweenAnd(String expected, String actual) {
+        CsvDiffResult result = compare(expected, actual);
+        File report = new File(filesDir, "csvDiff" + File.separator + reportName(actual));
+        ensureParentExists(report.getPath());
+        try {
+            Files.write(report.toPath(), result.toHtml(expected + " vs " + actual).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+        return linkToFile(report);
+    }
+
+    /**
+     * Compare two files
+     * Usage: | files | [expected] | and | [actual] | are equal |
+     *
+     * @param expected The file with the expected rows
+     * @param actual   The file with the actual rows
+     * @return true if all rows are equal
+     */
+    public boolean filesAndAreEqual(String expected, String actual) {
+        return !compare(expected, actual).hasDifferences();
+    }
+
+    /**
+     * @return the number of rows that are equal in the last compared files
+     */
+    public long numberOfEqualRows() {
+        return getLastResult().equalRows();
+    }
+
+    /**
+     * @return the number of rows with the same key but different values in the last compared files
+     */
+    public long numberOfDifferentRows() {
+        return getLastResult().differentRows();
+    }
+
+    /**
+     * @return the number of expected rows that are not in the actual file of the last compared files
+     */
+    public long numberOfMissingRows() {
+        return getLastResult().missingRows();
+    }
+
+    /**
+     * @return the number of actual rows that are not in the expected file of the last compared files
+     */
+    public long numberOfSurplusRows() {
+        return getLastResult().surplusRows();
+    }
+
+    private CsvDiffResult compare(String expected, String actual) {
+        if (keyColumns.isEmpty()) {
+            throw new SlimFixtureException(false, "Set the key columns first");
+        }
+        CsvDiff diff = new CsvDiff(getFormat(), keyColumns);
+        diff.setMemoryBudget(memoryBudget);
+        diff.setMaxExamples(maxExamples);
+        try {
+            lastResult = diff.compare(getCsvFile(expected), getCsvFile(actual));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+        return lastResult;
+    }
+
+    private CsvDiffResult getLastResult() {
+        if (lastResult == null) {
+            throw new SlimFixtureException(false, "No files compared yet");
+        }
+        return lastResult;
+    }
+
+    private String reportName(String actual) {
+        String timestamp = new SimpleDateFormat("ddHHmmssSSS").format(new Date());
+        return baseNameOf(actual) + "-diff-" + timestamp + ".html";
+    }
+}
@@ -3,26 +3,90 @@ package nl.praegus.fitnesse.slim.fixtures;
 import nl.hsac.fitnesse.fixture.slim.FileFixture;
 import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
 
-import java.io.*;
-import java.util.ArrayList;
+import nl.praegus.fitnesse.slim.fixtures.csv.ColumnSummary;
+import nl.praegus.fitnesse.slim.fixtures.csv.ColumnarCsvTable;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvColumnType;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvAggregation;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvFileCache;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvFileSet;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvFormat;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvSource;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvTail;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvTable;
+import nl.praegus.fitnesse.slim.fixtures.csv.IndexedCsvFile;
+import nl.praegus.fitnesse.slim.fixtures.csv.MultiFileCsvSource;
+import nl.praegus.fitnesse.slim.fixtures.csv.SortedCsvFile;
+import nl.praegus.fitnesse.slim.fixtures.csv.StreamingCsvFile;
+import nl.praegus.fitnesse.slim.fixtures.csv.TypedCsvTable;
+import nl.praegus.fitnesse.slim.fixtures.csv.ValueRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class CsvFileFixture extends FileFixture {
-    private String separator = ",";
+    private CsvFormat format = CsvFormat.DEFAULT;
     private String csvFile = "";
+    private boolean streaming = false;
+    private boolean columnar = false;
+    private boolean sidecarIndex = false;
+    private String sortedOnColumn = null;
+    private CsvColumnType sortOrder = CsvColumnType.TEXT;
+    private boolean tailFromEnd = false;
+    private boolean inferColumnTypes = false;
+    private final Map<String, CsvColumnType> columnTypes = new LinkedHashMap<>();
+    private final Map<String, CsvTail> tails = new HashMap<>();
 
     /**
      * Define a separator character to use. Defaults to comma.
+     * The separator is taken literally (a backslash before it is ignored, so \| and | are the same); use \t for a tab.
      *
      * @param separator The delimiter that separates the fields
      */
     public void setSeparator(String separator) {
-        this.separator = separator;
+        String literal = separator;
+        if ("\\t".equals(separator)) {
+            literal = "\t";
+        } else if (separator.length() == 2 && separator.charAt(0) == '\\') {
+            literal = separator.substring(1);
+        }
+        if (literal.length() != 1 || "\"\r\n".contains(literal)) {
+            throw new SlimFixtureException(false, "Separator must be a single character other than a quote or line break: " + separator);
+        }
+        format = format.withSeparator(literal.charAt(0));
     }
 
     /**
-     * Set the file to work with
+     * Define the character encoding of the file. Defaults to UTF-8.
+     *
+     * @param encoding The name of the encoding, e.g. ISO-8859-1
+     */
+    public void setEncoding(String encoding) {
+        try {
+            format = format.withCharset(Charset.forName(encoding));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, "Unknown encoding: " + encoding, e);
+        }
+    }
+
+    /**
+     * Set the file to work with. Gzip, bzip2 and zip files (recognised by extension or content) are decompressed
+     * while they are read; of a zip file the first entry is used.
+     * <p>
+     * The name can also be a directory or a glob pattern (e.g. output/part-*.csv) to use all part files it stands
+     * for as one file: the header once, followed by the rows of each part in order of file name. Lookups, counts and
+     * aggregates are done on all parts in parallel. When parts are cached, set the cache size to at least the
+     * number of parts.
      *
      * @param csvFile The file to use
      */
@@ -30,6 +94,125 @@ public class CsvFileFixture extends FileFixture {
         this.csvFile = csvFile;
     }
 
+    /**
+     * Read the file row by row on every call instead of keeping it in memory. Lookups stop at the matching row and
+     * counts hold only one row in memory at a time, so files larger than the heap can be used. Defaults to false.
+     *
+     * @param streaming true to stream the file, false to read and cache it as a whole
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Keep files in memory per column, with each distinct value of a column stored once, instead of as a list of rows.
+     * This takes far less memory for files with many repeated values (e.g. status or type columns) and makes lookups
+     * scan a compact int array per column. Defaults to false. Has no effect when streaming.
+     *
+     * @param columnar true to store files per column
+     */
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    /**
+     * Keep an index file next to each csv file (its name plus .idx) with the position of every row and the hashes of
+     * all values, instead of reading the file into memory. The index is written on first use and reused by later
+     * pages, slim processes and test runs until the csv file changes, so lookups and counts read only matching rows.
+     * Defaults to false. Takes precedence over columnar; has no effect when streaming or for compressed files.
+     *
+     * @param sidecarIndex true to use index files
+     */
+    public void setSidecarIndex(boolean sidecarIndex) {
+        this.sidecarIndex = sidecarIndex;
+    }
+
+    /**
+     * State that files are sorted (ascending, by character) on a column. Lookups and counts on that column then
+     * binary-search the file by byte offset instead of reading it, so they take a few disk reads even on files of
+     * many gigabytes, without building an index. Other lookups stream the file. Takes precedence over streaming,
+     * columnar and sidecar index for uncompressed files without line breaks in quoted values.
+     * Usage: | set sorted on column | [column] |
+     *
+     * @param column The column the files are sorted on
+     */
+    public void setSortedOnColumn(String column) {
+        setSortedOnColumnOfType(column, CsvColumnType.TEXT.toString());
+    }
+
+    /**
+     * State that files are sorted (ascending) on a column of a given type, e.g. numerically for int, long and decimal.
+     * Usage: | set sorted on column | [column] | of type | [type] |
+     *
+     * @param column The column the files are sorted on
+     * @param type   text, int, long, decimal or date
+     */
+    public void setSortedOnColumnOfType(String column, String type) {
+        try {
+            sortOrder = CsvColumnType.of(type);
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+        sortedOnColumn = column;
+    }
+
+    /**
+     * Declare the type of a column: text, int, long, decimal (plain numbers like -12.50) or date (yyyy-MM-dd).
+     * Values of typed columns are parsed once, when the file is read, and kept as numbers: lookups on the column
+     * compare values instead of text (100.0 finds 100), and range lookups need no parsing. A value that does not
+     * match the declared type fails the file.
+     * Usage: | set column | [column] | type | [type] |
+     *
+     * @param column The name of the column
+     * @param type   The type of its values
+     */
+    public void setColumnType(String column, String type) {
+        try {
+            columnTypes.put(column, CsvColumnType.of(type));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Infer the type of each column that is not declared: the narrowest of int, long, decimal and date that fits all
+     * its (non-empty) values, or text when none does. Defaults to false.
+     *
+     * @param inferColumnTypes true to infer column types
+     */
+    public void setInferColumnTypes(boolean inferColumnTypes) {
+        this.inferColumnTypes = inferColumnTypes;
+    }
+
+    /**
+     * The declared or inferred type of a column.
+     * Usage: | type of column | [column] |
+     *
+     * @param column The name of the column
+     * @return text, int, long, decimal or date
+     */
+    public String typeOfColumn(String column) {
+        return typeOfColumnIn(column, csvFile);
+    }
+
+    /**
+     * The declared or inferred type of a column in a given file.
+     * Usage: | type of column | [column] | in | [filename] |
+     *
+     * @param column   The name of the column
+     * @param filename The file to use
+     * @return text, int, long, decimal or date
+     */
+    public String typeOfColumnIn(String column, String filename) {
+        CsvSource source = openSource(filename);
+        int columnIndex = readFile(() -> source.indexOfColumn(column));
+        if (columnIndex < 0) {
+            throw new SlimFixtureException(false, "No column " + column + " in " + filename);
+        }
+        CsvSource part = source instanceof MultiFileCsvSource ? ((MultiFileCsvSource) source).part(0) : source;
+        return part instanceof TypedCsvTable ? ((TypedCsvTable) part).columnType(columnIndex).toString() : CsvColumnType.TEXT.toString();
+    }
+
     /**
      * Get the value of a cell by matching a given value in another column
      * usage: | value of | [resultColumn] | in row where | [findByColumn] | is | [findByColumnValue] |
@@ -54,23 +237,45 @@ public class CsvFileFixture extends FileFixture {
      * @return The value of 'resultColumn' in the row where 'findByColumn' has the value 'findByColumnValue' in the given file.
      */
     public String valueOfInRowWhereIsIn(String resultColumn, String findByColumn, String findByColumnValue, String filename) {
+        return valueOfInNthRowWhereIsIn(resultColumn, 1, findByColumn, findByColumnValue, filename);
+    }
 
-        String result = "";
-        ArrayList<String> lines = getLinesFromFile(filename);
+    /**
+     * Get the value of a cell in the nth row where another column has a given value
+     * usage: | value of | [resultColumn] | in nth | [occurrence] | row where | [findByColumn] | is | [findByColumnValue] |
+     *
+     * @param resultColumn      The column to extract the value from
+     * @param occurrence        Which matching row to use (1 is the first)
+     * @param findByColumn      The column that contains the given value
+     * @param findByColumnValue The value to search for
+     * @return The value of 'resultColumn' in the nth row where 'findByColumn' has the value 'findByColumnValue'
+     */
+    public String valueOfInNthRowWhereIs(String resultColumn, int occurrence, String findByColumn, String findByColumnValue) {
+        return valueOfInNthRowWhereIsIn(resultColumn, occurrence, findByColumn, findByColumnValue, csvFile);
+    }
 
-        try {
-            String[] columns = getColumns(lines);
-            int resultColumnIndex = indexOfColumn(columns, resultColumn);
+    /**
+     * Get the value of a cell in the nth row where another column has a given value in the given file
+     * usage: | value of | [resultColumn] | in nth | [occurrence] | row where | [findByColumn] | is | [findByColumnValue] | in | [filename] |
+     *
+     * @param resultColumn      The column to extract the value from
+     * @param occurrence        Which matching row to use (1 is the first)
+     * @param findByColumn      The column that contains the given value
+     * @param findByColumnValue The value to search for
+     * @param filename          The file to search in
+     * @return The value of 'resultColumn' in the nth row where 'findByColumn' has the value 'findByColumnValue' in the given file.
+     */
+    public String valueOfInNthRowWhereIsIn(String resultColumn, int occurrence, String findByColumn, String findByColumnValue, String filename) {
+        String result = "";
+        CsvSource source = getSource(filename);
+        int resultColumnIndex = source.indexOfColumn(resultColumn);
 
-            if (resultColumnIndex >= 0) {
-                String line = lineWhereIsIn(findByColumn, findByColumnValue, filename);
-                String[] values = line.split(separator);
+        if (resultColumnIndex >= 0) {
+            String[] values = nthRowWhereIs(source, occurrence, findByColumn, findByColumnValue);
+            if (resultColumnIndex < values.length) {
                 result = values[resultColumnIndex];
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new SlimFixtureException("No row found where " + findByColumn + " is " + findByColumnValue);
         }
-
         return result;
     }
 
@@ -96,20 +301,13 @@ public class CsvFileFixture extends FileFixture {
      * @return The value of the specified column in the specified row number in the given file
      */
     public String valueOfInRowNumberIn(String resultColumn, int rowNumber, String filename) {
-        String result;
-        ArrayList<String> lines = getLinesFromFile(filename);
-
-        try {
-            String[] columns = getColumns(lines);
-            int resultColumnIndex = indexOfColumn(columns, resultColumn);
-            String row = lines.get(rowNumber);
-            String[] values = row.split(separator);
-            result = values[resultColumnIndex];
-
-        } catch (ArrayIndexOutOfBoundsException e) {
+        CsvSource source = getSource(filename);
+        int resultColumnIndex = source.indexOfColumn(resultColumn);
+        String[] values = rowNumber(source, rowNumber);
+        if (resultColumnIndex < 0 || resultColumnIndex >= values.length) {
             throw new SlimFixtureException("Row " + rowNumber + " has no field " + resultColumn);
         }
-        return result;
+        return values[resultColumnIndex];
     }
 
     /**
@@ -130,15 +328,11 @@ public class CsvFileFixture extends FileFixture {
      * @return the column name
      */
     public String nameOfColumnIn(int column, String filename) {
-        String result;
-        ArrayList<String> lines = getLinesFromFile(filename);
-        String[] columns = getColumns(lines);
-        try {
-            result = columns[column];
-        } catch (ArrayIndexOutOfBoundsException e) {
+        String[] columns = getSource(filename).header();
+        if (column < 0 || column >= columns.length) {
             throw new SlimFixtureException("No column at position " + column + " (Row 0 has " + columns.length + " columns)");
         }
-        return result;
+        return columns[column];
     }
 
     /**
@@ -171,27 +365,8 @@ public class CsvFileFixture extends FileFixture {
      * @return a map containing key value pairs (column names as keys)
      */
     public Map<String, String> dataInRowWhereIsIn(String column, String lookupValue, String filename) {
-        Map<String, String> data = new HashMap<>();
-        try {
-            ArrayList<String> lines = getLinesFromFile(filename);
-            String[] columns = getColumns(lines);
-            int columnIndex = indexOfColumn(columns, column);
-
-            if (columnIndex >= 0) {
-                for (String line : lines) {
-                    String[] values = line.split(separator);
-                    if (values[columnIndex].equals(lookupValue)) {
-                        String[] keys = lines.get(0).split(separator);
-                        for (int j = 0; j < keys.length; j++) {
-                            data.put(keys[j], values[j]);
-                        }
-                    }
-                }
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new SlimFixtureException("No row found where " + column + " is " + lookupValue);
-        }
-        return data;
+        CsvSource source = getSource(filename);
+        return toMap(source.header(), nthRowWhereIs(source, 1, column, lookupValue));
     }
 
     /**
@@ -202,14 +377,8 @@ public class CsvFileFixture extends FileFixture {
      * @return a map containing key value pairs (column names as keys)
      */
     public Map<String, String> dataInRowIn(int row, String filename) {
-        Map<String, String> data = new HashMap<>();
-        ArrayList<String> lines = getLinesFromFile(filename);
-        String[] keys = lines.get(0).split(separator);
-        String[] values = lines.get(row).split(separator);
-        for (int j = 0; j < keys.length; j++) {
-            data.put(keys[j], values[j]);
-        }
-        return data;
+        CsvSource source = getSource(filename);
+        return toMap(source.header(), rowNumber(source, row));
     }
 
     public int numberOfLines() {
@@ -217,7 +386,7 @@ public class CsvFileFixture extends FileFixture {
     }
 
     public int numberOfLinesIn(String fileName) {
-        return getLinesFromFile(fileName).size();
+        return getCountingSource(fileName).numberOfRows();
     }
 
     public int numberOfLinesWhereIs(String column, String lookupValue) {
@@ -225,75 +394,743 @@ public class CsvFileFixture extends FileFixture {
     }
 
     public int numberOfLinesWhereIsIn(String column, String lookupValue, String filename) {
-        int result = 0;
-        try {
-            ArrayList<String> lines = getLinesFromFile(filename);
-            String[] columns = getColumns(lines);
-            int columnIndex = indexOfColumn(columns, column);
-
-            if (columnIndex >= 0) {
-                for (String line : lines) {
-                    String[] values = line.split(separator);
-                    if (values[columnIndex].equals(lookupValue)) {
-                        result++;
-                    }
-                }
+        CsvSource source = getCountingSource(filename);
+        int columnIndex = readFile(() -> source.indexOfColumn(column));
+        return columnIndex < 0 ? 0 : source.countWhere(columnIndex, lookupValue);
+    }
+
+    /**
+     * The number of lines where a column has a number or date greater than a given value.
+     * Usage: | number of lines where | [column] | is greater than | [value] |
+     *
+     * @param column The column to compare
+     * @param value  The number or date (yyyy-MM-dd) to compare with
+     * @return the number of data rows with a greater value
+     */
+    public int numberOfLinesWhereIsGreaterThan(String column, String value) {
+        return numberOfLinesWhereIsGreaterThanIn(column, value, csvFile);
+    }
+
+    public int numberOfLinesWhereIsGreaterThanIn(String column, String value, String filename) {
+        return countMatching(column, range(() -> ValueRange.greaterThan(value)), filename);
+    }
+
+    /**
+     * The number of lines where a column has a number or date less than a given value.
+     * Usage: | number of lines where | [column] | is less than | [value] |
+     *
+     * @param column The column to compare
+     * @param value  The number or date (yyyy-MM-dd) to compare with
+     * @return the number of data rows with a smaller value
+     */
+    public int numberOfLinesWhereIsLessThan(String column, String value) {
+        return numberOfLinesWhereIsLessThanIn(column, value, csvFile);
+    }
+
+    public int numberOfLinesWhereIsLessThanIn(String column, String value, String filename) {
+        return countMatching(column, range(() -> ValueRange.lessThan(value)), filename);
+    }
+
+    /**
+     * The number of lines where a column has a number or date from a low up to and including a high value.
+     * Usage: | number of lines where | [column] | is between | [low] | and | [high] |
+     *
+     * @param column The column to compare
+     * @param low    The lowest value to count
+     * @param high   The highest value to count
+     * @return the number of data rows with a value in the range
+     */
+    public int numberOfLinesWhereIsBetweenAnd(String column, String low, String high) {
+        return numberOfLinesWhereIsBetweenAndIn(column, low, high, csvFile);
+    }
+
+    public int numberOfLinesWhereIsBetweenAndIn(String column, String low, String high, String filename) {
+        return countMatching(column, range(() -> ValueRange.between(low, high)), filename);
+    }
+
+    /**
+     * The number of lines where a column has a number (or date) that differs at most a tolerance (in days for dates)
+     * from a given value.
+     * Usage: | number of lines where | [column] | is | [value] | within | [tolerance] |
+     *
+     * @param column    The column to compare
+     * @param value     The expected value
+     * @param tolerance The maximum difference
+     * @return the number of data rows with a value close enough
+     */
+    public int numberOfLinesWhereIsWithin(String column, String value, String tolerance) {
+        return numberOfLinesWhereIsWithinIn(column, value, tolerance, csvFile);
+    }
+
+    public int numberOfLinesWhereIsWithinIn(String column, String value, String tolerance, String filename) {
+        return countMatching(column, range(() -> ValueRange.within(value, tolerance)), filename);
+    }
+
+    /**
+     * Get the value of a cell in the first row where another column has a number or date in a range.
+     * Usage: | value of | [resultColumn] | in row where | [findByColumn] | is between | [low] | and | [high] |
+     *
+     * @param resultColumn The column to extract the value from
+     * @param findByColumn The column to compare
+     * @param low          The lowest value to find
+     * @param high         The highest value to find
+     * @return The value of 'resultColumn' in the first row where 'findByColumn' is in the range
+     */
+    public String valueOfInRowWhereIsBetweenAnd(String resultColumn, String findByColumn, String low, String high) {
+        return valueOfInRowWhereIsBetweenAndIn(resultColumn, findByColumn, low, high, csvFile);
+    }
+
+    public String valueOfInRowWhereIsBetweenAndIn(String resultColumn, String findByColumn, String low, String high, String filename) {
+        ValueRange range = range(() -> ValueRange.between(low, high));
+        return valueOfInRowMatching(resultColumn, findByColumn, range, "between " + low + " and " + high, filename);
+    }
+
+    /**
+     * Get the value of a cell in the first row where another column has a number (or date) that differs at most a
+     * tolerance from a given value.
+     * Usage: | value of | [resultColumn] | in row where | [findByColumn] | is | [value] | within | [tolerance] |
+     *
+     * @param resultColumn The column to extract the value from
+     * @param findByColumn The column to compare
+     * @param value        The expected value
+     * @param tolerance    The maximum difference
+     * @return The value of 'resultColumn' in the first row where 'findByColumn' is close enough to the value
+     */
+    public String valueOfInRowWhereIsWithin(String resultColumn, String findByColumn, String value, String tolerance) {
+        return valueOfInRowWhereIsWithinIn(resultColumn, findByColumn, value, tolerance, csvFile);
+    }
+
+    public String valueOfInRowWhereIsWithinIn(String resultColumn, String findByColumn, String value, String tolerance, String filename) {
+        ValueRange range = range(() -> ValueRange.within(value, tolerance));
+        return valueOfInRowMatching(resultColumn, findByColumn, range, value + " within " + tolerance, filename);
+    }
+
+    /**
+     * The sum of the numeric values in a column. Empty cells are ignored.
+     * Usage: | sum of column | [column] |
+     *
+     * @param column The column to sum
+     * @return the exact sum
+     */
+    public String sumOfColumn(String column) {
+        return sumOfColumnIn(column, csvFile);
+    }
+
+    /**
+     * The sum of the numeric values in a column of the given file. Empty cells are ignored.
+     * Usage: | sum of column | [column] | in | [filename] |
+     *
+     * @param column   The column to sum
+     * @param filename The file to use
+     * @return the exact sum
+     */
+    public String sumOfColumnIn(String column, String filename) {
+        return aggregate(filename, new CsvAggregation(format).ofColumn(column, true)).sum().toPlainString();
+    }
+
+    /**
+     * The sum of the numeric values in a column, in the rows where another column has a given value
+     * Usage: | sum of column | [column] | where | [whereColumn] | is | [whereValue] |
+     *
+     * @param column      The column to sum
+     * @param whereColumn The column to filter on
+     * @param whereValue  The value the filter column must have
+     * @return the exact sum
+     */
+    public String sumOfColumnWhereIs(String column, String whereColumn, String whereValue) {
+        return sumOfColumnWhereIsIn(column, whereColumn, whereValue, csvFile);
+    }
+
+    /**
+     * The sum of the numeric values in a column, in the rows of the given file where another column has a given value
+     * Usage: | sum of column | [column] | where | [whereColumn] | is | [whereValue] | in | [filename] |
+     *
+     * @param column      The column to sum
+     * @param whereColumn The column to filter on
+     * @param whereValue  The value the filter column must have
+     * @param filename    The file to use
+     * @return the exact sum
+     */
+    public String sumOfColumnWhereIsIn(String column, String whereColumn, String whereValue, String filename) {
+        CsvAggregation aggregation = new CsvAggregation(format).ofColumn(column, true).where(whereColumn, whereValue);
+        return aggregate(filename, aggregation).sum().toPlainString();
+    }
+
+    /**
+     * The average of the numeric values in a column. Empty cells are ignored.
+     * Usage: | average of column | [column] |
+     *
+     * @param column The column to average
+     * @return the average, or an empty string if the column has no values
+     */
+    public String averageOfColumn(String column) {
+        return averageOfColumnIn(column, csvFile);
+    }
+
+    /**
+     * The average of the numeric values in a column of the given file. Empty cells are ignored.
+     * Usage: | average of column | [column] | in | [filename] |
+     *
+     * @param column   The column to average
+     * @param filename The file to use
+     * @return the average, or an empty string if the column has no values
+     */
+    public String averageOfColumnIn(String column, String filename) {
+        BigDecimal average = aggregate(filename, new CsvAggregation(format).ofColumn(column, true)).average();
+        return average == null ? "" : average.toPlainString();
+    }
+
+    /**
+     * The smallest numeric value in a column, as it appears in the file
+     * Usage: | minimum of column | [column] |
+     *
+     * @param column The column to use
+     * @return the smallest value, or an empty string if the column has no values
+     */
+    public String minimumOfColumn(String column) {
+        return minimumOfColumnIn(column, csvFile);
+    }
+
+    /**
+     * The smallest numeric value in a column of the given file, as it appears in the file
+     * Usage: | minimum of column | [column] | in | [filename] |
+     *
+     * @param column   The column to use
+     * @param filename The file to use
+     * @return the smallest value, or an empty string if the column has no values
+     */
+    public String minimumOfColumnIn(String column, String filename) {
+        String minimum = aggregate(filename, new CsvAggregation(format).ofColumn(column, true)).minimum();
+        return minimum == null ? "" : minimum;
+    }
+
+    /**
+     * The largest numeric value in a column, as it appears in the file
+     * Usage: | maximum of column | [column] |
+     *
+     * @param column The column to use
+     * @return the largest value, or an empty string if the column has no values
+     */
+    public String maximumOfColumn(String column) {
+        return maximumOfColumnIn(column, csvFile);
+    }
+
+    /**
+     * The largest numeric value in a column of the given file, as it appears in the file
+     * Usage: | maximum of column | [column] | in | [filename] |
+     *
+     * @param column   The column to use
+     * @param filename The file to use
+     * @return the largest value, or an empty string if the column has no values
+     */
+    public String maximumOfColumnIn(String column, String filename) {
+        String maximum = aggregate(filename, new CsvAggregation(format).ofColumn(column, true)).maximum();
+        return maximum == null ? "" : maximum;
+    }
+
+    /**
+     * The number of different non-empty values in a column
+     * Usage: | number of distinct values in column | [column] |
+     *
+     * @param column The column to use
+     * @return the number of distinct values
+     */
+    public int numberOfDistinctValuesInColumn(String column) {
+        return numberOfDistinctValuesInColumnIn(column, csvFile);
+    }
+
+    /**
+     * The number of different non-empty values in a column of the given file
+     * Usage: | number of distinct values in column | [column] | in | [filename] |
+     *
+     * @param column   The column to use
+     * @param filename The file to use
+     * @return the number of distinct values
+     */
+    public int numberOfDistinctValuesInColumnIn(String column, String filename) {
+        CsvAggregation aggregation = new CsvAggregation(format).ofColumn(column, false).countingDistinct();
+        return aggregate(filename, aggregation).distinctCount();
+    }
+
+    /**
+     * The number of lines for each value of a column, in order of first appearance
+     * Usage: | number of lines per value of | [column] |
+     *
+     * @param column The column to group by
+     * @return a map with the values of the column as keys and the number of lines with that value as values
+     */
+    public Map<String, Long> numberOfLinesPerValueOf(String column) {
+        return numberOfLinesPerValueOfIn(column, csvFile);
+    }
+
+    /**
+     * The number of lines in the given file for each value of a column, in order of first appearance
+     * Usage: | number of lines per value of | [column] | in | [filename] |
+     *
+     * @param column   The column to group by
+     * @param filename The file to use
+     * @return a map with the values of the column as keys and the number of lines with that value as values
+     */
+    public Map<String, Long> numberOfLinesPerValueOfIn(String column, String filename) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        aggregateGrouped(filename, new CsvAggregation(format).groupedBy(column))
+                .forEach((value, summary) -> result.put(value, summary.count()));
+        return result;
+    }
+
+    /**
+     * The sum of the numeric values in a column for each value of another column, in order of first appearance
+     * Usage: | sum of column | [column] | per value of | [groupColumn] |
+     *
+     * @param column      The column to sum
+     * @param groupColumn The column to group by
+     * @return a map with the values of the group column as keys and the sums as values
+     */
+    public Map<String, String> sumOfColumnPerValueOf(String column, String groupColumn) {
+        return sumOfColumnPerValueOfIn(column, groupColumn, csvFile);
+    }
+
+    /**
+     * The sum of the numeric values in a column for each value of another column in the given file,
+     * in order of first appearance
+     * Usage: | sum of column | [column] | per value of | [groupColumn] | in | [filename] |
+     *
+     * @param column      The column to sum
+     * @param groupColumn The column to group by
+     * @param filename    The file to use
+     * @return a map with the values of the group column as keys and the sums as values
+     */
+    public Map<String, String> sumOfColumnPerValueOfIn(String column, String groupColumn, String filename) {
+        Map<String, String> result = new LinkedHashMap<>();
+        aggregateGrouped(filename, new CsvAggregation(format).ofColumn(column, true).groupedBy(groupColumn))
+                .forEach((value, summary) -> result.put(value, summary.sum().toPlainString()));
+        return result;
+    }
+
+    /**
+     * Build the lookup index for one or more columns of the current file up front, instead of on their first use.
+     * Usage: | index columns | [columns] |
+     *
+     * @param columns Comma separated list of column names
+     */
+    public void indexColumns(String columns) {
+        indexColumnsIn(columns, csvFile);
+    }
+
+    /**
+     * Build the lookup index for one or more columns of a given file up front, instead of on their first use.
+     * Usage: | index columns | [columns] | in | [filename] |
+     *
+     * @param columns  Comma separated list of column names
+     * @param filename The file to use
+     */
+    public void indexColumnsIn(String columns, String filename) {
+        if (streaming) {
+            throw new SlimFixtureException(false, "Columns can not be indexed when streaming");
+        }
+        CsvSource table = getSource(filename);
+        for (String column : columns.split(",")) {
+            int columnIndex = table.indexOfColumn(column.trim());
+            if (columnIndex < 0) {
+                throw new SlimFixtureException(false, "No column " + column.trim() + " in " + filename);
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new SlimFixtureException("No row found where " + column + " is " + lookupValue);
+            table.buildIndex(columnIndex);
         }
-        return result;
     }
 
-    private ArrayList<String> getLinesFromFile(String filename) {
-        String fullName = getFullName(filename);
-        ensureParentExists(fullName);
-        File file = new File(fullName);
-        ArrayList<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
+    /**
+     * Set the maximum number of parsed csv files that are kept in memory, shared by all csv file fixtures.
+     * A cached file is read again when its size or modification time changes. 0 disables caching.
+     * Usage: | set cache size | [maxFiles] |
+     *
+     * @param maxFiles The maximum number of files to keep. Defaults to 5
+     */
+    public void setCacheSize(int maxFiles) {
+        if (maxFiles < 0) {
+            throw new SlimFixtureException(false, "Cache size can not be negative");
+        }
+        CsvFileCache.getInstance().setMaxFiles(maxFiles);
+    }
+
+    /**
+     * Remove all parsed csv files from memory
+     */
+    public void clearCache() {
+        CsvFileCache.getInstance().clear();
+    }
+
+    /**
+     * When starting to follow a file, ignore the rows that are already in it. Defaults to false.
+     *
+     * @param tailFromEnd true to only look at rows appended after following starts
+     */
+    public void setTailFromEnd(boolean tailFromEnd) {
+        this.tailFromEnd = tailFromEnd;
+    }
+
+    /**
+     * Start following the current file as it grows. Use this before starting the process that writes the file,
+     * combined with 'tail from end' to ignore the rows written before.
+     * Usage: | start tailing |
+     */
+    public void startTailing() {
+        startTailingIn(csvFile);
+    }
+
+    /**
+     * Start following a given file as it grows.
+     * Usage: | start tailing in | [filename] |
+     *
+     * @param filename The file to follow
+     */
+    public void startTailingIn(String filename) {
+        File file = getCsvFile(filename);
+        CsvTail tail = newTail(file);
+        tails.put(file.getAbsolutePath(), tail);
+        if (tailFromEnd) {
+            // skip the rows written so far now, rather than at the first poll
+            pollTail(tail, row -> {
+            });
+        }
+    }
+
+    /**
+     * Stop following all files, so they are read from the start again when polled
+     */
+    public void stopTailing() {
+        tails.clear();
+    }
+
+    /**
+     * Poll the current file until a row where a column has a given value is appended. Each poll only reads the
+     * bytes appended since the previous poll, rows that were checked before are not checked again.
+     * Use 'repeatAtMostTimes' and 'setRepeatIntervalToMilliseconds' to configure the repeat behaviour.
+     * Usage: | poll until row where | [column] | is | [value] | appears |
+     *
+     * @param column The column to check
+     * @param value  The value to wait for
+     * @return true if the row appeared, false if the maximum number of repeats are performed and it did not.
+     */
+    public boolean pollUntilRowWhereIsAppears(String column, String value) {
+        return pollUntilRowWhereIsAppearsIn(column, value, csvFile);
+    }
+
+    /**
+     * Poll a given file until a row where a column has a given value is appended.
+     * Use 'repeatAtMostTimes' and 'setRepeatIntervalToMilliseconds' to configure the repeat behaviour.
+     * Usage: | poll until row where | [column] | is | [value] | appears in | [filename] |
+     *
+     * @param column   The column to check
+     * @param value    The value to wait for
+     * @param filename The file to follow
+     * @return true if the row appeared, false if the maximum number of repeats are performed and it did not.
+     */
+    public boolean pollUntilRowWhereIsAppearsIn(String column, String value, String filename) {
+        File file = getCsvFile(filename);
+        CsvTail tail = tails.computeIfAbsent(file.getAbsolutePath(), f -> newTail(file));
+        if (tail.header() != null) {
+            // fail now: exceptions thrown while repeating only count as 'not appeared yet'
+            indexOf(tail.header(), column, filename);
+        }
+        return repeatUntil(rowAppearsCompletion(tail, column, value, filename));
+    }
+
+    private FunctionalCompletion rowAppearsCompletion(CsvTail tail, String column, String value, String filename) {
+        return new FunctionalCompletion(() -> {
+            try {
+                return tail.pollUntil(row -> {
+                    int columnIndex = indexOf(tail.header(), column, filename);
+                    return columnIndex < row.length && row[columnIndex].equals(value);
+                });
+            } catch (IOException e) {
+                throw new SlimFixtureException(e);
             }
+        });
+    }
+
+    private CsvTail newTail(File file) {
+        try {
+            return new CsvTail(file, format, tailFromEnd);
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    private void pollTail(CsvTail tail, Consumer<String[]> consumer) {
+        try {
+            tail.poll(consumer);
         } catch (IOException e) {
             throw new SlimFixtureException(e);
         }
-        return lines;
     }
 
-    private String lineWhereIsIn(String findByColumn, String findByColumnValue, String fileName) {
-        ArrayList<String> lines = getLinesFromFile(fileName);
-        String result = "";
+    private static int indexOf(String[] header, String column, String filename) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(column)) {
+                return i;
+            }
+        }
+        throw new SlimFixtureException(false, "No column " + column + " in " + filename);
+    }
+
+    private int countMatching(String column, ValueRange range, String filename) {
+        CsvSource source = getCountingSource(filename);
+        int columnIndex = readFile(() -> source.indexOfColumn(column));
+        return columnIndex < 0 ? 0 : source.countMatching(columnIndex, range);
+    }
+
+    private String valueOfInRowMatching(String resultColumn, String findByColumn, ValueRange range, String description, String filename) {
+        CsvSource source = getSource(filename);
+        int resultColumnIndex = source.indexOfColumn(resultColumn);
+        int findColumnIndex = source.indexOfColumn(findByColumn);
+        String[] row = findColumnIndex < 0 ? null : source.nthRowMatching(findColumnIndex, range, 1);
+        if (row == null) {
+            throw new SlimFixtureException("No row found where " + findByColumn + " is " + description);
+        }
+        return resultColumnIndex >= 0 && resultColumnIndex < row.length ? row[resultColumnIndex] : "";
+    }
+
+    private static ValueRange range(Supplier<ValueRange> range) {
         try {
-            String[] columns = getColumns(lines);
-            int findColumnIndex = indexOfColumn(columns, findByColumn);
-
-            if (findColumnIndex >= 0) {
-                lines.remove(0);
-                for (String line : lines) {
-                    String[] values = line.split(separator);
-                    if (values[findColumnIndex].equals(findByColumnValue)) {
-                        result = line;
-                    }
-                }
+            return range.get();
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    private CsvSource getSource(String filename) {
+        return new IoCheckedSource(openSource(filename));
+    }
+
+    private CsvSource openSource(String filename) {
+        List<File> parts = getCsvFiles(filename);
+        return readFile(() -> parts.size() == 1 ? sourceOf(parts.get(0)) : multiFileSource(parts, this::sourceOf, filename));
+    }
+
+    private CsvSource sourceOf(File file) {
+        CsvSource rows = rowSourceOf(file);
+        if (columnTypes.isEmpty() && !inferColumnTypes) {
+            return rows;
+        }
+        try {
+            return CsvFileCache.getInstance().get(file, typedCacheKey(),
+                    f -> TypedCsvTable.read(f, format, rows, columnTypes, inferColumnTypes));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage() + " in " + file.getName(), e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+    }
+
+    private CsvSource rowSourceOf(File file) {
+        try {
+            if (sortedOnColumn != null && SortedCsvFile.supports(file, format)) {
+                return new SortedCsvFile(file, format, sortedOnColumn, sortOrder.order());
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new SlimFixtureException("No row found where " + findByColumn + " is " + findByColumnValue);
+            if (streaming) {
+                return new StreamingCsvFile(file, format);
+            }
+            if (sidecarIndex && IndexedCsvFile.supports(file, format)) {
+                return CsvFileCache.getInstance().get(file, sidecarCacheKey(), f -> IndexedCsvFile.open(f, format));
+            }
+            if (columnar) {
+                return CsvFileCache.getInstance().get(file, columnarCacheKey(), f -> ColumnarCsvTable.read(f, format));
+            }
+            return CsvFileCache.getInstance().get(file, format.cacheKey(), f -> CsvTable.read(f, format));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage() + " in " + file.getName(), e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
         }
-        return result;
     }
 
-    private String[] getColumns(ArrayList<String> lines) {
-        return lines.get(0).split(separator);
+    /**
+     * Counting does not need the parsed file: use it when it is cached already, otherwise count on the file itself
+     * (in parallel where possible) instead of loading it.
+     */
+    private CsvSource getCountingSource(String filename) {
+        List<File> parts = getCsvFiles(filename);
+        return new IoCheckedSource(readFile(() -> parts.size() == 1
+                ? countingSourceOf(parts.get(0))
+                : multiFileSource(parts, this::countingSourceOf, filename)));
+    }
+
+    private CsvSource countingSourceOf(File file) {
+        if (sidecarIndex && !streaming || sortedOnColumn != null || !columnTypes.isEmpty() || inferColumnTypes) {
+            return sourceOf(file);
+        }
+        CsvSource cached = null;
+        if (!streaming) {
+            String cacheKey = columnar ? columnarCacheKey() : format.cacheKey();
+            cached = CsvFileCache.getInstance().getIfPresent(file, cacheKey);
+        }
+        return cached != null ? cached : new StreamingCsvFile(file, format);
+    }
+
+    private CsvSource multiFileSource(List<File> parts, Function<File, CsvSource> opener, String filename) {
+        try {
+            return new MultiFileCsvSource(parts, opener);
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage() + " in " + filename, e);
+        }
+    }
+
+    /**
+     * Aggregations always stream the file in a single pass, so they work on files that are too large to load.
+     */
+    private ColumnSummary aggregate(String filename, CsvAggregation aggregation) {
+        return aggregateGrouped(filename, aggregation).values().stream()
+                .findFirst()
+                .orElseGet(() -> new ColumnSummary(false, false));
+    }
+
+    private Map<String, ColumnSummary> aggregateGrouped(String filename, CsvAggregation aggregation) {
+        try {
+            return aggregation.runGrouped(getCsvFiles(filename));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage() + " in " + filename, e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+    }
+
+    private String columnarCacheKey() {
+        return format.cacheKey() + "columnar";
+    }
+
+    private String sidecarCacheKey() {
+        return format.cacheKey() + "sidecar";
+    }
+
+    /**
+     * Typed columns are cached per combination of types and the source of the rows they wrap
+     */
+    private String typedCacheKey() {
+        return format.cacheKey() + "typed" + streaming + sidecarIndex + columnar + sortedOnColumn + sortOrder
+                + inferColumnTypes + columnTypes;
+    }
+
+    protected CsvFormat getFormat() {
+        return format;
+    }
+
+    protected File getCsvFile(String filename) {
+        String fullName = getFullName(filename);
+        ensureParentExists(fullName);
+        return new File(fullName);
     }
 
-    private int indexOfColumn(String[] columns, String columnName) {
-        int columnIndex = -1;
-        for (int i = 0; i < columns.length; i++) {
-            if (columns[i].equals(columnName)) {
-                columnIndex = i;
+    /**
+     * @return the files a file name stands for: the parts of a directory or glob pattern, or else the file itself
+     */
+    protected List<File> getCsvFiles(String filename) {
+        try {
+            List<File> parts = CsvFileSet.resolve(getCsvFile(filename));
+            if (parts.isEmpty()) {
+                throw new SlimFixtureException(false, "No files found for " + filename);
             }
+            return parts;
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+    }
+
+    private String[] nthRowWhereIs(CsvSource source, int occurrence, String findByColumn, String findByColumnValue) {
+        int findColumnIndex = source.indexOfColumn(findByColumn);
+        String[] row = findColumnIndex < 0 ? null : source.nthRowWhere(findColumnIndex, findByColumnValue, occurrence);
+        if (row == null) {
+            String found = occurrence == 1 ? "No row" : "Fewer than " + occurrence + " rows";
+            throw new SlimFixtureException(found + " found where " + findByColumn + " is " + findByColumnValue);
+        }
+        return row;
+    }
+
+    private String[] rowNumber(CsvSource source, int rowNumber) {
+        String[] row = source.row(rowNumber);
+        if (row == null) {
+            throw new SlimFixtureException("No row " + rowNumber + " (file has " + source.numberOfRows() + " rows)");
+        }
+        return row;
+    }
+
+    private Map<String, String> toMap(String[] keys, String[] values) {
+        Map<String, String> data = new HashMap<>();
+        for (int j = 0; j < keys.length && j < values.length; j++) {
+            data.put(keys[j], values[j]);
+        }
+        return data;
+    }
+
+    /**
+     * Sources that read the file on each call (streaming, sidecar index, sorted) can fail with an
+     * UncheckedIOException, convert it as a failure to read the file is converted when loading it
+     */
+    private static <T> T readFile(Supplier<T> read) {
+        try {
+            return read.get();
+        } catch (UncheckedIOException e) {
+            throw new SlimFixtureException(e.getCause());
+        }
+    }
+
+    private static final class IoCheckedSource implements CsvSource {
+        private final CsvSource source;
+
+        private IoCheckedSource(CsvSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public String[] header() {
+            return readFile(source::header);
+        }
+
+        @Override
+        public int numberOfRows() {
+            return readFile(source::numberOfRows);
+        }
+
+        @Override
+        public String[] row(int rowNumber) {
+            return readFile(() -> source.row(rowNumber));
+        }
+
+        @Override
+        public String[] nthRowWhere(int column, String value, int occurrence) {
+            return readFile(() -> source.nthRowWhere(column, value, occurrence));
+        }
+
+        @Override
+        public int countWhere(int column, String value) {
+            return readFile(() -> source.countWhere(column, value));
+        }
+
+        @Override
+        public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+            return readFile(() -> source.nthRowMatching(column, condition, occurrence));
+        }
+
+        @Override
+        public int countMatching(int column, Predicate<String> condition) {
+            return readFile(() -> source.countMatching(column, condition));
+        }
+
+        @Override
+        public void buildIndex(int column) {
+            readFile(() -> {
+                source.buildIndex(column);
+                return null;
+            });
+        }
+
+        @Override
+        public String[] firstRowWhere(int column, String value) {
+            return readFile(() -> source.firstRowWhere(column, value));
+        }
+
+        @Override
+        public int indexOfColumn(String columnName) {
+            return readFile(() -> source.indexOfColumn(columnName));
         }
-        return columnIndex;
     }
 }
@@ -0,0 +1,102 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvGenerator;
+import nl.praegus.fitnesse.slim.fixtures.csv.ValueTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates csv files with many rows of test data, e.g. as input for performance tests of imports. Each column has
+ * a template with ${...} expressions for sequences, random choices, numbers, dates and texts. Rows are formatted in
+ * parallel, so files with millions of rows take seconds. Separator and encoding are set as for the csv file fixture,
+ * which can also be used to check the generated file.
+ */
+public class CsvGeneratorFixture extends CsvFileFixture {
+    private final Map<String, ValueTemplate> columns = new LinkedHashMap<>();
+    private long seed = 0;
+    private long lastRows;
+    private long lastNanos;
+
+    /**
+     * Add a column to generate. Template expressions:
+     * ${row}, ${sequence(start)}, ${sequence(start,step)}, ${oneOf(a,b,c)}, ${int(min,max)},
+     * ${decimal(min,max,scale)}, ${date(yyyy-MM-dd,yyyy-MM-dd)}, ${text(length)} and ${uuid}.
+     * Usage: | set column | [column] | template | [template] |
+     *
+     * @param column   The name of the column
+     * @param template The template for its values, e.g. INV-${sequence(1000)}
+     */
+    public void setColumnTemplate(String column, String template) {
+        try {
+            columns.put(column, ValueTemplate.parse(template));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove all columns
+     */
+    public void clearColumns() {
+        columns.clear();
+    }
+
+    /**
+     * Set the seed of the random values. The same seed and templates always give the same file. Defaults to 0.
+     *
+     * @param seed The seed
+     */
+    public void setRandomSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Write a file with a header and a number of generated rows.
+     * Usage: | generate | [rows] | rows in | [filename] |
+     *
+     * @param rows     The number of data rows
+     * @param filename The file to create
+     * @return a link to the created file
+     */
+    public String generateRowsIn(long rows, String filename) {
+        if (columns.isEmpty()) {
+            throw new SlimFixtureException(false, "Set the column templates first");
+        }
+        File file = getCsvFile(filename);
+        CsvGenerator generator = new CsvGenerator(getFormat()).withSeed(seed);
+        columns.forEach(generator::withColumn);
+        long start = System.nanoTime();
+        try {
+            generator.generate(file, rows);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        }
+        lastNanos = Math.max(System.nanoTime() - start, 1);
+        lastRows = rows;
+        return linkToFile(file);
+    }
+
+    /**
+     * @return the number of rows per second of the last generated file
+     */
+    public long rowsPerSecond() {
+        if (lastNanos == 0) {
+            throw new SlimFixtureException(false, "No file generated yet");
+        }
+        return lastRows * 1_000_000_000L / lastNanos;
+    }
+
+    /**
+     * @return the time it took to generate the last file, in milliseconds
+     */
+    public long generationTimeInMilliseconds() {
+        return lastNanos / 1_000_000;
+    }
+}
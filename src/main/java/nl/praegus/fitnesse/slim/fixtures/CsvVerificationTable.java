@@ -0,0 +1,205 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import nl.praegus.fitnesse.slim.fixtures.csv.CsvTokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table fixture that verifies many expected rows against a csv file in a single pass over the file.
+ * The expected rows are put in a hash map by their key, the file is streamed once and each record is looked up by
+ * its key. Missing rows, surplus rows and mismatching values are reported in the table.
+ * <p>
+ * Usage:
+ * | table: csv verification table | [filename] | [key column] |
+ * | [key column] | [column] | [column] |
+ * | [key]        | [value]  | [value]  |
+ * <p>
+ * The first row names the columns to verify and must contain the key column. An empty expected cell is not checked.
+ * Surplus rows (records whose key is not expected, or that repeat a key) are added to the table, at most 100 of them.
+ */
+public class CsvVerificationTable extends CsvFileFixture {
+    private static final int MAX_REPORTED_SURPLUS_ROWS = 100;
+
+    private final String filename;
+    private final String keyColumn;
+
+    public CsvVerificationTable(String filename, String keyColumn) {
+        this.filename = filename;
+        this.keyColumn = keyColumn;
+    }
+
+    public CsvVerificationTable(String filename, String keyColumn, String separator) {
+        this(filename, keyColumn);
+        setSeparator(separator);
+    }
+
+    public List<List<String>> doTable(List<List<String>> table) {
+        if (table.isEmpty()) {
+            throw new SlimFixtureException(false, "The first row must contain the names of the columns to verify");
+        }
+        List<String> columnNames = table.get(0);
+        int keyPosition = columnNames.indexOf(keyColumn);
+        if (keyPosition < 0) {
+            throw new SlimFixtureException(false, "The first row must contain the key column " + keyColumn);
+        }
+
+        List<List<String>> results = new ArrayList<>();
+        Map<String, Integer> expectedRows = new HashMap<>();
+        results.add(new ArrayList<>());
+        for (int i = 1; i < table.size(); i++) {
+            List<String> result = emptyResultRow(table.get(i).size());
+            String key = table.get(i).get(keyPosition);
+            if (expectedRows.putIfAbsent(key, i) != null) {
+                result.set(keyPosition, "fail:duplicate key " + key);
+            }
+            results.add(result);
+        }
+
+        Verification verification = new Verification(table, keyPosition, expectedRows, results);
+        verification.run();
+        return results;
+    }
+
+    private static List<String> emptyResultRow(int size) {
+        List<String> row = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            row.add("");
+        }
+        return row;
+    }
+
+    private final class Verification {
+        private final List<List<String>> table;
+        private final List<String> columnNames;
+        private final int keyPosition;
+        private final Map<String, Integer> expectedRows;
+        private final List<List<String>> results;
+        private final boolean[] seen;
+        private int mismatches;
+        private int surplus;
+
+        private Verification(List<List<String>> table, int keyPosition, Map<String, Integer> expectedRows, List<List<String>> results) {
+            this.table = table;
+            this.columnNames = table.get(0);
+            this.keyPosition = keyPosition;
+            this.expectedRows = expectedRows;
+            this.results = results;
+            this.seen = new boolean[table.size()];
+        }
+
+        private void run() {
+            try (CsvTokenizer tokenizer = getFormat().open(getCsvFile(filename))) {
+                String[] header = tokenizer.next();
+                int[] columns = columnIndexes(header == null ? new String[0] : header);
+                int[] projection = Arrays.stream(columns).filter(c -> c >= 0).toArray();
+                String[] projected;
+                while ((projected = tokenizer.next(projection)) != null) {
+                    verify(byPosition(columns, projected));
+                }
+            } catch (IOException e) {
+                throw new SlimFixtureException(e);
+            }
+            int missing = reportMissing();
+            if (missing + surplus + mismatches > 0) {
+                List<String> summary = new ArrayList<>();
+                summary.add(String.format("report:missing: %s, surplus: %s, mismatching: %s", missing, surplus, mismatches));
+                results.add(summary);
+            }
+        }
+
+        /**
+         * @return the values in the order of the table columns, null for columns that are not in the file
+         */
+        private String[] byPosition(int[] columns, String[] projected) {
+            if (projected.length == columns.length) {
+                return projected;
+            }
+            String[] values = new String[columns.length];
+            for (int i = 0, j = 0; i < columns.length; i++) {
+                if (columns[i] >= 0) {
+                    values[i] = projected[j++];
+                }
+            }
+            return values;
+        }
+
+        private int[] columnIndexes(String[] header) {
+            int[] columns = new int[columnNames.size()];
+            List<String> headerCells = results.get(0);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = indexOf(header, columnNames.get(i));
+                headerCells.add(columns[i] < 0 ? "fail:no column " + columnNames.get(i) : "");
+            }
+            if (columns[keyPosition] < 0) {
+                throw new SlimFixtureException(false, "No column " + keyColumn + " in " + filename);
+            }
+            return columns;
+        }
+
+        private void verify(String[] values) {
+            Integer rowNumber = expectedRows.get(values[keyPosition]);
+            if (rowNumber == null || seen[rowNumber]) {
+                reportSurplus(values);
+                return;
+            }
+            seen[rowNumber] = true;
+            List<String> expected = table.get(rowNumber);
+            List<String> result = results.get(rowNumber);
+            boolean mismatch = false;
+            for (int i = 0; i < expected.size() && i < values.length; i++) {
+                String expectedValue = expected.get(i);
+                if (!result.get(i).isEmpty() || expectedValue.isEmpty() || !results.get(0).get(i).isEmpty()) {
+                    continue;
+                }
+                String actual = values[i] == null ? "" : values[i];
+                if (actual.equals(expectedValue)) {
+                    result.set(i, "pass");
+                } else {
+                    result.set(i, "fail:[" + actual + "] expected [" + expectedValue + "]");
+                    mismatch = true;
+                }
+            }
+            if (mismatch) {
+                mismatches++;
+            }
+        }
+
+        private void reportSurplus(String[] values) {
+            if (++surplus > MAX_REPORTED_SURPLUS_ROWS) {
+                return;
+            }
+            List<String> row = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i] == null ? "" : values[i];
+                row.add(i == keyPosition ? "fail:" + value + " (surplus)" : "report:" + value);
+            }
+            results.add(row);
+        }
+
+        private int reportMissing() {
+            int missing = 0;
+            for (int rowNumber : expectedRows.values()) {
+                if (!seen[rowNumber]) {
+                    results.get(rowNumber).set(keyPosition, "fail:" + table.get(rowNumber).get(keyPosition) + " (missing)");
+                    missing++;
+                }
+            }
+            return missing;
+        }
+
+        private int indexOf(String[] header, String columnName) {
+            for (int i = 0; i < header.length; i++) {
+                if (header[i].equals(columnName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package nl.praegus.fitnesse.slim.fixtures;
 import com.google.gson.GsonBuilder;
 import nl.hsac.fitnesse.fixture.slim.SlimFixture;
 import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import nl.praegus.fitnesse.slim.fixtures.excel.StreamingWorkbook;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -13,15 +15,21 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Basic fixture to read values as String from excel sheets
+ * Basic fixture to read values as String from excel sheets.
+ * <p>
+ * Large sheets can be opened for streaming instead: cells are then read without loading the workbook, with bounded
+ * memory, but the sheet can not be written.
  */
 public class ExcelFileFixture extends SlimFixture {
 
     private final String directory = new File(filesDir, "xls").getPath() + File.separator;
     private String excelFile;
     private XSSFWorkbook workbook;
+    private StreamingWorkbook streamingWorkbook;
 
     /**
      * Select the xls file to read. Default directory is files/xls/ if it is not specified as a link/full path
@@ -29,6 +37,7 @@ public class ExcelFileFixture extends SlimFixture {
      * @param excelFile The name of path of the file
      */
     public void openExcelSheet(String excelFile) {
+        closeStreamingWorkbook();
         this.excelFile = excelFile;
         try {
             workbook = new XSSFWorkbook(getFullName(excelFile));
@@ -37,6 +46,32 @@ public class ExcelFileFixture extends SlimFixture {
         }
     }
 
+    /**
+     * Select the xlsx file to read, read-only, without loading the workbook. Sheets are parsed as values are read,
+     * up to the rows that are needed, so large sheets are read fast and with little memory. Values are the same as
+     * when the sheet is opened normally, except that formulas give their last calculated value.
+     * Usage: | open excel sheet for streaming | [excelFile] |
+     *
+     * @param excelFile The name of path of the file
+     */
+    public void openExcelSheetForStreaming(String excelFile) {
+        closeStreamingWorkbook();
+        this.excelFile = excelFile;
+        workbook = null;
+        try {
+            streamingWorkbook = StreamingWorkbook.open(new File(getFullName(excelFile)));
+        } catch (IOException e) {
+            throw new SlimFixtureException(false, "File: " + getFullName(excelFile) + " could not be opened: " + e.getMessage(), e);
+        }
+    }
+
+    private void closeStreamingWorkbook() {
+        if (streamingWorkbook != null) {
+            streamingWorkbook.close();
+            streamingWorkbook = null;
+        }
+    }
+
     /**
      * get the String value of a cell
      *
@@ -58,17 +93,109 @@ public class ExcelFileFixture extends SlimFixture {
      * @return The value of the cell, as a String
      */
     public String valueInRowColumnInSheet(int row, int col, String sheetName) {
+        if (streamingWorkbook != null) {
+            try {
+                return streamingWorkbook.value(sheetName, row, col);
+            } catch (IllegalArgumentException e) {
+                throw new SlimFixtureException(false, e.getMessage(), e);
+            } catch (IOException e) {
+                throw new SlimFixtureException(e);
+            }
+        }
         Cell cell = getCell(row, col, sheetName);
         return new DataFormatter().formatCellValue(cell);
     }
 
-    private Cell getCell(int row, int col, String sheetName) {
+    /**
+     * Get the String values of the cells of a row
+     *
+     * @param row The row number (0-based)
+     * @return The values of the cells, up to the last cell of the row
+     */
+    public List<String> valuesInRow(int row) {
+        return valuesInRowInSheet(row, null);
+    }
+
+    /**
+     * Get the String values of the cells of a row in a given worksheet
+     * Usage: | values in row | [row] | in sheet | [sheetName] |
+     *
+     * @param row       The row number (0-based)
+     * @param sheetName The name of the worksheet
+     * @return The values of the cells, up to the last cell of the row
+     */
+    public List<String> valuesInRowInSheet(int row, String sheetName) {
+        if (streamingWorkbook != null) {
+            try {
+                return streamingWorkbook.row(sheetName, row);
+            } catch (IllegalArgumentException e) {
+                throw new SlimFixtureException(false, e.getMessage(), e);
+            } catch (IOException e) {
+                throw new SlimFixtureException(e);
+            }
+        }
+        List<String> values = new ArrayList<>();
+        XSSFRow sheetRow = getSheet(sheetName).getRow(row);
+        if (sheetRow != null) {
+            DataFormatter formatter = new DataFormatter();
+            for (int col = 0; col < sheetRow.getLastCellNum(); col++) {
+                values.add(formatter.formatCellValue(sheetRow.getCell(col)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Find the first row with a value in a column
+     * Usage: | row where column | [column] | is | [value] |
+     *
+     * @param col   The column number (0-based)
+     * @param value The value to look for
+     * @return The row number (0-based), or null if there is no such row
+     */
+    public Integer rowWhereColumnIs(int col, String value) {
+        return rowWhereColumnIsInSheet(col, value, null);
+    }
+
+    /**
+     * Find the first row with a value in a column of a given worksheet
+     * Usage: | row where column | [column] | is | [value] | in sheet | [sheetName] |
+     *
+     * @param col       The column number (0-based)
+     * @param value     The value to look for
+     * @param sheetName The name of the worksheet
+     * @return The row number (0-based), or null if there is no such row
+     */
+    public Integer rowWhereColumnIsInSheet(int col, String value, String sheetName) {
+        if (streamingWorkbook != null) {
+            try {
+                int row = streamingWorkbook.findRow(sheetName, col, value);
+                return row < 0 ? null : row;
+            } catch (IllegalArgumentException e) {
+                throw new SlimFixtureException(false, e.getMessage(), e);
+            } catch (IOException e) {
+                throw new SlimFixtureException(e);
+            }
+        }
+        DataFormatter formatter = new DataFormatter();
+        for (Row sheetRow : getSheet(sheetName)) {
+            if (value.equals(formatter.formatCellValue(sheetRow.getCell(col)))) {
+                return sheetRow.getRowNum();
+            }
+        }
+        return null;
+    }
+
+    private XSSFSheet getSheet(String sheetName) {
         int sheetIndex = 0;
         if (null != sheetName) {
             sheetIndex = workbook.getSheetIndex(sheetName);
         }
+        return workbook.getSheetAt(sheetIndex);
+    }
 
-        XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
+    private Cell getCell(int row, int col, String sheetName) {
+        XSSFSheet sheet = getSheet(sheetName);
 
         XSSFRow sheetRow = sheet.getRow(row);
         if (sheetRow == null) {
@@ -104,6 +231,9 @@ public class ExcelFileFixture extends SlimFixture {
      * @param sheetName The sheet to use
      */
     public void writeToRowColumnInSheet(String value, int row, int col, String sheetName) {
+        if (streamingWorkbook != null) {
+            throw new SlimFixtureException(false, "Excel sheet is opened for streaming, which is read only");
+        }
         try {
             Cell cell = getCell(row, col, sheetName);
             cell.setCellValue(value);
@@ -1,35 +1,170 @@
 package nl.praegus.fitnesse.slim.fixtures;
 
 import nl.hsac.fitnesse.fixture.slim.FileFixture;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.FieldIndex;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.FieldType;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.FileValidation;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.FixedLengthFile;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.RecordLayout;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.RecordTypeIndex;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.Trim;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
 
+/**
+ * Reads fields by position from files with fixed length lines. The file is memory-mapped and lines are only read
+ * when they are used: line positions are indexed up to the last line used, and only the requested line is decoded,
+ * so files of many gigabytes can be used.
+ * <p>
+ * Instead of by position, fields can be read by name after defining a record layout: the name, position, length,
+ * type and trimming of each field. The whole file can be validated against the layouts, in parallel.
+ * <p>
+ * Files with several types of records (e.g. header, detail and trailer records with a type code in the first
+ * columns) can be read by record type, with a layout per type. The file is scanned once to find the records of
+ * each type.
+ * <p>
+ * Lines can be looked up by the value of a field. The first lookup on a field scans the file once to build a hash
+ * index on it, so further lookups on that field take the same time whatever the size of the file.
+ */
 public class FixedLengthFileFixture extends FileFixture {
-    private List<String> lines;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int recordLength;
+    private String fileName;
+    private FixedLengthFile file;
+    private final Map<String, RecordLayout> layouts = new HashMap<>();
+    private RecordLayout layout;
+    private int lastLineNumber;
+    private String lastLine;
+    private String headerLayout;
+    private String trailerLayout;
+    private int lineLength;
+    private int maxExamples = 10;
+    private final List<String[]> trailerTotals = new ArrayList<>();
+    private String trailerCountField;
+    private FileValidation.Result validation;
+    private int typeStart;
+    private int typeLength;
+    private final Map<String, String> typeLayouts = new HashMap<>();
+    private RecordTypeIndex typeIndex;
+    private final Map<String, FieldIndex> fieldIndexes = new HashMap<>();
+
+    public FixedLengthFileFixture() {
+    }
 
     public FixedLengthFileFixture(String fileName) {
         loadFile(fileName);
     }
 
+    /**
+     * Set the file to read. Nothing is read until a value is asked for.
+     *
+     * @param fileName The file to use
+     */
     public void loadFile(String fileName) {
-        List<String> lines = new ArrayList<>();
+        String path = getFilePathFromWikiUrl(fileName);
         try {
-            Stream<String> stream = Files.lines(Paths.get(getFilePathFromWikiUrl(fileName)));
-            lines = stream.collect(Collectors.toList());
+            file = recordLength > 0
+                    ? FixedLengthFile.openRecords(new File(path), charset, recordLength)
+                    : FixedLengthFile.open(new File(path), charset);
         } catch (IOException e) {
-            System.err.println(e.getMessage());
+            throw new SlimFixtureException(false, "File " + path + " could not be read: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+        this.fileName = fileName;
+        lastLine = null;
+        typeIndex = null;
+        fieldIndexes.clear();
+    }
+
+    /**
+     * Define the character encoding of the file. Defaults to UTF-8. Files of fixed length records can use any single
+     * byte encoding, e.g. the EBCDIC code pages IBM037 or IBM1047.
+     *
+     * @param encoding The name of the encoding, e.g. ISO-8859-1
+     */
+    public void setEncoding(String encoding) {
+        Charset newCharset;
+        try {
+            newCharset = Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, "Unknown encoding: " + encoding, e);
+        }
+        if (!FixedLengthFile.supports(newCharset) && !FixedLengthFile.supportsRecords(newCharset)) {
+            throw new SlimFixtureException(false, "Files in " + newCharset + " can not be read");
+        }
+        charset = newCharset;
+        for (RecordLayout recordLayout : layouts.values()) {
+            recordLayout.setEncoding(charset);
+        }
+        reload();
+    }
+
+    /**
+     * Read the file as records of a fixed number of bytes without line breaks, as in mainframe extracts, instead of
+     * as lines. Each record is then read as a line; positions are byte positions. Defaults to 0 (lines).
+     *
+     * @param recordLength The length of the records in bytes, or 0 to read lines
+     */
+    public void setRecordLength(int recordLength) {
+        if (recordLength < 0) {
+            throw new SlimFixtureException(false, "Record length can not be negative");
+        }
+        this.recordLength = recordLength;
+        reload();
+    }
+
+    /**
+     * Open the file again with the new settings when it is used next, so encoding and record length can be set in
+     * any order
+     */
+    private void reload() {
+        file = null;
+        lastLine = null;
+        typeIndex = null;
+        fieldIndexes.clear();
+    }
+
+    /**
+     * Read the loaded file again when it is used next, if it is the file that was written
+     *
+     * @param written A file that was (over)written
+     */
+    protected void fileWritten(File written) {
+        if (fileName != null
+                && new File(getFilePathFromWikiUrl(fileName)).getAbsoluteFile().equals(written.getAbsoluteFile())) {
+            reload();
+        }
+    }
+
+    private FixedLengthFile file() {
+        if (fileName == null) {
+            throw new SlimFixtureException(false, "No file loaded");
         }
-        this.lines = lines;
+        if (file == null || file.isChanged()) {
+            // a rewritten file is mapped again, the old mapping is released when it is garbage collected
+            loadFile(fileName);
+        }
+        return file;
+    }
+
+    /**
+     * @return the number of lines in the file
+     */
+    public int numberOfLines() {
+        return file().numberOfLines();
     }
 
     public String valueOnPositionWithLengthOnLine(int startPos, int length, int lineNumber) {
-        String line = lines.get(lineNumber-1);
+        String line = line(lineNumber);
         return line.substring(startPos-1, startPos + length -1);
     }
 
@@ -37,4 +172,466 @@ public class FixedLengthFileFixture extends FileFixture {
         return valueOnPositionWithLengthOnLine(startPos, length, lineNumber).trim();
     }
 
+    /**
+     * Add a text field to a record layout. The layout is created when it does not exist yet, and is used for
+     * lookups by field name until another layout is used.
+     * Usage: | add field | [field] | on position | [start] | with length | [length] | to layout | [layout] |
+     *
+     * @param field  The name of the field
+     * @param start  The position of its first character (1-based)
+     * @param length The number of characters
+     * @param layout The name of the layout
+     */
+    public void addFieldOnPositionWithLengthToLayout(String field, int start, int length, String layout) {
+        addFieldOfTypeOnPositionWithLengthToLayout(field, "text", start, length, layout);
+    }
+
+    /**
+     * Add a field of a type to a record layout. Types are text, number (digits with an optional sign),
+     * decimal(n) (a number with n implied decimals, e.g. 0012345 is 123.45 as decimal(2)) and date(pattern),
+     * e.g. date(yyyyMMdd). Numbers are returned without leading zeros.
+     * Usage: | add field | [field] | of type | [type] | on position | [start] | with length | [length] | to layout | [layout] |
+     *
+     * @param field  The name of the field
+     * @param type   The type of its values
+     * @param start  The position of its first character (1-based)
+     * @param length The number of characters
+     * @param layout The name of the layout
+     */
+    public void addFieldOfTypeOnPositionWithLengthToLayout(String field, String type, int start, int length, String layout) {
+        try {
+            FieldType fieldType = FieldType.of(type);
+            RecordLayout recordLayout = layouts.computeIfAbsent(layout, RecordLayout::new);
+            recordLayout.setEncoding(charset);
+            recordLayout.addField(field, start, length, fieldType);
+            this.layout = recordLayout;
+            fieldIndexes.clear();
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Set the padding to remove from the values of a field: none, left, right or both. Defaults to both.
+     * Usage: | set trim | [trim] | of field | [field] | in layout | [layout] |
+     *
+     * @param trim   The trim rule
+     * @param field  The name of the field
+     * @param layout The name of the layout
+     */
+    public void setTrimOfFieldInLayout(String trim, String field, String layout) {
+        try {
+            getLayout(layout).setTrim(field, Trim.of(trim));
+            fieldIndexes.clear();
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Use a record layout for lookups by field name
+     *
+     * @param layout The name of the layout
+     */
+    public void useLayout(String layout) {
+        this.layout = getLayout(layout);
+    }
+
+    /**
+     * Get the value of a field of the layout in use
+     * Usage: | value of field | [field] | on line | [lineNumber] |
+     *
+     * @param field      The name of the field
+     * @param lineNumber The line number (1-based)
+     * @return the value of the field
+     */
+    public String valueOfFieldOnLine(String field, int lineNumber) {
+        RecordLayout recordLayout = currentLayout();
+        return recordLayout.value(line(lineNumber), fieldOf(recordLayout, field));
+    }
+
+    /**
+     * Get the values of all fields of the layout in use
+     * Usage: | record on line | [lineNumber] |
+     *
+     * @param lineNumber The line number (1-based)
+     * @return the values of the fields, by field name
+     */
+    public Map<String, String> recordOnLine(int lineNumber) {
+        return currentLayout().record(line(lineNumber));
+    }
+
+    /**
+     * Find the first line with a value in a field of the layout in use
+     * Usage: | line number where field | [field] | is | [value] |
+     *
+     * @param field The name of the field
+     * @param value The value to look for
+     * @return the line number (1-based), or null if there is no such line
+     */
+    public Integer lineNumberWhereFieldIs(String field, String value) {
+        int lineNumber = fieldIndex(currentLayout(), field).firstLineNumber(value);
+        return lineNumber == 0 ? null : lineNumber;
+    }
+
+    /**
+     * Count the lines with a value in a field of the layout in use
+     * Usage: | number of lines where field | [field] | is | [value] |
+     *
+     * @param field The name of the field
+     * @param value The value to look for
+     * @return the number of lines with the value
+     */
+    public int numberOfLinesWhereFieldIs(String field, String value) {
+        return fieldIndex(currentLayout(), field).count(value);
+    }
+
+    /**
+     * Get the values of all fields of the layout in use in the first line with a value in a field
+     * Usage: | record where field | [field] | is | [value] |
+     *
+     * @param field The name of the field to look in
+     * @param value The value to look for
+     * @return the values of the fields, by field name, or null if there is no such line
+     */
+    public Map<String, String> recordWhereFieldIs(String field, String value) {
+        RecordLayout recordLayout = currentLayout();
+        String line = fieldIndex(recordLayout, field).line(value, 1);
+        return line == null ? null : recordLayout.record(line);
+    }
+
+    /**
+     * Get the value of a field of the layout in use in the first line with a value in another field
+     * Usage: | value of field | [resultField] | where field | [field] | is | [value] |
+     *
+     * @param resultField The name of the field to get the value of
+     * @param field       The name of the field to look in
+     * @param value       The value to look for
+     * @return the value of the result field, or null if there is no such line
+     */
+    public String valueOfFieldWhereFieldIs(String resultField, String field, String value) {
+        RecordLayout recordLayout = currentLayout();
+        int resultIndex = fieldOf(recordLayout, resultField);
+        String line = fieldIndex(recordLayout, field).line(value, 1);
+        return line == null ? null : recordLayout.value(line, resultIndex);
+    }
+
+    /**
+     * Find the first line with a (trimmed) value on a position, without a layout
+     * Usage: | line number where position | [start] | with length | [length] | is | [value] |
+     *
+     * @param start  The position of the first character (1-based)
+     * @param length The number of characters
+     * @param value  The value to look for
+     * @return the line number (1-based), or null if there is no such line
+     */
+    public Integer lineNumberWherePositionWithLengthIs(int start, int length, String value) {
+        if (start < 1 || length < 1) {
+            throw new SlimFixtureException(false, "Position and length must be positive");
+        }
+        // outside computeIfAbsent: a changed file is loaded again, which clears the indexes
+        FixedLengthFile current = file();
+        FieldIndex index = fieldIndexes.computeIfAbsent("position " + start + " " + length,
+                k -> FieldIndex.build(current, line -> trimmedText(line, start - 1, length)));
+        int lineNumber = index.firstLineNumber(value);
+        return lineNumber == 0 ? null : lineNumber;
+    }
+
+    /**
+     * Validate the first line of the file against another layout than the other lines
+     *
+     * @param layout The name of the layout of the header, or an empty value for none
+     */
+    public void setHeaderLayout(String layout) {
+        headerLayout = layout == null || layout.isEmpty() ? null : layout;
+    }
+
+    /**
+     * Validate the last line of the file against another layout than the other lines
+     *
+     * @param layout The name of the layout of the trailer, or an empty value for none
+     */
+    public void setTrailerLayout(String layout) {
+        trailerLayout = layout == null || layout.isEmpty() ? null : layout;
+    }
+
+    /**
+     * Set the length every line must have when validating. Defaults to the length of the layout of the line (up to
+     * the end of its last field).
+     *
+     * @param lineLength The length of the lines in characters, or 0 for the length of the layout
+     */
+    public void setLineLength(int lineLength) {
+        this.lineLength = lineLength;
+    }
+
+    /**
+     * Set the number of violations that are shown when validating. Defaults to 10.
+     *
+     * @param maxExamples The maximum number of violations to show
+     */
+    public void setMaximumNumberOfExamples(int maxExamples) {
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * When validating, check that a field of the trailer holds the total of a numeric field of all records
+     * Usage: | check that trailer field | [trailerField] | is total of | [field] |
+     *
+     * @param trailerField The field of the trailer layout
+     * @param field        The field of the layout in use
+     */
+    public void checkThatTrailerFieldIsTotalOf(String trailerField, String field) {
+        trailerTotals.add(new String[]{trailerField, field});
+    }
+
+    /**
+     * When validating, check that a field of the trailer holds the number of records, not counting header and trailer
+     * Usage: | check that trailer field | [trailerField] | is number of records |
+     *
+     * @param trailerField The field of the trailer layout
+     */
+    public void checkThatTrailerFieldIsNumberOfRecords(String trailerField) {
+        trailerCountField = trailerField;
+    }
+
+    /**
+     * Check all lines of the file against the layout in use (and the header and trailer layouts, if set): the length
+     * of each line, the type of each field and the totals in the trailer. The file is checked in chunks on all
+     * processors, and all violations are counted instead of stopping at the first one.
+     * Usage: | validate file |
+     *
+     * @return the number of lines and violations, followed by the first violations
+     */
+    public String validateFile() {
+        FileValidation fileValidation = new FileValidation(currentLayout())
+                .withLineLength(lineLength)
+                .withMaxExamples(maxExamples);
+        if (headerLayout != null) {
+            fileValidation.withHeader(getLayout(headerLayout));
+        }
+        if (trailerLayout != null) {
+            fileValidation.withTrailer(getLayout(trailerLayout));
+        }
+        for (String[] total : trailerTotals) {
+            fileValidation.withTotal(total[0], total[1]);
+        }
+        if (trailerCountField != null) {
+            fileValidation.withRecordCount(trailerCountField);
+        }
+        try {
+            validation = fileValidation.validate(file());
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+        return validation.summary();
+    }
+
+    /**
+     * @return the number of violations found by the last validation
+     */
+    public long numberOfViolations() {
+        if (validation == null) {
+            throw new SlimFixtureException(false, "File is not validated yet");
+        }
+        return validation.numberOfViolations();
+    }
+
+    /**
+     * Set the position of the record type code in each line, e.g. position 1 with length 2
+     * Usage: | set record type on position | [start] | with length | [length] |
+     *
+     * @param start  The position of its first character (1-based)
+     * @param length The number of characters
+     */
+    public void setRecordTypeOnPositionWithLength(int start, int length) {
+        if (start < 1 || length < 1) {
+            throw new SlimFixtureException(false, "Record type must have a positive position and length");
+        }
+        typeStart = start;
+        typeLength = length;
+        typeIndex = null;
+        fieldIndexes.clear();
+    }
+
+    /**
+     * Use a layout for the records of a type
+     * Usage: | set layout | [layout] | for record type | [type] |
+     *
+     * @param layout The name of the layout
+     * @param type   The type code (trimmed)
+     */
+    public void setLayoutForRecordType(String layout, String type) {
+        getLayout(layout);
+        typeLayouts.put(type, layout);
+    }
+
+    /**
+     * @param type The type code
+     * @return the number of records of the type
+     */
+    public int numberOfRecordsOfType(String type) {
+        return typeIndex().numberOfRecords(type);
+    }
+
+    /**
+     * Get the value of a field in the n-th record of a type
+     * Usage: | value of field | [field] | in record | [occurrence] | of type | [type] |
+     *
+     * @param field      The name of a field of the layout of the type
+     * @param occurrence The number of the record among the records of the type (1-based)
+     * @param type       The type code
+     * @return the value of the field
+     */
+    public String valueOfFieldInRecordOfType(String field, int occurrence, String type) {
+        RecordLayout recordLayout = layoutOfType(type);
+        return recordLayout.value(recordOfTypeLine(occurrence, type), fieldOf(recordLayout, field));
+    }
+
+    /**
+     * Get the values of all fields in the n-th record of a type
+     * Usage: | record | [occurrence] | of type | [type] |
+     *
+     * @param occurrence The number of the record among the records of the type (1-based)
+     * @param type       The type code
+     * @return the values of the fields, by field name
+     */
+    public Map<String, String> recordOfType(int occurrence, String type) {
+        return layoutOfType(type).record(recordOfTypeLine(occurrence, type));
+    }
+
+    /**
+     * Get the values of all fields in the first record of a type with a value in a field
+     * Usage: | record of type | [type] | where | [field] | is | [value] |
+     *
+     * @param type  The type code
+     * @param field The name of a field of the layout of the type
+     * @param value The value to look for
+     * @return the values of the fields, by field name, or null if there is no such record
+     */
+    public Map<String, String> recordOfTypeWhereIs(String type, String field, String value) {
+        RecordLayout recordLayout = layoutOfType(type);
+        String line = fieldIndexOfType(type, recordLayout, field).line(value, 1);
+        return line == null ? null : recordLayout.record(line);
+    }
+
+    /**
+     * Get the value of a field in the first record of a type with a value in another field
+     * Usage: | value of field | [resultField] | in record of type | [type] | where | [field] | is | [value] |
+     *
+     * @param resultField The name of the field to get the value of
+     * @param type        The type code
+     * @param field       The name of the field to look in
+     * @param value       The value to look for
+     * @return the value of the result field, or null if there is no such record
+     */
+    public String valueOfFieldInRecordOfTypeWhereIs(String resultField, String type, String field, String value) {
+        RecordLayout recordLayout = layoutOfType(type);
+        int resultIndex = fieldOf(recordLayout, resultField);
+        String line = fieldIndexOfType(type, recordLayout, field).line(value, 1);
+        return line == null ? null : recordLayout.value(line, resultIndex);
+    }
+
+    private String recordOfTypeLine(int occurrence, String type) {
+        String line = typeIndex().record(type, occurrence);
+        if (line == null) {
+            throw new SlimFixtureException(false, "File has no record " + occurrence + " of type " + type
+                    + " (it has " + typeIndex().numberOfRecords(type) + ")");
+        }
+        return line;
+    }
+
+    private RecordLayout layoutOfType(String type) {
+        String layoutName = typeLayouts.get(type);
+        if (layoutName == null) {
+            throw new SlimFixtureException(false, "No layout for record type " + type);
+        }
+        return getLayout(layoutName);
+    }
+
+    private RecordTypeIndex typeIndex() {
+        if (typeLength == 0) {
+            throw new SlimFixtureException(false, "Position of the record type is not set");
+        }
+        FixedLengthFile current = file();
+        if (typeIndex == null) {
+            typeIndex = RecordTypeIndex.build(current, typeStart, typeLength);
+        }
+        return typeIndex;
+    }
+
+    private FieldIndex fieldIndex(RecordLayout recordLayout, String field) {
+        int index = fieldOf(recordLayout, field);
+        FixedLengthFile current = file();
+        return fieldIndexes.computeIfAbsent("field " + recordLayout.getName() + " " + field,
+                k -> FieldIndex.build(current, line -> recordLayout.value(line, index)));
+    }
+
+    /**
+     * Only the records of the type are indexed, so values of other record types in the same positions are not found
+     */
+    private FieldIndex fieldIndexOfType(String type, RecordLayout recordLayout, String field) {
+        if (typeLength == 0) {
+            throw new SlimFixtureException(false, "Position of the record type is not set");
+        }
+        int index = fieldOf(recordLayout, field);
+        FixedLengthFile current = file();
+        return fieldIndexes.computeIfAbsent("type " + type + " " + recordLayout.getName() + " " + field,
+                k -> FieldIndex.build(current, line -> type.equals(trimmedText(line, typeStart - 1, typeLength))
+                        ? recordLayout.value(line, index) : null));
+    }
+
+    private static String trimmedText(String line, int offset, int length) {
+        int end = Math.min(offset + length, line.length());
+        return line.substring(Math.min(offset, end), end).trim();
+    }
+
+    protected static int fieldOf(RecordLayout recordLayout, String field) {
+        int index = recordLayout.indexOf(field);
+        if (index < 0) {
+            throw new SlimFixtureException(false, "No field " + field + " in layout " + recordLayout.getName());
+        }
+        return index;
+    }
+
+    private RecordLayout getLayout(String name) {
+        RecordLayout recordLayout = layouts.get(name);
+        if (recordLayout == null) {
+            throw new SlimFixtureException(false, "No layout " + name);
+        }
+        return recordLayout;
+    }
+
+    protected Charset getCharset() {
+        return charset;
+    }
+
+    protected int getRecordLength() {
+        return recordLength;
+    }
+
+    protected RecordLayout currentLayout() {
+        if (layout == null) {
+            throw new SlimFixtureException(false, "No record layout defined");
+        }
+        return layout;
+    }
+
+    /**
+     * The last line read is kept, so reading several fields of a line decodes it once
+     */
+    private String line(int lineNumber) {
+        // a changed file is loaded again, which clears the last line
+        FixedLengthFile current = file();
+        if (lastLine == null || lastLineNumber != lineNumber) {
+            String line = current.line(lineNumber);
+            if (line == null) {
+                throw new SlimFixtureException(false, "File has no line " + lineNumber + " (it has " + current.numberOfLines() + " lines)");
+            }
+            lastLine = line;
+            lastLineNumber = lineNumber;
+        }
+        return lastLine;
+    }
+
 }
@@ -0,0 +1,201 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import nl.praegus.fitnesse.slim.fixtures.csv.ValueTemplate;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.FixedLengthGenerator;
+import nl.praegus.fitnesse.slim.fixtures.fixedlength.RecordLayout;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes fixed length files, e.g. as input for performance tests of batch jobs. Records follow the layout in use,
+ * defined as for the fixed length file fixture: values are padded with zeros or spaces and aligned to their fields.
+ * Records are either given value by value, or generated with a template per field, with the same ${...}
+ * expressions as the csv generator. Generated records are formatted in parallel, so files with millions of records
+ * take seconds. The number of records written and the throughput of the last file are kept, also when writing it
+ * failed halfway.
+ * <p>
+ * Set a record length to write records without line breaks, e.g. in an EBCDIC encoding with packed decimals.
+ */
+public class FixedLengthGeneratorFixture extends FixedLengthFileFixture {
+    private final Map<String, ValueTemplate> templates = new LinkedHashMap<>();
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final List<Map<String, String>> records = new ArrayList<>();
+    private long seed = 0;
+    private long lastRecords;
+    private long lastBytes;
+    private long lastNanos;
+
+    /**
+     * Set the template of the generated values of a field of the layout in use. Template expressions:
+     * ${row}, ${sequence(start)}, ${sequence(start,step)}, ${oneOf(a,b,c)}, ${int(min,max)},
+     * ${decimal(min,max,scale)}, ${date(yyyy-MM-dd,yyyy-MM-dd)}, ${text(length)} and ${uuid}.
+     * Fields without a template are left blank.
+     * Usage: | set field | [field] | template | [template] |
+     *
+     * @param field    The name of the field
+     * @param template The template for its values, e.g. ${sequence(1000)}
+     */
+    public void setFieldTemplate(String field, String template) {
+        try {
+            templates.put(field, ValueTemplate.parse(template));
+        } catch (IllegalArgumentException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove all field templates
+     */
+    public void clearTemplates() {
+        templates.clear();
+    }
+
+    /**
+     * Set the seed of the random values. The same seed and templates always give the same file. Defaults to 0.
+     *
+     * @param seed The seed
+     */
+    public void setRandomSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set the value of a field in the next record to add
+     * Usage: | set value | [value] | for field | [field] |
+     *
+     * @param value The value, e.g. 123.45 for a decimal(2) or 2024-01-31 for a date
+     * @param field The name of the field
+     */
+    public void setValueForField(String value, String field) {
+        values.put(field, value);
+    }
+
+    /**
+     * Add a record with the values set since the last record. Fields without a value are left blank.
+     */
+    public void addRecord() {
+        records.add(new LinkedHashMap<>(values));
+        values.clear();
+    }
+
+    /**
+     * Remove all added records
+     */
+    public void clearRecords() {
+        records.clear();
+        values.clear();
+    }
+
+    /**
+     * Write the added records to a file
+     * Usage: | write records to | [filename] |
+     *
+     * @param filename The file to create
+     * @return a link to the created file
+     */
+    public String writeRecordsTo(String filename) {
+        if (records.isEmpty()) {
+            throw new SlimFixtureException(false, "Add records first");
+        }
+        RecordLayout layout = currentLayout();
+        List<String[]> recordValues = new ArrayList<>(records.size());
+        for (Map<String, String> record : records) {
+            String[] fieldValues = new String[layout.numberOfFields()];
+            record.forEach((field, value) -> fieldValues[fieldOf(layout, field)] = value);
+            recordValues.add(fieldValues);
+        }
+        return write(filename, recordValues.size(), (generator, file) -> generator.write(file, recordValues));
+    }
+
+    /**
+     * Write a file with a number of generated records.
+     * Usage: | generate | [records] | records in | [filename] |
+     *
+     * @param records  The number of records
+     * @param filename The file to create
+     * @return a link to the created file
+     */
+    public String generateRecordsIn(long records, String filename) {
+        if (templates.isEmpty()) {
+            throw new SlimFixtureException(false, "Set the field templates first");
+        }
+        return write(filename, records, (generator, file) -> {
+            templates.forEach(generator::withField);
+            return generator.generate(file, records);
+        });
+    }
+
+    /**
+     * @return the number of records written to the last file, also when writing it failed
+     */
+    public long recordsWritten() {
+        return lastRecords;
+    }
+
+    /**
+     * @return the number of records per second of the last written file
+     */
+    public long recordsPerSecond() {
+        if (lastNanos == 0) {
+            throw new SlimFixtureException(false, "No file written yet");
+        }
+        return lastRecords * 1_000_000_000L / lastNanos;
+    }
+
+    /**
+     * @return the number of megabytes (of 1024 * 1024 bytes) per second of the last written file
+     */
+    public long megabytesPerSecond() {
+        if (lastNanos == 0) {
+            throw new SlimFixtureException(false, "No file written yet");
+        }
+        return (long) (lastBytes * 1e9 / lastNanos / (1024 * 1024));
+    }
+
+    /**
+     * @return the time it took to write the last file, in milliseconds
+     */
+    public long generationTimeInMilliseconds() {
+        return lastNanos / 1_000_000;
+    }
+
+    private String write(String filename, long records, Writer writer) {
+        String fullName = getFullName(filename);
+        ensureParentExists(fullName);
+        File file = new File(fullName);
+        FixedLengthGenerator generator = new FixedLengthGenerator(currentLayout(), getCharset())
+                .withRecordLength(getRecordLength())
+                .withSeed(seed);
+        long start = System.nanoTime();
+        lastRecords = 0;
+        lastBytes = 0;
+        lastNanos = 0;
+        generator.withProgress(written -> {
+            lastRecords = written;
+            lastNanos = Math.max(System.nanoTime() - start, 1);
+        });
+        try {
+            lastBytes = writer.write(generator, file);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new SlimFixtureException(false, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SlimFixtureException(e);
+        } finally {
+            fileWritten(file);
+        }
+        lastNanos = Math.max(System.nanoTime() - start, 1);
+        lastRecords = records;
+        return linkToFile(file);
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        long write(FixedLengthGenerator generator, File file) throws IOException;
+    }
+}
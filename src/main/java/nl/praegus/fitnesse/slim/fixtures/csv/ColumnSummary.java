@@ -0,0 +1,246 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Aggregated values of a column: number of rows, and optionally the sum, minimum and maximum of its numeric values
+ * and the number of distinct values.
+ * <p>
+ * Decimal values are accumulated exactly as an unscaled long plus a scale (no boxing and no BigDecimal per value).
+ * Only when a sum no longer fits in a long does it continue as a BigDecimal.
+ */
+public final class ColumnSummary {
+    private final boolean numeric;
+    private final StringDictionary distinct;
+    private final Bound minimum = new Bound();
+    private final Bound maximum = new Bound();
+
+    private long rows;
+    private long values;
+    private long sum;
+    private int sumScale;
+    private BigDecimal bigSum;
+
+    private final PlainDecimal parsed = new PlainDecimal();
+
+    /**
+     * @param numeric       Whether values are numbers to sum, average and compare
+     * @param countDistinct Whether to keep the distinct values
+     */
+    public ColumnSummary(boolean numeric, boolean countDistinct) {
+        this.numeric = numeric;
+        this.distinct = countDistinct ? new StringDictionary() : null;
+    }
+
+    /**
+     * Count a row that has no value for the column
+     */
+    public void addRow() {
+        rows++;
+    }
+
+    /**
+     * Count a row and its value. Empty values are not summed or compared.
+     *
+     * @param value The value of the column in the row
+     * @throws NumberFormatException when the column is numeric and the value is not a number
+     */
+    public void add(String value) {
+        rows++;
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (distinct != null) {
+            distinct.add(value);
+        }
+        if (numeric) {
+            addNumber(value);
+        }
+    }
+
+    /**
+     * Combine the aggregates of another part of the same column into this one
+     *
+     * @param other The summary to add
+     */
+    public void merge(ColumnSummary other) {
+        rows += other.rows;
+        if (distinct != null && other.distinct != null) {
+            for (int code = 0; code < other.distinct.size(); code++) {
+                distinct.add(other.distinct.valueOf(code));
+            }
+        }
+        if (other.values == 0) {
+            return;
+        }
+        values += other.values;
+        if (other.bigSum != null || bigSum != null) {
+            bigSum = sum().add(other.sum());
+        } else {
+            addToSum(other.sum, other.sumScale);
+        }
+        if (!minimum.isSet() || other.minimum.compareTo(minimum) < 0) {
+            minimum.set(other.minimum);
+        }
+        if (!maximum.isSet() || other.maximum.compareTo(maximum) > 0) {
+            maximum.set(other.maximum);
+        }
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public long count() {
+        return rows;
+    }
+
+    /**
+     * @return the number of non-empty numeric values
+     */
+    public long numberOfValues() {
+        return values;
+    }
+
+    public BigDecimal sum() {
+        return bigSum != null ? bigSum : BigDecimal.valueOf(sum, sumScale);
+    }
+
+    /**
+     * @return the average of the numeric values, or null if there are none
+     */
+    public BigDecimal average() {
+        if (values == 0) {
+            return null;
+        }
+        return sum().divide(BigDecimal.valueOf(values), MathContext.DECIMAL64).stripTrailingZeros();
+    }
+
+    /**
+     * @return the smallest numeric value, as it appears in the file, or null if there are none
+     */
+    public String minimum() {
+        return minimum.text;
+    }
+
+    /**
+     * @return the largest numeric value, as it appears in the file, or null if there are none
+     */
+    public String maximum() {
+        return maximum.text;
+    }
+
+    /**
+     * @return the number of distinct non-empty values
+     */
+    public int distinctCount() {
+        return distinct == null ? 0 : distinct.size();
+    }
+
+    private void addNumber(String value) {
+        values++;
+        if (!parsed.parse(value)) {
+            BigDecimal decimal = new BigDecimal(value.trim());
+            bigSum = sum().add(decimal);
+            if (!minimum.isSet() || minimum.compareTo(decimal) > 0) {
+                minimum.set(value, decimal);
+            }
+            if (!maximum.isSet() || maximum.compareTo(decimal) < 0) {
+                maximum.set(value, decimal);
+            }
+            return;
+        }
+        if (bigSum != null) {
+            bigSum = bigSum.add(BigDecimal.valueOf(parsed.unscaled(), parsed.scale()));
+        } else {
+            addToSum(parsed.unscaled(), parsed.scale());
+        }
+        if (!minimum.isSet() || minimum.compareTo(parsed.unscaled(), parsed.scale()) > 0) {
+            minimum.set(value, parsed.unscaled(), parsed.scale());
+        }
+        if (!maximum.isSet() || maximum.compareTo(parsed.unscaled(), parsed.scale()) < 0) {
+            maximum.set(value, parsed.unscaled(), parsed.scale());
+        }
+    }
+
+    private void addToSum(long unscaled, int scale) {
+        try {
+            long alignedSum = sum;
+            long alignedValue = unscaled;
+            int alignedScale = sumScale;
+            if (scale > alignedScale) {
+                alignedSum = Math.multiplyExact(alignedSum, PlainDecimal.powerOfTen(scale - alignedScale));
+                alignedScale = scale;
+            } else if (scale < alignedScale) {
+                alignedValue = Math.multiplyExact(alignedValue, PlainDecimal.powerOfTen(alignedScale - scale));
+            }
+            sum = Math.addExact(alignedSum, alignedValue);
+            sumScale = alignedScale;
+        } catch (ArithmeticException e) {
+            bigSum = BigDecimal.valueOf(sum, sumScale).add(BigDecimal.valueOf(unscaled, scale));
+        }
+    }
+
+    /**
+     * A minimum or maximum: the value as it appears in the file, and its numeric value as unscaled long and scale,
+     * or as BigDecimal when it does not fit in a long.
+     */
+    private static final class Bound {
+        private String text;
+        private long unscaled;
+        private int scale;
+        private BigDecimal decimal;
+
+        private boolean isSet() {
+            return text != null;
+        }
+
+        private void set(String text, long unscaled, int scale) {
+            this.text = text;
+            this.unscaled = unscaled;
+            this.scale = scale;
+            this.decimal = null;
+        }
+
+        private void set(String text, BigDecimal decimal) {
+            this.text = text;
+            this.decimal = decimal;
+        }
+
+        private void set(Bound other) {
+            text = other.text;
+            unscaled = other.unscaled;
+            scale = other.scale;
+            decimal = other.decimal;
+        }
+
+        private BigDecimal toBigDecimal() {
+            return decimal != null ? decimal : BigDecimal.valueOf(unscaled, scale);
+        }
+
+        private int compareTo(long otherUnscaled, int otherScale) {
+            if (decimal == null) {
+                try {
+                    long self = unscaled;
+                    if (scale < otherScale) {
+                        self = Math.multiplyExact(self, PlainDecimal.powerOfTen(otherScale - scale));
+                    } else if (otherScale < scale) {
+                        otherUnscaled = Math.multiplyExact(otherUnscaled, PlainDecimal.powerOfTen(scale - otherScale));
+                    }
+                    return Long.compare(self, otherUnscaled);
+                } catch (ArithmeticException e) {
+                    // compare as BigDecimal
+                }
+            }
+            return compareTo(BigDecimal.valueOf(otherUnscaled, otherScale));
+        }
+
+        private int compareTo(BigDecimal other) {
+            return toBigDecimal().compareTo(other);
+        }
+
+        private int compareTo(Bound other) {
+            return other.decimal == null ? compareTo(other.unscaled, other.scale) : compareTo(other.decimal);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * The content of a csv file stored per column: each column is an int array of codes into a dictionary of the
+ * distinct values of that column. Equal values in different columns share the same String instance.
+ * Low-cardinality columns (status codes, flags, dates) take 4 bytes per row instead of a String per row, and
+ * lookups compare ints in a contiguous array instead of following a String per row.
+ */
+public class ColumnarCsvTable implements CsvSource {
+    private static final int ABSENT = -1;
+
+    private final String[] header;
+    private final int dataRows;
+    private final int[][] codes;
+    private final StringDictionary[] dictionaries;
+    private final Map<Integer, Postings> indexes = new ConcurrentHashMap<>();
+
+    private ColumnarCsvTable(String[] header, int dataRows, int[][] codes, StringDictionary[] dictionaries) {
+        this.header = header;
+        this.dataRows = dataRows;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Read and encode all records of a file
+     *
+     * @param file   The file to read
+     * @param format The separator and encoding of the file
+     * @return the encoded table
+     * @throws IOException when the file can not be read
+     */
+    public static ColumnarCsvTable read(File file, CsvFormat format) throws IOException {
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] header = tokenizer.next();
+            if (header == null) {
+                return new ColumnarCsvTable(new String[0], 0, new int[0][], new StringDictionary[0]);
+            }
+            StringDictionary pool = new StringDictionary();
+            List<ColumnBuilder> columns = new ArrayList<>();
+            int row = 0;
+            String[] values;
+            while ((values = tokenizer.next()) != null) {
+                while (columns.size() < values.length) {
+                    columns.add(new ColumnBuilder());
+                }
+                for (int i = 0; i < values.length; i++) {
+                    String pooled = pool.valueOf(pool.add(values[i]));
+                    columns.get(i).set(row, pooled);
+                }
+                row++;
+            }
+            int[][] codes = new int[columns.size()][];
+            StringDictionary[] dictionaries = new StringDictionary[columns.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = columns.get(i).codes(row);
+                dictionaries[i] = columns.get(i).dictionary;
+                dictionaries[i].trim();
+            }
+            return new ColumnarCsvTable(header, row, codes, dictionaries);
+        }
+    }
+
+    @Override
+    public String[] header() {
+        return header;
+    }
+
+    @Override
+    public int numberOfRows() {
+        return header.length == 0 ? 0 : dataRows + 1;
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        if (rowNumber == 0 && header.length > 0) {
+            return header;
+        }
+        if (rowNumber < 1 || rowNumber > dataRows) {
+            return null;
+        }
+        int index = rowNumber - 1;
+        int width = codes.length;
+        while (width > 0 && codes[width - 1][index] == ABSENT) {
+            width--;
+        }
+        String[] row = new String[width];
+        for (int column = 0; column < width; column++) {
+            int code = codes[column][index];
+            row[column] = code == ABSENT ? "" : dictionaries[column].valueOf(code);
+        }
+        return row;
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        int code = codeOf(column, value);
+        if (code == ABSENT || occurrence < 1) {
+            return null;
+        }
+        Postings postings = indexes.get(column);
+        if (postings != null) {
+            return occurrence <= postings.count(code) ? row(postings.row(code, occurrence - 1)) : null;
+        }
+        int[] columnCodes = codes[column];
+        int matches = 0;
+        for (int i = 0; i < dataRows; i++) {
+            if (columnCodes[i] == code && ++matches == occurrence) {
+                return row(i + 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        int code = codeOf(column, value);
+        if (code == ABSENT) {
+            return 0;
+        }
+        Postings postings = indexes.get(column);
+        if (postings != null) {
+            return postings.count(code);
+        }
+        int[] columnCodes = codes[column];
+        int count = 0;
+        for (int i = 0; i < dataRows; i++) {
+            if (columnCodes[i] == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The condition is evaluated once per distinct value of the column, then the codes are scanned.
+     */
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        boolean[] matching = matchingCodes(column, condition);
+        if (matching == null || occurrence < 1) {
+            return null;
+        }
+        int[] columnCodes = codes[column];
+        int matches = 0;
+        for (int i = 0; i < dataRows; i++) {
+            int code = columnCodes[i];
+            if (code != ABSENT && matching[code] && ++matches == occurrence) {
+                return row(i + 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        boolean[] matching = matchingCodes(column, condition);
+        if (matching == null) {
+            return 0;
+        }
+        int[] columnCodes = codes[column];
+        int count = 0;
+        for (int i = 0; i < dataRows; i++) {
+            int code = columnCodes[i];
+            if (code != ABSENT && matching[code]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void buildIndex(int column) {
+        if (column < codes.length) {
+            indexes.computeIfAbsent(column, c -> new Postings(codes[c], dictionaries[c].size()));
+        }
+    }
+
+    /**
+     * @return per code of the column whether its value meets the condition, or null if the table has no such column
+     */
+    private boolean[] matchingCodes(int column, Predicate<String> condition) {
+        if (column >= dictionaries.length) {
+            return null;
+        }
+        StringDictionary dictionary = dictionaries[column];
+        boolean[] matching = new boolean[dictionary.size()];
+        for (int code = 0; code < matching.length; code++) {
+            matching[code] = condition.test(dictionary.valueOf(code));
+        }
+        return matching;
+    }
+
+    private int codeOf(int column, String value) {
+        return column < dictionaries.length ? dictionaries[column].codeOf(value) : ABSENT;
+    }
+
+    /**
+     * The row numbers of each code, grouped by code: rows[start[code]] up to rows[start[code + 1]]
+     */
+    private static final class Postings {
+        private final int[] start;
+        private final int[] rows;
+
+        private Postings(int[] codes, int cardinality) {
+            start = new int[cardinality + 1];
+            int present = 0;
+            for (int code : codes) {
+                if (code != ABSENT) {
+                    start[code + 1]++;
+                    present++;
+                }
+            }
+            for (int code = 0; code < cardinality; code++) {
+                start[code + 1] += start[code];
+            }
+            rows = new int[present];
+            int[] next = Arrays.copyOf(start, cardinality);
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != ABSENT) {
+                    rows[next[codes[i]]++] = i + 1;
+                }
+            }
+        }
+
+        private int count(int code) {
+            return start[code + 1] - start[code];
+        }
+
+        private int row(int code, int index) {
+            return rows[start[code] + index];
+        }
+    }
+
+    private static final class ColumnBuilder {
+        private final StringDictionary dictionary = new StringDictionary();
+        private int[] codes = new int[1024];
+
+        private ColumnBuilder() {
+            Arrays.fill(codes, ABSENT);
+        }
+
+        private void set(int row, String value) {
+            if (row >= codes.length) {
+                int oldLength = codes.length;
+                codes = Arrays.copyOf(codes, Math.max(row + 1, oldLength * 2));
+                Arrays.fill(codes, oldLength, codes.length, ABSENT);
+            }
+            codes[row] = dictionary.add(value);
+        }
+
+        private int[] codes(int rows) {
+            if (codes.length < rows) {
+                int oldLength = codes.length;
+                codes = Arrays.copyOf(codes, rows);
+                Arrays.fill(codes, oldLength, rows, ABSENT);
+            }
+            return codes.length == rows ? codes : Arrays.copyOf(codes, rows);
+        }
+    }
+}
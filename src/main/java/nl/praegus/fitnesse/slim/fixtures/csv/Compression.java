@@ -0,0 +1,144 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The compression of a file, recognised by its extension or else by its first bytes. Compressed files are
+ * decompressed while they are read, without unpacking them to disk.
+ */
+public enum Compression {
+    NONE(new byte[0]) {
+        @Override
+        InputStream decompress(InputStream in) {
+            return in;
+        }
+    },
+    GZIP(new byte[]{0x1f, (byte) 0x8b}, ".gz", ".gzip") {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new GzipCompressorInputStream(in, true);
+        }
+    },
+    /**
+     * Recognised by "BZh", the block size digit and the magic number of the first block (or of the end of the
+     * stream, for an empty file), as "BZh" alone can be the start of a text
+     */
+    BZIP2(new byte[]{'B', 'Z', 'h'}, ".bz2") {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new BZip2CompressorInputStream(in, true);
+        }
+
+        @Override
+        boolean matches(byte[] start, int length) {
+            return super.matches(start, length) && length >= 10 && start[3] >= '1' && start[3] <= '9'
+                    && (startsWith(start, 4, BZIP2_BLOCK_MAGIC) || startsWith(start, 4, BZIP2_END_MAGIC));
+        }
+    },
+    /**
+     * A zip archive, of which the first file is read
+     */
+    ZIP(new byte[]{'P', 'K', 3, 4}, ".zip") {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            ZipInputStream zip = new ZipInputStream(in);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    return zip;
+                }
+            }
+            zip.close();
+            throw new IOException("Zip file contains no files");
+        }
+    };
+
+    private static final int MAGIC_LENGTH = 10;
+    private static final byte[] BZIP2_BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+    private static final byte[] BZIP2_END_MAGIC = {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+
+    private final byte[] magic;
+    private final String[] extensions;
+
+    Compression(byte[] magic, String... extensions) {
+        this.magic = magic;
+        this.extensions = extensions;
+    }
+
+    /**
+     * @param file The file to inspect
+     * @return the compression of the file
+     * @throws IOException when the start of the file can not be read
+     */
+    public static Compression of(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), MAGIC_LENGTH)) {
+            return of(file.getName(), in);
+        }
+    }
+
+    /**
+     * @param name The name of the file
+     * @param in   The content of the file, which must support mark and reset. It is positioned at the start again
+     * @return the compression of the file
+     * @throws IOException when the start of the file can not be read
+     */
+    static Compression of(String name, InputStream in) throws IOException {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (Compression compression : values()) {
+            for (String extension : compression.extensions) {
+                if (lowerCaseName.endsWith(extension)) {
+                    return compression;
+                }
+            }
+        }
+        in.mark(MAGIC_LENGTH);
+        byte[] start = new byte[MAGIC_LENGTH];
+        int length = in.readNBytes(start, 0, MAGIC_LENGTH);
+        in.reset();
+        for (Compression compression : values()) {
+            if (compression != NONE && compression.matches(start, length)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+
+    /**
+     * @param in The content of the file
+     * @return the decompressed content
+     * @throws IOException when the content is not valid for this compression
+     */
+    abstract InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * @param start  The first bytes of a file
+     * @param length The number of bytes read
+     * @return true if the bytes are the start of a file with this compression
+     */
+    boolean matches(byte[] start, int length) {
+        return length >= magic.length && startsWith(start, 0, magic);
+    }
+
+    private static boolean startsWith(byte[] start, int offset, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (start[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,192 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import nl.praegus.fitnesse.slim.fixtures.util.PartitionPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates a column of a csv file in a single streaming pass, optionally filtered on the value of another column
+ * and grouped by the values of a third. Only the columns involved are extracted from each record.
+ */
+public final class CsvAggregation {
+    private final CsvFormat format;
+    private String valueColumn;
+    private boolean numeric;
+    private boolean countDistinct;
+    private String whereColumn;
+    private String whereValue;
+    private String groupColumn;
+
+    public CsvAggregation(CsvFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * @param column  The column to aggregate
+     * @param numeric Whether to sum, average and compare its values as numbers
+     * @return this aggregation
+     */
+    public CsvAggregation ofColumn(String column, boolean numeric) {
+        this.valueColumn = column;
+        this.numeric = numeric;
+        return this;
+    }
+
+    public CsvAggregation countingDistinct() {
+        this.countDistinct = true;
+        return this;
+    }
+
+    public CsvAggregation where(String column, String value) {
+        this.whereColumn = column;
+        this.whereValue = value;
+        return this;
+    }
+
+    public CsvAggregation groupedBy(String column) {
+        this.groupColumn = column;
+        return this;
+    }
+
+    /**
+     * @param file The file to aggregate
+     * @return the summaries per value of the group column, in order of first appearance. Without a group column,
+     * a single summary with key "" (or none when no rows match)
+     * @throws IOException when the file can not be read
+     */
+    public Map<String, ColumnSummary> runGrouped(File file) throws IOException {
+        StringDictionary groupValues = new StringDictionary();
+        List<ColumnSummary> summaries = new ArrayList<>();
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] header = tokenizer.next();
+            if (header == null) {
+                return new LinkedHashMap<>();
+            }
+            int[] columns = new int[0];
+            int value = positionOf(header, valueColumn, columns);
+            columns = withColumn(columns, header, valueColumn);
+            int where = positionOf(header, whereColumn, columns);
+            columns = withColumn(columns, header, whereColumn);
+            int group = positionOf(header, groupColumn, columns);
+            columns = withColumn(columns, header, groupColumn);
+            String[] values;
+            while ((values = tokenizer.next(columns)) != null) {
+                if (where >= 0 && !whereValue.equals(values[where])) {
+                    continue;
+                }
+                String groupValue = group >= 0 && values[group] != null ? values[group] : "";
+                int code = groupValues.add(groupValue);
+                if (code == summaries.size()) {
+                    summaries.add(newSummary());
+                }
+                add(summaries.get(code), value >= 0 ? values[value] : null, value >= 0);
+            }
+        }
+        Map<String, ColumnSummary> result = new LinkedHashMap<>();
+        for (int code = 0; code < summaries.size(); code++) {
+            result.put(groupValues.valueOf(code), summaries.get(code));
+        }
+        return result;
+    }
+
+    /**
+     * Aggregate the parts of a file set in parallel and merge the results
+     *
+     * @param files The parts, in order
+     * @return the summaries per value of the group column, in order of first appearance over the parts in order
+     * @throws IOException when a part can not be read
+     */
+    public Map<String, ColumnSummary> runGrouped(List<File> files) throws IOException {
+        List<Map<String, ColumnSummary>> partResults;
+        try {
+            partResults = PartitionPool.map(files, file -> {
+                try {
+                    return runGrouped(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Map<String, ColumnSummary> result = new LinkedHashMap<>();
+        for (Map<String, ColumnSummary> partResult : partResults) {
+            for (Map.Entry<String, ColumnSummary> group : partResult.entrySet()) {
+                ColumnSummary summary = result.get(group.getKey());
+                if (summary == null) {
+                    result.put(group.getKey(), group.getValue());
+                } else {
+                    summary.merge(group.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private ColumnSummary newSummary() {
+        return new ColumnSummary(numeric, countDistinct);
+    }
+
+    private void add(ColumnSummary summary, String value, boolean hasValueColumn) {
+        if (!hasValueColumn) {
+            summary.addRow();
+            return;
+        }
+        try {
+            summary.add(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Not a number in column " + valueColumn + ": " + value);
+        }
+    }
+
+    /**
+     * @return the position of the column in the projection, once it is added by {@link #withColumn}, or -1 if no
+     * column is given
+     */
+    private static int positionOf(String[] header, String column, int[] columns) {
+        if (column == null) {
+            return -1;
+        }
+        int index = indexOf(header, column);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == index) {
+                return i;
+            }
+        }
+        return columns.length;
+    }
+
+    /**
+     * The tokenizer keeps each column once, so a column that is used for more than one purpose is projected once
+     */
+    private static int[] withColumn(int[] columns, String[] header, String column) {
+        if (column == null) {
+            return columns;
+        }
+        int index = indexOf(header, column);
+        for (int existing : columns) {
+            if (existing == index) {
+                return columns;
+            }
+        }
+        int[] extended = Arrays.copyOf(columns, columns.length + 1);
+        extended[columns.length] = index;
+        return extended;
+    }
+
+    private static int indexOf(String[] header, String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column " + column);
+    }
+}
@@ -0,0 +1,59 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * The type of the values in a csv column. Numbers are plain decimals (e.g. -12.50, no exponent or grouping), dates
+ * are ISO dates (yyyy-MM-dd). Empty cells are allowed in every type.
+ */
+public enum CsvColumnType {
+    TEXT, INT, LONG, DECIMAL, DATE;
+
+    /**
+     * @param name The name of the type, in any case
+     * @return the type
+     * @throws IllegalArgumentException when there is no such type
+     */
+    public static CsvColumnType of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown column type: " + name + " (use text, int, long, decimal or date)", e);
+        }
+    }
+
+    /**
+     * @return the order of values of this type: texts by character, numbers and dates by value. Values that are not
+     * of the type (such as empty cells) come first, ordered by character.
+     */
+    public Comparator<String> order() {
+        if (this == TEXT) {
+            return Comparator.naturalOrder();
+        }
+        return (first, second) -> {
+            BigDecimal firstValue = numericValueOf(first);
+            BigDecimal secondValue = numericValueOf(second);
+            if (firstValue == null || secondValue == null) {
+                return firstValue != null ? 1 : secondValue != null ? -1 : first.compareTo(second);
+            }
+            return firstValue.compareTo(secondValue);
+        };
+    }
+
+    private BigDecimal numericValueOf(String text) {
+        try {
+            return this == DATE ? BigDecimal.valueOf(LocalDate.parse(text).toEpochDay()) : new BigDecimal(text);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,254 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares an expected and an actual csv file, matching rows on one or more key columns regardless of their order.
+ * <p>
+ * When the actual file fits in the memory budget its rows are kept in a hash map and the expected file is streamed
+ * against it. Otherwise both files are sorted on their key with an external merge sort (spilling sorted runs to
+ * temporary files) and joined in a single merge pass, so memory use stays within the budget for files of any size.
+ * Rows with the same key are paired in file order.
+ */
+public final class CsvDiff {
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    public static final int DEFAULT_MAX_EXAMPLES = 100;
+
+    private final CsvFormat format;
+    private final List<String> keyColumns;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private int maxExamples = DEFAULT_MAX_EXAMPLES;
+    private File tempDir;
+
+    /**
+     * @param format     The separator and encoding of both files
+     * @param keyColumns The names of the columns that identify a row
+     */
+    public CsvDiff(CsvFormat format, List<String> keyColumns) {
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("At least one key column is needed");
+        }
+        this.format = format;
+        this.keyColumns = keyColumns;
+    }
+
+    /**
+     * @param memoryBudget The (estimated) number of bytes that rows may take in memory
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @param maxExamples The maximum number of differences to keep as example
+     */
+    public void setMaxExamples(int maxExamples) {
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * @param tempDir The directory for sorted runs, null to use the default temporary directory
+     */
+    public void setTempDir(File tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * @param expected The file with the expected rows
+     * @param actual   The file with the actual rows
+     * @return the differences
+     * @throws IOException when a file can not be read, or sorted runs can not be written
+     */
+    public CsvDiffResult compare(File expected, File actual) throws IOException {
+        Layout layout = new Layout(header(expected), header(actual));
+        CsvDiffResult result = new CsvDiffResult(layout.comparedColumns, layout.missingColumns, layout.surplusColumns, maxExamples);
+        Map<String, String[]> actualRows = new LinkedHashMap<>();
+        Map<String, ArrayDeque<String[]>> duplicates = new HashMap<>();
+        if (readWithinBudget(actual, layout.actualKey, actualRows, duplicates)) {
+            hashJoin(expected, layout, actualRows, duplicates, result);
+        } else {
+            mergeJoin(expected, actual, layout, result);
+        }
+        return result;
+    }
+
+    private String[] header(File file) throws IOException {
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] header = tokenizer.next();
+            return header == null ? new String[0] : header;
+        }
+    }
+
+    /**
+     * @return false if the rows do not fit in the memory budget
+     */
+    private boolean readWithinBudget(File file, int[] keyColumns, Map<String, String[]> rows,
+                                     Map<String, ArrayDeque<String[]>> duplicates) throws IOException {
+        long used = 0;
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            tokenizer.skip();
+            String[] values;
+            while ((values = tokenizer.next()) != null) {
+                used += SortedCsvRecords.estimateSize(values) + 64;
+                if (used > memoryBudget) {
+                    rows.clear();
+                    duplicates.clear();
+                    return false;
+                }
+                String key = SortedCsvRecords.keyOf(values, keyColumns);
+                if (rows.putIfAbsent(key, values) != null) {
+                    duplicates.computeIfAbsent(key, k -> new ArrayDeque<>()).add(values);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void hashJoin(File expected, Layout layout, Map<String, String[]> actualRows,
+                          Map<String, ArrayDeque<String[]>> duplicates, CsvDiffResult result) throws IOException {
+        try (CsvTokenizer tokenizer = format.open(expected)) {
+            tokenizer.skip();
+            String[] values;
+            while ((values = tokenizer.next()) != null) {
+                String key = SortedCsvRecords.keyOf(values, layout.expectedKey);
+                String[] match = actualRows.get(key);
+                if (match == null) {
+                    result.missing(key);
+                    continue;
+                }
+                ArrayDeque<String[]> next = duplicates.get(key);
+                if (next != null && !next.isEmpty()) {
+                    actualRows.put(key, next.poll());
+                } else {
+                    actualRows.remove(key);
+                }
+                compareRow(key, values, match, layout, result);
+            }
+        }
+        for (String key : actualRows.keySet()) {
+            result.surplus(key);
+            ArrayDeque<String[]> next = duplicates.get(key);
+            for (int i = next == null ? 0 : next.size(); i > 0; i--) {
+                result.surplus(key);
+            }
+        }
+    }
+
+    private void mergeJoin(File expected, File actual, Layout layout, CsvDiffResult result) throws IOException {
+        try (CsvTokenizer expectedTokenizer = format.open(expected);
+             CsvTokenizer actualTokenizer = format.open(actual)) {
+            expectedTokenizer.skip();
+            actualTokenizer.skip();
+            long budgetPerFile = Math.max(1, memoryBudget / 2);
+            try (SortedCsvRecords expectedRecords = SortedCsvRecords.sort(expectedTokenizer, layout.expectedKey, budgetPerFile, tempDir);
+                 SortedCsvRecords actualRecords = SortedCsvRecords.sort(actualTokenizer, layout.actualKey, budgetPerFile, tempDir)) {
+                result.setNumberOfRuns(Math.max(expectedRecords.numberOfRuns(), actualRecords.numberOfRuns()));
+                SortedCsvRecords.Record expectedRecord = expectedRecords.next();
+                SortedCsvRecords.Record actualRecord = actualRecords.next();
+                while (expectedRecord != null || actualRecord != null) {
+                    int order = expectedRecord == null ? 1 : actualRecord == null ? -1 : expectedRecord.key.compareTo(actualRecord.key);
+                    if (order < 0) {
+                        result.missing(expectedRecord.key);
+                        expectedRecord = expectedRecords.next();
+                    } else if (order > 0) {
+                        result.surplus(actualRecord.key);
+                        actualRecord = actualRecords.next();
+                    } else {
+                        compareRow(expectedRecord.key, expectedRecord.values, actualRecord.values, layout, result);
+                        expectedRecord = expectedRecords.next();
+                        actualRecord = actualRecords.next();
+                    }
+                }
+            }
+        }
+    }
+
+    private void compareRow(String key, String[] expected, String[] actual, Layout layout, CsvDiffResult result) {
+        int[] expectedColumns = layout.expectedCompared;
+        int[] actualColumns = layout.actualCompared;
+        for (int i = 0; i < expectedColumns.length; i++) {
+            if (!SortedCsvRecords.valueOf(expected, expectedColumns[i]).equals(SortedCsvRecords.valueOf(actual, actualColumns[i]))) {
+                result.different(key, () -> describe(expected, actual, layout));
+                return;
+            }
+        }
+        result.equal();
+    }
+
+    private static String describe(String[] expected, String[] actual, Layout layout) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < layout.expectedCompared.length; i++) {
+            String expectedValue = SortedCsvRecords.valueOf(expected, layout.expectedCompared[i]);
+            String actualValue = SortedCsvRecords.valueOf(actual, layout.actualCompared[i]);
+            if (!expectedValue.equals(actualValue)) {
+                if (description.length() > 0) {
+                    description.append("; ");
+                }
+                description.append(layout.comparedColumns.get(i)).append(": expected [").append(expectedValue)
+                        .append("] actual [").append(actualValue).append(']');
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * The positions of the key columns and of the columns present in both files
+     */
+    private final class Layout {
+        private final int[] expectedKey;
+        private final int[] actualKey;
+        private final List<String> comparedColumns = new ArrayList<>();
+        private final List<String> missingColumns = new ArrayList<>();
+        private final List<String> surplusColumns = new ArrayList<>();
+        private final int[] expectedCompared;
+        private final int[] actualCompared;
+
+        private Layout(String[] expectedHeader, String[] actualHeader) {
+            expectedKey = keyPositions(expectedHeader, "expected");
+            actualKey = keyPositions(actualHeader, "actual");
+            List<String> actualNames = Arrays.asList(actualHeader);
+            int[] expectedPositions = new int[expectedHeader.length];
+            int[] actualPositions = new int[expectedHeader.length];
+            for (int i = 0; i < expectedHeader.length; i++) {
+                int actualPosition = actualNames.indexOf(expectedHeader[i]);
+                if (actualPosition < 0) {
+                    missingColumns.add(expectedHeader[i]);
+                } else if (!keyColumns.contains(expectedHeader[i])) {
+                    expectedPositions[comparedColumns.size()] = i;
+                    actualPositions[comparedColumns.size()] = actualPosition;
+                    comparedColumns.add(expectedHeader[i]);
+                }
+            }
+            for (String name : actualHeader) {
+                if (!Arrays.asList(expectedHeader).contains(name)) {
+                    surplusColumns.add(name);
+                }
+            }
+            expectedCompared = Arrays.copyOf(expectedPositions, comparedColumns.size());
+            actualCompared = Arrays.copyOf(actualPositions, comparedColumns.size());
+        }
+
+        private int[] keyPositions(String[] header, String file) {
+            List<String> names = Arrays.asList(header);
+            int[] positions = new int[keyColumns.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = names.indexOf(keyColumns.get(i));
+                if (positions[i] < 0) {
+                    throw new IllegalArgumentException("No key column " + keyColumns.get(i) + " in " + file + " file");
+                }
+            }
+            return positions;
+        }
+    }
+}
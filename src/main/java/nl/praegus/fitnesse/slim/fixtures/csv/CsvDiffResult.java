@@ -0,0 +1,197 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The outcome of comparing two csv files: the number of equal, different, missing and surplus rows, and the first
+ * differences found as examples.
+ */
+public final class CsvDiffResult {
+    private final List<String> comparedColumns;
+    private final List<String> missingColumns;
+    private final List<String> surplusColumns;
+    private final int maxExamples;
+    private final List<Difference> examples = new ArrayList<>();
+
+    private long equalRows;
+    private long differentRows;
+    private long missingRows;
+    private long surplusRows;
+    private int numberOfRuns;
+
+    CsvDiffResult(List<String> comparedColumns, List<String> missingColumns, List<String> surplusColumns, int maxExamples) {
+        this.comparedColumns = comparedColumns;
+        this.missingColumns = missingColumns;
+        this.surplusColumns = surplusColumns;
+        this.maxExamples = maxExamples;
+    }
+
+    public long equalRows() {
+        return equalRows;
+    }
+
+    public long differentRows() {
+        return differentRows;
+    }
+
+    /**
+     * @return the number of expected rows without an actual row with the same key
+     */
+    public long missingRows() {
+        return missingRows;
+    }
+
+    /**
+     * @return the number of actual rows without an expected row with the same key
+     */
+    public long surplusRows() {
+        return surplusRows;
+    }
+
+    public boolean hasDifferences() {
+        return differentRows > 0 || missingRows > 0 || surplusRows > 0 || !missingColumns.isEmpty();
+    }
+
+    public List<String> comparedColumns() {
+        return Collections.unmodifiableList(comparedColumns);
+    }
+
+    /**
+     * @return the columns of the expected file that are not in the actual file
+     */
+    public List<String> missingColumns() {
+        return Collections.unmodifiableList(missingColumns);
+    }
+
+    /**
+     * @return the columns of the actual file that are not in the expected file
+     */
+    public List<String> surplusColumns() {
+        return Collections.unmodifiableList(surplusColumns);
+    }
+
+    /**
+     * @return the number of sorted runs written to disk per file, 0 when the files were compared in memory
+     */
+    public int numberOfRuns() {
+        return numberOfRuns;
+    }
+
+    /**
+     * @return the first differences, at most the maximum number of examples
+     */
+    public List<Difference> examples() {
+        return Collections.unmodifiableList(examples);
+    }
+
+    void equal() {
+        equalRows++;
+    }
+
+    /**
+     * @param description Describes the difference, only called while examples are still collected
+     */
+    void different(String key, Supplier<String> description) {
+        differentRows++;
+        if (examples.size() < maxExamples) {
+            examples.add(new Difference(Difference.Type.DIFFERENT, key, description.get()));
+        }
+    }
+
+    void missing(String key) {
+        missingRows++;
+        addExample(Difference.Type.MISSING, key, "");
+    }
+
+    void surplus(String key) {
+        surplusRows++;
+        addExample(Difference.Type.SURPLUS, key, "");
+    }
+
+    void setNumberOfRuns(int numberOfRuns) {
+        this.numberOfRuns = numberOfRuns;
+    }
+
+    private void addExample(Difference.Type type, String key, String description) {
+        if (examples.size() < maxExamples) {
+            examples.add(new Difference(type, key, description));
+        }
+    }
+
+    /**
+     * @param title The title of the report
+     * @return an html page with the counts and the example differences
+     */
+    public String toHtml(String title) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>").append(escape(title)).append("</title>")
+                .append("<style>table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:2px 6px;text-align:left}")
+                .append(".missing{background:#fdd}.surplus{background:#ffd}.different{background:#def}</style></head><body>\n")
+                .append("<h1>").append(escape(title)).append("</h1>\n<table>\n");
+        row(html, "Equal rows", String.valueOf(equalRows));
+        row(html, "Different rows", String.valueOf(differentRows));
+        row(html, "Missing rows", String.valueOf(missingRows));
+        row(html, "Surplus rows", String.valueOf(surplusRows));
+        row(html, "Compared columns", String.join(", ", comparedColumns));
+        if (!missingColumns.isEmpty()) {
+            row(html, "Missing columns", String.join(", ", missingColumns));
+        }
+        if (!surplusColumns.isEmpty()) {
+            row(html, "Surplus columns", String.join(", ", surplusColumns));
+        }
+        html.append("</table>\n");
+        if (!examples.isEmpty()) {
+            long total = differentRows + missingRows + surplusRows;
+            html.append("<h2>").append(total > examples.size() ? "First " + examples.size() + " of " + total : "All")
+                    .append(" differences</h2>\n<table>\n<tr><th>Key</th><th>Difference</th><th>Details</th></tr>\n");
+            for (Difference example : examples) {
+                String type = example.getType().name().toLowerCase();
+                html.append("<tr class=\"").append(type).append("\"><td>").append(escape(example.getKey()))
+                        .append("</td><td>").append(type)
+                        .append("</td><td>").append(escape(example.getDescription())).append("</td></tr>\n");
+            }
+            html.append("</table>\n");
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    private static void row(StringBuilder html, String name, String value) {
+        html.append("<tr><th>").append(name).append("</th><td>").append(escape(value)).append("</td></tr>\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    public static final class Difference {
+        public enum Type {MISSING, SURPLUS, DIFFERENT}
+
+        private final Type type;
+        private final String key;
+        private final String description;
+
+        private Difference(Type type, String key, String description) {
+            this.type = type;
+            this.key = key.replace('\u0000', '|');
+            this.description = description;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the key values of the row, separated by | when there are multiple key columns
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide, least-recently-used cache of parsed csv files (in any in-memory representation). An entry is only reused as long as the size and
+ * modification time of the file are unchanged, so a rewritten file is always read again.
+ */
+public final class CsvFileCache {
+    public static final int DEFAULT_MAX_FILES = 5;
+    private static final CsvFileCache INSTANCE = new CsvFileCache();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxFiles = DEFAULT_MAX_FILES;
+
+    private CsvFileCache() {
+    }
+
+    public static CsvFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the maximum number of parsed files to keep. 0 disables caching.
+     *
+     * @param maxFiles The maximum number of files
+     */
+    public synchronized void setMaxFiles(int maxFiles) {
+        if (maxFiles < 0) {
+            throw new IllegalArgumentException("Maximum number of cached files can not be negative");
+        }
+        this.maxFiles = maxFiles;
+        evict();
+    }
+
+    public synchronized int getMaxFiles() {
+        return maxFiles;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the parsed content of a file only if it is cached and unchanged
+     *
+     * @param file    The file
+     * @param variant Distinguishes parses of the same file with different settings (e.g. separator)
+     * @return the parsed file, or null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends CsvSource> T getIfPresent(File file, String variant) {
+        Entry entry = entries.get(key(file, variant));
+        return entry != null && entry.isValidFor(file) ? (T) entry.table : null;
+    }
+
+    /**
+     * Get the parsed content of a file, reading it only when it is not cached or changed since it was cached.
+     *
+     * @param file    The file to read
+     * @param variant Distinguishes parses of the same file with different settings (e.g. separator) or representations
+     * @param loader  Reads the file when needed
+     * @return the parsed file
+     * @throws IOException when the file can not be read
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends CsvSource> T get(File file, String variant, Loader<T> loader) throws IOException {
+        String key = key(file, variant);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+                return (T) entry.table;
+            }
+        }
+        T table = loader.load(file);
+        synchronized (this) {
+            if (maxFiles > 0) {
+                entries.put(key, new Entry(size, lastModified, table));
+                evict();
+            }
+        }
+        return table;
+    }
+
+    private static String key(File file, String variant) {
+        return file.getAbsolutePath() + '\u0000' + variant;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxFiles && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<T extends CsvSource> {
+        T load(File file) throws IOException;
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final CsvSource table;
+
+        private Entry(long size, long lastModified, CsvSource table) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.table = table;
+        }
+
+        private boolean isValidFor(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves a file argument to the files it stands for, so output that is written as many part files (e.g.
+ * part-0000.csv ... part-0255.csv) can be used as one file. The argument can be:
+ * <ul>
+ *     <li>a directory: all files in it,</li>
+ *     <li>a glob pattern in the file name (e.g. out/part-*.csv): the matching files in its directory, unless a file
+ *     with that name exists (e.g. report[1].csv),</li>
+ *     <li>anything else: just that file.</li>
+ * </ul>
+ * Hidden files, files starting with '_' (such as _SUCCESS markers) and index files are skipped. The parts are
+ * sorted by name, which gives the order of their rows.
+ */
+public final class CsvFileSet {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private CsvFileSet() {
+    }
+
+    /**
+     * @param file The file, directory or pattern
+     * @return the files, sorted by name. Empty when a directory or pattern has no (matching) files
+     * @throws IOException when the directory can not be listed
+     */
+    public static List<File> resolve(File file) throws IOException {
+        if (file.isDirectory()) {
+            return list(file.toPath(), "*");
+        }
+        if (isPattern(file)) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            return parent.isDirectory() ? list(parent.toPath(), file.getName()) : Collections.emptyList();
+        }
+        return Collections.singletonList(file);
+    }
+
+    /**
+     * @param file A file or pattern
+     * @return true if there is no such file and its name contains glob characters
+     */
+    public static boolean isPattern(File file) {
+        if (file.exists()) {
+            return false;
+        }
+        String name = file.getName();
+        for (int i = 0; i < name.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(name.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<File> list(Path directory, String glob) throws IOException {
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : paths) {
+                if (Files.isRegularFile(path) && isPart(path.getFileName().toString())) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static boolean isPart(String name) {
+        return !name.startsWith(".") && !name.startsWith("_") && !name.endsWith(".idx") && !name.endsWith(".tmp");
+    }
+}
@@ -0,0 +1,67 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How the content of a csv file is to be read: the field separator and the character encoding.
+ */
+public final class CsvFormat {
+    public static final CsvFormat DEFAULT = new CsvFormat(',', StandardCharsets.UTF_8);
+
+    private final char separator;
+    private final Charset charset;
+
+    public CsvFormat(char separator, Charset charset) {
+        this.separator = separator;
+        this.charset = charset;
+    }
+
+    public char getSeparator() {
+        return separator;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public CsvFormat withSeparator(char separator) {
+        return new CsvFormat(separator, charset);
+    }
+
+    public CsvFormat withCharset(Charset charset) {
+        return new CsvFormat(separator, charset);
+    }
+
+    /**
+     * @param file The file to read, which may be compressed (see {@link Compression})
+     * @return a tokenizer positioned at the start of the (decompressed) file
+     * @throws IOException when the file can not be opened
+     */
+    public CsvTokenizer open(File file) throws IOException {
+        return new CsvTokenizer(new InputStreamReader(openStream(file), charset), separator);
+    }
+
+    private InputStream openStream(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            return Compression.of(file.getName(), in).decompress(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a key that is equal for formats that parse files identically
+     */
+    public String cacheKey() {
+        return separator + charset.name();
+    }
+}
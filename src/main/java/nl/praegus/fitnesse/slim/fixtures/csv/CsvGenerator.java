@@ -0,0 +1,145 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes csv files with generated rows. Rows are formatted in chunks on all processors and the chunks are written to
+ * the file in order through a file channel, with a bounded number of chunks in memory at a time.
+ * <p>
+ * Each chunk has its own random source, derived from the seed and the number of the chunk, so a seed always gives the
+ * same file, however many threads are used.
+ */
+public final class CsvGenerator {
+    static final int CHUNK_ROWS = 8192;
+
+    private final CsvFormat format;
+    private final Map<String, ValueTemplate> columns = new LinkedHashMap<>();
+    private long seed;
+
+    public CsvGenerator(CsvFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * @param name     The name of the column
+     * @param template The template of its values, see {@link ValueTemplate}
+     * @return this generator
+     */
+    public CsvGenerator withColumn(String name, ValueTemplate template) {
+        columns.put(name, template);
+        return this;
+    }
+
+    public CsvGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Write a file with a header and a number of generated data rows
+     *
+     * @param file The file to (over)write
+     * @param rows The number of data rows
+     * @throws IOException when the file can not be written
+     */
+    public void generate(File file, long rows) throws IOException {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No columns to generate");
+        }
+        List<ValueTemplate> templates = new ArrayList<>(columns.values());
+        long chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, header());
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            long next = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < 2 * threads) {
+                    long chunk = next++;
+                    pending.add(pool.submit(() -> format(templates, chunk, rows)));
+                }
+                write(channel, pending.remove().get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generating rows failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating rows", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private byte[] header() {
+        StringBuilder out = new StringBuilder();
+        for (String name : columns.keySet()) {
+            if (out.length() > 0) {
+                out.append(format.getSeparator());
+            }
+            int start = out.length();
+            out.append(name);
+            quoteIfNeeded(out, start);
+        }
+        return out.append('\n').toString().getBytes(format.getCharset());
+    }
+
+    private byte[] format(List<ValueTemplate> templates, long chunk, long rows) {
+        SplittableRandom random = new SplittableRandom(seed ^ (chunk * 0x9E3779B97F4A7C15L));
+        long first = chunk * CHUNK_ROWS + 1;
+        long last = Math.min(first + CHUNK_ROWS - 1, rows);
+        StringBuilder out = new StringBuilder(CHUNK_ROWS * 16 * templates.size());
+        for (long row = first; row <= last; row++) {
+            for (int i = 0; i < templates.size(); i++) {
+                if (i > 0) {
+                    out.append(format.getSeparator());
+                }
+                int start = out.length();
+                templates.get(i).appendTo(out, row, random);
+                quoteIfNeeded(out, start);
+            }
+            out.append('\n');
+        }
+        return out.toString().getBytes(format.getCharset());
+    }
+
+    /**
+     * Quote the field that starts at the given position when it contains a separator, quote or line break
+     */
+    private void quoteIfNeeded(StringBuilder out, int start) {
+        boolean quote = false;
+        for (int i = start; i < out.length() && !quote; i++) {
+            char c = out.charAt(i);
+            quote = c == format.getSeparator() || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return;
+        }
+        String value = out.substring(start);
+        out.setLength(start);
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
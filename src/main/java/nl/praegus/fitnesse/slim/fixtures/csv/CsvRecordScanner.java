@@ -0,0 +1,140 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the byte offsets of records, following the same rules as the {@link CsvTokenizer}. This works on bytes
+ * because, in the encodings supported by {@link MappedCsvCounter#supports(CsvFormat)}, separators, quotes and
+ * line breaks are single bytes that do not occur inside other characters.
+ */
+final class CsvRecordScanner implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EOF = -1;
+    private static final int QUOTE = '"';
+
+    private final InputStream in;
+    private final int separator;
+    private long position;
+    private int next = EOF;
+    private boolean peeked;
+    private boolean terminated;
+
+    /**
+     * @param in       The bytes to scan
+     * @param format   The format of the file
+     * @param position The offset of the first byte in the file
+     */
+    CsvRecordScanner(InputStream in, CsvFormat format, long position) {
+        this.in = in;
+        this.separator = format.getSeparator();
+        this.position = position;
+    }
+
+    /**
+     * @return a scanner positioned at the first record of the file, after a byte order mark if there is one
+     */
+    static CsvRecordScanner open(File file, CsvFormat format) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        CsvRecordScanner scanner = new CsvRecordScanner(in, format, 0);
+        if (format.getCharset().equals(StandardCharsets.UTF_8)) {
+            scanner.skipByteOrderMark();
+        }
+        return scanner;
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        in.mark(3);
+        byte[] start = new byte[3];
+        int length = in.readNBytes(start, 0, 3);
+        if (length == 3 && start[0] == (byte) 0xEF && start[1] == (byte) 0xBB && start[2] == (byte) 0xBF) {
+            position += 3;
+        } else {
+            in.reset();
+        }
+    }
+
+    long position() {
+        return position;
+    }
+
+    /**
+     * @return the offset just after the next record, or -1 at the end of the input
+     */
+    long nextRecordEnd() throws IOException {
+        int c = read();
+        if (c == EOF) {
+            return -1;
+        }
+        while (true) {
+            if (c == QUOTE) {
+                c = skipQuoted();
+            }
+            while (c != separator && c != '\n' && c != '\r' && c != EOF) {
+                c = read();
+            }
+            if (c == '\r' && peek() == '\n') {
+                read();
+                c = '\n';
+            }
+            if (c != separator) {
+                // a \r at the end of the input may be followed by a \n that is not written yet
+                terminated = c == '\n' || (c == '\r' && peek() != EOF);
+                return position;
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return whether the last record ended with a complete line break, rather than at the end of the input
+     */
+    boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * @return the byte after the closing quote, or EOF
+     */
+    private int skipQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return EOF;
+            }
+            if (c == QUOTE) {
+                c = read();
+                if (c != QUOTE) {
+                    return c;
+                }
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        int c = peeked ? next : in.read();
+        peeked = false;
+        if (c != EOF) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (!peeked) {
+            next = in.read();
+            peeked = true;
+        }
+        return next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
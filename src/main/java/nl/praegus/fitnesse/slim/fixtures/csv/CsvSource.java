@@ -0,0 +1,105 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.util.function.Predicate;
+
+/**
+ * Row based access to the content of a csv file. Row 0 contains the column names, data rows start at 1.
+ */
+public interface CsvSource {
+
+    String[] header();
+
+    /**
+     * @return the number of rows, including the header row
+     */
+    int numberOfRows();
+
+    /**
+     * @param rowNumber The number of the row (0 is the header)
+     * @return the row, or null if the file has no such row
+     */
+    String[] row(int rowNumber);
+
+    /**
+     * @param column     The index of the column to match
+     * @param value      The value to find
+     * @param occurrence Which match to return (1 is the first)
+     * @return the nth data row where the column has the given value, or null if there are fewer matches
+     */
+    String[] nthRowWhere(int column, String value, int occurrence);
+
+    /**
+     * @param column The index of the column to match
+     * @param value  The value to count
+     * @return the number of data rows where the column has the given value
+     */
+    int countWhere(int column, String value);
+
+    /**
+     * Sources that can scan a column faster than row by row override this.
+     *
+     * @param column     The index of the column to match
+     * @param condition  The condition the value must meet (e.g. a {@link ValueRange})
+     * @param occurrence Which match to return (1 is the first)
+     * @return the nth data row where the value of the column meets the condition, or null if there are fewer matches
+     */
+    default String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        if (occurrence < 1) {
+            return null;
+        }
+        int rows = numberOfRows();
+        int matches = 0;
+        for (int rowNumber = 1; rowNumber < rows; rowNumber++) {
+            String[] row = row(rowNumber);
+            if (column < row.length && condition.test(row[column]) && ++matches == occurrence) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sources that can scan a column faster than row by row override this.
+     *
+     * @param column    The index of the column to match
+     * @param condition The condition the value must meet (e.g. a {@link ValueRange})
+     * @return the number of data rows where the value of the column meets the condition
+     */
+    default int countMatching(int column, Predicate<String> condition) {
+        int rows = numberOfRows();
+        int count = 0;
+        for (int rowNumber = 1; rowNumber < rows; rowNumber++) {
+            String[] row = row(rowNumber);
+            if (column < row.length && condition.test(row[column])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Build a lookup index for a column up front, for sources that keep the file in memory. Others ignore this.
+     *
+     * @param column The index of the column
+     */
+    default void buildIndex(int column) {
+    }
+
+    default String[] firstRowWhere(int column, String value) {
+        return nthRowWhere(column, value, 1);
+    }
+
+    /**
+     * @param columnName The name of the column
+     * @return the index of the column, or -1 if the header has no such column
+     */
+    default int indexOfColumn(String columnName) {
+        String[] columns = header();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,117 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parsed content of a csv file. Row 0 contains the column names, data rows start at 1.
+ * Lookups by column value use a hash index (value to row numbers) that is built for a column on its first use.
+ */
+public class CsvTable implements CsvSource {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final List<String[]> rows;
+    private final Map<Integer, Map<String, int[]>> indexes = new ConcurrentHashMap<>();
+
+    public CsvTable(List<String[]> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Read and parse all records of a file
+     *
+     * @param file   The file to read
+     * @param format The separator and encoding of the file
+     * @return the parsed table
+     * @throws IOException when the file can not be read
+     */
+    public static CsvTable read(File file, CsvFormat format) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] row;
+            while ((row = tokenizer.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return new CsvTable(rows);
+    }
+
+    @Override
+    public String[] header() {
+        return rows.isEmpty() ? new String[0] : rows.get(0);
+    }
+
+    @Override
+    public int numberOfRows() {
+        return rows.size();
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        return rowNumber >= 0 && rowNumber < rows.size() ? rows.get(rowNumber) : null;
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        int[] rowNumbers = rowNumbersWhere(column, value);
+        return occurrence > 0 && occurrence <= rowNumbers.length ? rows.get(rowNumbers[occurrence - 1]) : null;
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        return rowNumbersWhere(column, value).length;
+    }
+
+    /**
+     * @param column The index of the column to match
+     * @param value  The value to find
+     * @return the numbers of the data rows where the column has the given value, in file order
+     */
+    public int[] rowNumbersWhere(int column, String value) {
+        return index(column).getOrDefault(value, NO_ROWS);
+    }
+
+    @Override
+    public void buildIndex(int column) {
+        index(column);
+    }
+
+    private Map<String, int[]> index(int column) {
+        return indexes.computeIfAbsent(column, this::createIndex);
+    }
+
+    private Map<String, int[]> createIndex(int column) {
+        Map<String, RowNumbers> builder = new HashMap<>();
+        for (int i = 1; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            if (column < row.length) {
+                builder.computeIfAbsent(row[column], k -> new RowNumbers()).add(i);
+            }
+        }
+        Map<String, int[]> index = new HashMap<>(builder.size() * 4 / 3 + 1);
+        builder.forEach((value, rowNumbers) -> index.put(value, rowNumbers.toArray()));
+        return index;
+    }
+
+    private static final class RowNumbers {
+        private int[] values = new int[1];
+        private int size;
+
+        private void add(int rowNumber) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = rowNumber;
+        }
+
+        private int[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
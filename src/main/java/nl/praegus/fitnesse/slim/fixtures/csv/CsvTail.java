@@ -0,0 +1,186 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Follows a csv file that is being appended to, like 'tail -f'. It remembers the byte offset up to which the file
+ * was read, so each poll only reads the bytes appended since the previous one. A record is only read once its line
+ * break is written; a partially written last record is read by a later poll. When the file shrinks (it was
+ * truncated or replaced) it is read from the start again.
+ * <p>
+ * Only uncompressed files in an encoding where separators, quotes and line breaks are single bytes (see
+ * {@link MappedCsvCounter#supports(CsvFormat)}) can be followed.
+ */
+public class CsvTail {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final CsvFormat format;
+    private String[] header;
+    private long offset;
+    private long rows;
+    private boolean skipExisting;
+
+    /**
+     * @param file         The file to follow
+     * @param format       The format of the file
+     * @param skipExisting true to ignore the rows that are in the file at the first poll
+     */
+    public CsvTail(File file, CsvFormat format, boolean skipExisting) {
+        if (!MappedCsvCounter.supports(format)) {
+            throw new IllegalArgumentException("Files in " + format.getCharset() + " can not be followed");
+        }
+        this.file = file;
+        this.format = format;
+        this.skipExisting = skipExisting;
+    }
+
+    /**
+     * @return the column names, or null if the header of the file is not written yet
+     */
+    public String[] header() {
+        return header;
+    }
+
+    /**
+     * @return the number of data rows read so far (including skipped existing rows)
+     */
+    public long numberOfRows() {
+        return rows;
+    }
+
+    /**
+     * Read the data rows appended since the previous poll
+     *
+     * @param consumer Receives each new data row
+     * @return the number of new data rows
+     * @throws IOException when the file can not be read
+     */
+    public int poll(Consumer<String[]> consumer) throws IOException {
+        int[] newRows = {0};
+        pollUntil(row -> {
+            consumer.accept(row);
+            newRows[0]++;
+            return false;
+        });
+        return newRows[0];
+    }
+
+    /**
+     * Read the data rows appended since the previous poll, up to the first row that matches. The rows after it were
+     * not checked, so they are read again by the next poll.
+     *
+     * @param match Tests each new data row
+     * @return true if a new data row matched
+     * @throws IOException when the file can not be read
+     */
+    public boolean pollUntil(Predicate<String[]> match) throws IOException {
+        boolean skip = skipExisting;
+        skipExisting = false;
+        if (!file.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < offset) {
+                header = null;
+                offset = 0;
+                rows = 0;
+            }
+            if (channel.size() == offset) {
+                return false;
+            }
+            long start = offset;
+            int records = 0;
+            long end = start;
+            try (CsvRecordScanner scanner = scannerAt(start)) {
+                start = scanner.position();
+                long recordEnd;
+                while ((recordEnd = scanner.nextRecordEnd()) >= 0 && scanner.isTerminated()) {
+                    end = recordEnd;
+                    records++;
+                }
+            }
+            if (records == 0) {
+                return false;
+            }
+            if (skip) {
+                offset = end;
+                skip(channel, start, records);
+                return false;
+            }
+            int matched = read(channel, start, records, match);
+            offset = matched < 0 || matched == records - 1 ? end : endOfRecord(start, matched);
+            return matched >= 0;
+        }
+    }
+
+    private CsvRecordScanner scannerAt(long position) throws IOException {
+        if (position == 0) {
+            return CsvRecordScanner.open(file, format);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)), BUFFER_SIZE);
+        return new CsvRecordScanner(in, format, position);
+    }
+
+    /**
+     * @return the index of the first matching record, or -1 if none matched
+     */
+    private int read(FileChannel channel, long start, int records, Predicate<String[]> match) throws IOException {
+        CsvTokenizer tokenizer = tokenizerAt(channel, start);
+        for (int i = 0; i < records; i++) {
+            String[] values = tokenizer.next();
+            if (header == null) {
+                header = values;
+            } else {
+                rows++;
+                if (match.test(values)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset of the end of a record, counted from a start offset
+     */
+    private long endOfRecord(long start, int record) throws IOException {
+        try (CsvRecordScanner scanner = scannerAt(start)) {
+            long end = start;
+            for (int i = 0; i <= record; i++) {
+                end = scanner.nextRecordEnd();
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Read only the header (if not read yet) and count the other records
+     */
+    private void skip(FileChannel channel, long start, int records) throws IOException {
+        int dataRecords = records;
+        if (header == null) {
+            header = tokenizerAt(channel, start).next();
+            dataRecords--;
+        }
+        rows += dataRecords;
+    }
+
+    /**
+     * The tokenizer is not closed: that would close the channel, which is closed by the caller
+     */
+    private CsvTokenizer tokenizerAt(FileChannel channel, long position) throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)), BUFFER_SIZE);
+        return new CsvTokenizer(new InputStreamReader(in, format.getCharset()), format.getSeparator());
+    }
+}
@@ -0,0 +1,220 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits csv content into records and fields, following RFC 4180: fields may be quoted, a quote inside a quoted
+ * field is escaped by doubling it, quoted fields may contain separators and line breaks, and empty trailing fields
+ * are kept. Records end with \n, \r\n or \r.
+ * <p>
+ * Records can be read with only a subset of their columns. Columns that are not requested are skipped without
+ * creating Strings for them.
+ */
+public class CsvTokenizer implements Closeable {
+    private static final int EOF = -1;
+    private static final int SEPARATOR = 0;
+    private static final int END_OF_RECORD = 1;
+    private static final int END_OF_INPUT = 2;
+    private static final char QUOTE = '"';
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private int position;
+    private int limit;
+    private boolean atStart = true;
+
+    private int[] lastColumns;
+    private int[] slots;
+
+    public CsvTokenizer(Reader reader, char separator) {
+        this(reader, separator, 64 * 1024);
+    }
+
+    /**
+     * @param bufferSize The number of characters to read at once, e.g. smaller for a single known record
+     */
+    CsvTokenizer(Reader reader, char separator, int bufferSize) {
+        if (separator == QUOTE || separator == '\n' || separator == '\r') {
+            throw new IllegalArgumentException("Invalid separator: " + separator);
+        }
+        this.reader = reader;
+        this.separator = separator;
+        this.buffer = new char[Math.max(bufferSize, 1)];
+    }
+
+    /**
+     * Read the next record with all of its fields
+     *
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException when the input can not be read
+     */
+    public String[] next() throws IOException {
+        fields.clear();
+        if (!readRecord(null, null)) {
+            return null;
+        }
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Read the next record, keeping only the fields of the given columns
+     *
+     * @param columns The (0-based) indexes of the columns to keep
+     * @return an array with the value of columns[i] at position i (null if the record is too short for that column),
+     * or null at the end of the input
+     * @throws IOException when the input can not be read
+     */
+    public String[] next(int... columns) throws IOException {
+        String[] values = new String[columns.length];
+        if (!readRecord(slotsFor(columns), values)) {
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * Skip the next record without creating any Strings for its fields
+     *
+     * @return false at the end of the input
+     * @throws IOException when the input can not be read
+     */
+    public boolean skip() throws IOException {
+        return readRecord(new int[0], new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @param slots  For each column index the position in values to store it in (-1 to skip), or null to add all
+     *               fields to the fields list
+     * @param values The values of the requested columns
+     * @return false if the input was at its end
+     */
+    private boolean readRecord(int[] slots, String[] values) throws IOException {
+        int c = read();
+        if (c == EOF) {
+            return false;
+        }
+        int column = 0;
+        while (true) {
+            int slot = slots == null ? column : column < slots.length ? slots[column] : -1;
+            int end = readField(c, slot >= 0);
+            if (slots == null) {
+                fields.add(field.toString());
+            } else if (slot >= 0) {
+                values[slot] = field.toString();
+            }
+            if (end != SEPARATOR) {
+                return true;
+            }
+            column++;
+            c = read();
+        }
+    }
+
+    private int readField(int first, boolean keep) throws IOException {
+        field.setLength(0);
+        if (first != QUOTE) {
+            return readUnquoted(first, keep);
+        }
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return END_OF_INPUT;
+            }
+            if (c == QUOTE) {
+                c = read();
+                if (c != QUOTE) {
+                    // closing quote, anything up to the next separator is taken as is
+                    return readUnquoted(c, keep);
+                }
+            }
+            if (keep) {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int readUnquoted(int c, boolean keep) throws IOException {
+        while (true) {
+            if (c == separator) {
+                return SEPARATOR;
+            } else if (c == '\n') {
+                return END_OF_RECORD;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    position++;
+                }
+                return END_OF_RECORD;
+            } else if (c == EOF) {
+                return END_OF_INPUT;
+            }
+            if (keep) {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int[] slotsFor(int[] columns) {
+        if (columns != lastColumns) {
+            int max = -1;
+            for (int column : columns) {
+                max = Math.max(max, column);
+            }
+            slots = new int[max + 1];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < columns.length; i++) {
+                slots[columns[i]] = i;
+            }
+            lastColumns = columns;
+        }
+        return slots;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        if (atStart) {
+            atStart = false;
+            if (buffer[0] == BYTE_ORDER_MARK) {
+                position = 1;
+                return limit > 1 || fill();
+            }
+        }
+        return true;
+    }
+}
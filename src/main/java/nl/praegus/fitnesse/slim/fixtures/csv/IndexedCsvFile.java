@@ -0,0 +1,356 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * A csv file with a sidecar index file next to it (the file name plus '.idx'), which is reused by later fixtures,
+ * slim processes and test runs as long as the csv file is unchanged. Nothing of the csv file is kept in memory:
+ * rows are read from disk by their byte offset.
+ * <p>
+ * The index holds the byte offset of every record and, for every column, the String hash codes of its values
+ * sorted together with their row numbers. A lookup binary searches the hashes of its column and only reads and
+ * verifies the rows with a matching hash.
+ * <p>
+ * The index is valid for a csv file with the same size, modification time and checksum of its first and last
+ * 64 KB, read with the same format. Only uncompressed files in an encoding where separators, quotes and line breaks
+ * are single bytes (see {@link MappedCsvCounter#supports(CsvFormat)}) can be indexed.
+ */
+public class IndexedCsvFile implements CsvSource {
+    private static final byte[] MAGIC = "CSVIDX01".getBytes(StandardCharsets.US_ASCII);
+    private static final int CHECKSUM_BLOCK = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File indexFile;
+    private final CsvFormat format;
+    private final String[] header;
+    private final int records;
+    private final long offsetsStart;
+    private final long columnsStart;
+
+    private IndexedCsvFile(File file, File indexFile, CsvFormat format, int records, int columns, long offsetsStart) {
+        this.file = file;
+        this.indexFile = indexFile;
+        this.format = format;
+        this.records = records;
+        this.offsetsStart = offsetsStart;
+        this.columnsStart = offsetsStart + 8L * (records + 1);
+        String[] firstRow = records == 0 ? null : readRow(0);
+        this.header = firstRow == null ? new String[0] : Arrays.copyOf(firstRow, Math.min(firstRow.length, columns));
+    }
+
+    /**
+     * @param file   The csv file
+     * @param format The format of the file
+     * @return true if the file can be indexed
+     * @throws IOException when the start of the file can not be read
+     */
+    public static boolean supports(File file, CsvFormat format) throws IOException {
+        return MappedCsvCounter.supports(format) && !Compression.of(file).isCompressed();
+    }
+
+    public static File indexFileOf(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
+    /**
+     * Use the index file of a csv file, (re)building it when it is missing or no longer valid
+     *
+     * @param file   The csv file
+     * @param format The format of the file
+     * @return the indexed file
+     * @throws IOException when the csv file can not be read, or the index can not be written
+     */
+    public static IndexedCsvFile open(File file, CsvFormat format) throws IOException {
+        File indexFile = indexFileOf(file);
+        IndexedCsvFile indexed = indexFile.isFile() ? readIndex(file, indexFile, format) : null;
+        if (indexed == null) {
+            writeIndex(file, indexFile, format);
+            indexed = readIndex(file, indexFile, format);
+            if (indexed == null) {
+                throw new IOException("Csv file changed while it was indexed: " + file);
+            }
+        }
+        return indexed;
+    }
+
+    @Override
+    public String[] header() {
+        return header;
+    }
+
+    @Override
+    public int numberOfRows() {
+        return records;
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        return rowNumber < 0 || rowNumber >= records ? null : readRow(rowNumber);
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        if (column >= header.length || occurrence < 1) {
+            return null;
+        }
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             FileChannel csv = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int hash = value.hashCode();
+            int matches = 0;
+            for (int i = firstWithHash(index, column, hash); i < records - 1 && readInt(index, hashPosition(column, i)) == hash; i++) {
+                String[] row = readRow(index, csv, readInt(index, rowPosition(column, i)));
+                if (matches(row, column, value) && ++matches == occurrence) {
+                    return row;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        if (column >= header.length) {
+            return 0;
+        }
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             FileChannel csv = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int hash = value.hashCode();
+            int count = 0;
+            for (int i = firstWithHash(index, column, hash); i < records - 1 && readInt(index, hashPosition(column, i)) == hash; i++) {
+                if (matches(readRow(index, csv, readInt(index, rowPosition(column, i))), column, value)) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The index only helps to find equal values: other conditions stream the csv file
+     */
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        return new StreamingCsvFile(file, format).nthRowMatching(column, condition, occurrence);
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        return new StreamingCsvFile(file, format).countMatching(column, condition);
+    }
+
+    private static boolean matches(String[] row, int column, String value) {
+        return column < row.length && row[column].equals(value);
+    }
+
+    /**
+     * @return the position of the first entry with the given hash in the sorted hashes of the column
+     */
+    private int firstWithHash(FileChannel index, int column, int hash) throws IOException {
+        int low = 0;
+        int high = records - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (readInt(index, hashPosition(column, middle)) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long hashPosition(int column, int entry) {
+        return columnsStart + 8L * column * (records - 1) + 4L * entry;
+    }
+
+    private long rowPosition(int column, int entry) {
+        return hashPosition(column, entry) + 4L * (records - 1);
+    }
+
+    private String[] readRow(int rowNumber) {
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             FileChannel csv = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return readRow(index, csv, rowNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String[] readRow(FileChannel index, FileChannel csv, int rowNumber) throws IOException {
+        ByteBuffer offsets = read(index, offsetsStart + 8L * rowNumber, 16);
+        long start = offsets.getLong();
+        int length = Math.toIntExact(offsets.getLong() - start);
+        String record = new String(read(csv, start, length).array(), format.getCharset());
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(record), format.getSeparator(), length)) {
+            String[] row = tokenizer.next();
+            return row == null ? new String[]{""} : row;
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        return read(channel, position, 4).getInt();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return the indexed file, or null if the index does not belong to the current content of the file
+     */
+    private static IndexedCsvFile readIndex(File file, File indexFile, CsvFormat format) throws IOException {
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            byte[] key = format.cacheKey().getBytes(StandardCharsets.UTF_8);
+            int headerLength = MAGIC.length + 3 * 8 + 4 + key.length + 2 * 4;
+            if (index.size() < headerLength) {
+                return null;
+            }
+            ByteBuffer header = read(index, 0, headerLength);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            long size = header.getLong();
+            long lastModified = header.getLong();
+            long checksum = header.getLong();
+            int keyLength = header.getInt();
+            if (!Arrays.equals(magic, MAGIC) || size != file.length() || lastModified != file.lastModified()
+                    || keyLength != key.length) {
+                return null;
+            }
+            byte[] indexKey = new byte[keyLength];
+            header.get(indexKey);
+            if (!Arrays.equals(indexKey, key) || checksum != checksum(file)) {
+                return null;
+            }
+            int records = header.getInt();
+            int columns = header.getInt();
+            long expectedSize = headerLength + 8L * (records + 1) + 8L * columns * Math.max(records - 1, 0);
+            if (index.size() != expectedSize) {
+                return null;
+            }
+            return new IndexedCsvFile(file, indexFile, format, records, columns, headerLength);
+        }
+    }
+
+    /**
+     * Scan the csv file once, collecting the byte offset of every record and the hash of every value, and write
+     * the index to a temporary file that replaces the index file when complete.
+     */
+    private static void writeIndex(File file, File indexFile, CsvFormat format) throws IOException {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        long checksum = checksum(file);
+        long[] offsets = new long[1024];
+        int[][] hashes = new int[0][];
+        int records = 0;
+        int columns = 0;
+        try (CsvTokenizer tokenizer = format.open(file);
+             CsvRecordScanner scanner = CsvRecordScanner.open(file, format)) {
+            offsets[0] = scanner.position();
+            String[] values;
+            while ((values = tokenizer.next()) != null) {
+                long end = scanner.nextRecordEnd();
+                if (end < 0) {
+                    throw new IOException("Records of " + file + " could not be located");
+                }
+                if (records == 0) {
+                    columns = values.length;
+                    hashes = new int[columns][1024];
+                } else {
+                    int row = records - 1;
+                    for (int column = 0; column < columns; column++) {
+                        if (row == hashes[column].length) {
+                            hashes[column] = Arrays.copyOf(hashes[column], row * 2);
+                        }
+                        hashes[column][row] = column < values.length ? values[column].hashCode() : "".hashCode();
+                    }
+                }
+                records++;
+                if (records == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, records * 2);
+                }
+                offsets[records] = end;
+            }
+        }
+        File temp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath()), BUFFER_SIZE))) {
+                byte[] key = format.cacheKey().getBytes(StandardCharsets.UTF_8);
+                out.write(MAGIC);
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                out.writeLong(checksum);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(records);
+                out.writeInt(columns);
+                for (int i = 0; i <= records; i++) {
+                    out.writeLong(offsets[i]);
+                }
+                int dataRows = Math.max(records - 1, 0);
+                long[] entries = new long[dataRows];
+                for (int column = 0; column < columns; column++) {
+                    for (int row = 0; row < dataRows; row++) {
+                        entries[row] = ((long) hashes[column][row] << 32) | (row + 1);
+                    }
+                    hashes[column] = null;
+                    Arrays.sort(entries);
+                    for (long entry : entries) {
+                        out.writeInt((int) (entry >> 32));
+                    }
+                    for (long entry : entries) {
+                        out.writeInt((int) entry);
+                    }
+                }
+            }
+            try {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * CRC32 of the first and the last block of the file, to detect changes that keep size and modification time
+     */
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int headLength = (int) Math.min(size, CHECKSUM_BLOCK);
+            crc.update(read(channel, 0, headLength));
+            long tailStart = Math.max(headLength, size - CHECKSUM_BLOCK);
+            crc.update(read(channel, tailStart, (int) (size - tailStart)));
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,210 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import nl.praegus.fitnesse.slim.fixtures.util.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts records of a csv file by memory-mapping it and scanning line-aligned chunks in parallel on the common
+ * fork/join pool. Field values are compared as raw bytes against the encoded lookup value, no Strings are created.
+ * <p>
+ * Chunks are aligned on line breaks, so a quoted field containing a line break can not be handled. When one is
+ * found (or the file uses bare \r line endings) the result is 'unsupported' and the caller must fall back to the
+ * tokenizer. The same goes for compressed files.
+ */
+public final class MappedCsvCounter {
+    public static final long UNSUPPORTED = -1;
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final byte QUOTE = '"';
+
+    private final MappedFile file;
+    private final byte separator;
+
+    private MappedCsvCounter(MappedFile file, byte separator) {
+        this.file = file;
+        this.separator = separator;
+    }
+
+    /**
+     * @param format The format of the file
+     * @return true if separators, quotes and line breaks are single, unambiguous bytes in the file's encoding
+     */
+    public static boolean supports(CsvFormat format) {
+        Charset charset = format.getCharset();
+        String name = charset.name();
+        boolean asciiCompatible = charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || name.startsWith("ISO-8859-")
+                || name.startsWith("windows-125");
+        return asciiCompatible && format.getSeparator() < 0x80;
+    }
+
+    /**
+     * @param file   The file to count
+     * @param format The format of the file
+     * @return the number of records, including the header, or UNSUPPORTED
+     * @throws IOException when the file can not be read
+     */
+    public static long countRecords(File file, CsvFormat format) throws IOException {
+        if (Compression.of(file).isCompressed()) {
+            return UNSUPPORTED;
+        }
+        MappedCsvCounter counter = new MappedCsvCounter(MappedFile.map(file), (byte) format.getSeparator());
+        return counter.count(0, -1, null);
+    }
+
+    /**
+     * @param file   The file to count
+     * @param format The format of the file
+     * @param column The index of the column to match
+     * @param value  The value to count
+     * @return the number of data records where the column has the given value, or UNSUPPORTED
+     * @throws IOException when the file can not be read
+     */
+    public static long countWhere(File file, CsvFormat format, int column, String value) throws IOException {
+        if (Compression.of(file).isCompressed()) {
+            return UNSUPPORTED;
+        }
+        MappedCsvCounter counter = new MappedCsvCounter(MappedFile.map(file), (byte) format.getSeparator());
+        Chunk header = counter.new Chunk(0, 0, -1, null);
+        long dataStart = header.record(0);
+        if (header.unsupported) {
+            return UNSUPPORTED;
+        }
+        return counter.count(dataStart, column, value.getBytes(format.getCharset()));
+    }
+
+    private long count(long start, int column, byte[] value) {
+        if (start >= file.size()) {
+            return 0;
+        }
+        Chunk chunk = ForkJoinPool.commonPool().invoke(new Chunk(start, file.size(), column, value));
+        return chunk.unsupported ? UNSUPPORTED : chunk.matches;
+    }
+
+    /**
+     * Counts the records that start in [from, to). The last record may extend beyond 'to'.
+     */
+    private final class Chunk extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final int column;
+        private final byte[] value;
+        private long matches;
+        private boolean unsupported;
+
+        private Chunk(long from, long to, int column, byte[] value) {
+            this.from = from;
+            this.to = to;
+            this.column = column;
+            this.value = value;
+        }
+
+        @Override
+        protected Chunk compute() {
+            if (to - from <= CHUNK_SIZE) {
+                scan();
+                return this;
+            }
+            long middle = from + (to - from) / 2;
+            Chunk second = new Chunk(middle, to, column, value);
+            second.fork();
+            Chunk first = new Chunk(from, middle, column, value).compute();
+            second.join();
+            first.matches += second.matches;
+            first.unsupported |= second.unsupported;
+            return first;
+        }
+
+        private void scan() {
+            long position = from;
+            while (position > 0 && position < to && file.get(position - 1) != '\n') {
+                position++;
+            }
+            while (position < to && !unsupported) {
+                position = record(position);
+            }
+        }
+
+        /**
+         * Scan one record, counting it when it matches
+         *
+         * @return the start of the next record
+         */
+        private long record(long position) {
+            long size = file.size();
+            int field = 0;
+            boolean match = column < 0;
+            while (true) {
+                boolean compare = field == column;
+                int length = 0;
+                boolean equal = compare;
+                if (position < size && file.get(position) == QUOTE) {
+                    position++;
+                    while (true) {
+                        if (position >= size) {
+                            unsupported = true;
+                            return size;
+                        }
+                        byte b = file.get(position++);
+                        if (b == QUOTE) {
+                            if (position < size && file.get(position) == QUOTE) {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        } else if (b == '\n' || b == '\r') {
+                            unsupported = true;
+                            return size;
+                        }
+                        if (equal) {
+                            equal = length < value.length && value[length] == b;
+                        }
+                        length++;
+                    }
+                }
+                byte end = 0;
+                while (position < size) {
+                    byte b = file.get(position++);
+                    if (b == separator || b == '\n') {
+                        end = b;
+                        break;
+                    }
+                    if (b == '\r') {
+                        if (position < size && file.get(position) == '\n') {
+                            continue;
+                        }
+                        unsupported = true;
+                        return size;
+                    }
+                    if (b == QUOTE) {
+                        // quotes within a field are literal to the tokenizer, but may hide a quoted line break here
+                        unsupported = true;
+                        return size;
+                    }
+                    if (equal) {
+                        equal = length < value.length && value[length] == b;
+                    }
+                    length++;
+                }
+                if (compare) {
+                    match = equal && length == value.length;
+                }
+                if (end != separator) {
+                    if (match) {
+                        matches++;
+                    }
+                    return position;
+                }
+                field++;
+            }
+        }
+    }
+}
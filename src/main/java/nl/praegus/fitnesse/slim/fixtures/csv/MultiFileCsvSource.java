@@ -0,0 +1,175 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import nl.praegus.fitnesse.slim.fixtures.util.PartitionPool;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The parts of a file set (see {@link CsvFileSet}) as one csv file: the header once, followed by the data rows of
+ * each part in order. Parts are opened, searched and counted in parallel. All non-empty parts must have the same
+ * header; empty parts are ignored.
+ */
+public class MultiFileCsvSource implements CsvSource {
+    private final List<CsvSource> parts;
+    private final String[] header;
+    private int[] dataRows;
+
+    /**
+     * @param files  The parts, in order
+     * @param opener Gives the source to use for a part (e.g. cached or streaming)
+     * @throws IllegalArgumentException when parts have different headers
+     */
+    public MultiFileCsvSource(List<File> files, Function<File, CsvSource> opener) {
+        List<CsvSource> opened = PartitionPool.map(files, opener);
+        List<String[]> headers = PartitionPool.map(opened, CsvSource::header);
+        parts = new ArrayList<>(opened.size());
+        String[] first = null;
+        File firstFile = null;
+        for (int i = 0; i < opened.size(); i++) {
+            String[] partHeader = headers.get(i);
+            if (partHeader == null || partHeader.length == 0) {
+                continue;
+            }
+            if (first == null) {
+                first = partHeader;
+                firstFile = files.get(i);
+            } else if (!Arrays.equals(first, partHeader)) {
+                throw new IllegalArgumentException("Header of " + files.get(i).getName()
+                        + " differs from header of " + firstFile.getName());
+            }
+            parts.add(opened.get(i));
+        }
+        header = first == null ? new String[0] : first;
+    }
+
+    @Override
+    public String[] header() {
+        return header;
+    }
+
+    @Override
+    public int numberOfRows() {
+        if (parts.isEmpty()) {
+            return 0;
+        }
+        int rows = 1;
+        for (int partRows : dataRows()) {
+            rows += partRows;
+        }
+        return rows;
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        if (rowNumber == 0) {
+            return parts.isEmpty() ? null : header;
+        }
+        int remaining = rowNumber;
+        int[] rows = dataRows();
+        for (int i = 0; i < rows.length; i++) {
+            if (remaining <= rows[i]) {
+                return parts.get(i).row(remaining);
+            }
+            remaining -= rows[i];
+        }
+        return null;
+    }
+
+    /**
+     * The first match is looked up in all parts at once. For later matches the parts are counted first, so that only
+     * the part holding the match is searched.
+     */
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        if (occurrence < 1) {
+            return null;
+        }
+        if (occurrence == 1) {
+            for (String[] row : PartitionPool.map(parts, part -> part.firstRowWhere(column, value))) {
+                if (row != null) {
+                    return row;
+                }
+            }
+            return null;
+        }
+        int remaining = occurrence;
+        List<Integer> counts = PartitionPool.map(parts, part -> part.countWhere(column, value));
+        for (int i = 0; i < counts.size(); i++) {
+            if (remaining <= counts.get(i)) {
+                return parts.get(i).nthRowWhere(column, value, remaining);
+            }
+            remaining -= counts.get(i);
+        }
+        return null;
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        int count = 0;
+        for (int partCount : PartitionPool.map(parts, part -> part.countWhere(column, value))) {
+            count += partCount;
+        }
+        return count;
+    }
+
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        if (occurrence < 1) {
+            return null;
+        }
+        int remaining = occurrence;
+        List<Integer> counts = PartitionPool.map(parts, part -> part.countMatching(column, condition));
+        for (int i = 0; i < counts.size(); i++) {
+            if (remaining <= counts.get(i)) {
+                return parts.get(i).nthRowMatching(column, condition, remaining);
+            }
+            remaining -= counts.get(i);
+        }
+        return null;
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        int count = 0;
+        for (int partCount : PartitionPool.map(parts, part -> part.countMatching(column, condition))) {
+            count += partCount;
+        }
+        return count;
+    }
+
+    @Override
+    public void buildIndex(int column) {
+        PartitionPool.map(parts, part -> {
+            part.buildIndex(column);
+            return null;
+        });
+    }
+
+    /**
+     * @return the number of parts that have a header
+     */
+    public int numberOfParts() {
+        return parts.size();
+    }
+
+    /**
+     * @param index The index of the part (0 is the first non-empty part)
+     * @return the part
+     */
+    public CsvSource part(int index) {
+        return parts.get(index);
+    }
+
+    private int[] dataRows() {
+        if (dataRows == null) {
+            List<Integer> counts = PartitionPool.map(parts, part -> Math.max(part.numberOfRows() - 1, 0));
+            dataRows = counts.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return dataRows;
+    }
+}
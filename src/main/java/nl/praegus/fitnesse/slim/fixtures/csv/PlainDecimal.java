@@ -0,0 +1,84 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+/**
+ * Parses plain decimal numbers (optional sign, digits, optional fraction) of at most 18 digits into an unscaled long
+ * and a scale, without creating objects. One instance is reused for many values; it is not thread-safe.
+ */
+final class PlainDecimal {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long unscaled;
+    private int scale;
+
+    /**
+     * @param value The text to parse
+     * @return false if the value is not such a number, in which case the previous result is kept
+     */
+    boolean parse(String value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        long digitsValue = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    return false;
+                }
+                digitsValue = digitsValue * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        unscaled = negative ? -digitsValue : digitsValue;
+        scale = Math.max(fractionDigits, 0);
+        return true;
+    }
+
+    /**
+     * Remove trailing zeros of the fraction, so 100.0 and 100 give the same result
+     */
+    void stripTrailingZeros() {
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+    }
+
+    long unscaled() {
+        return unscaled;
+    }
+
+    int scale() {
+        return scale;
+    }
+
+    /**
+     * @param exponent 0 to 18
+     * @return 10 to the power of the exponent
+     */
+    static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+}
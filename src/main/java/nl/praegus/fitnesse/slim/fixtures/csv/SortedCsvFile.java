@@ -0,0 +1,204 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import nl.praegus.fitnesse.slim.fixtures.util.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.function.Predicate;
+
+/**
+ * A csv file that is sorted on one of its columns. Lookups on that column binary-search the memory-mapped file:
+ * each step jumps to a byte offset, moves to the start of the next line and compares the key found there, so a
+ * lookup reads O(log n) lines and no index needs to be built. Other lookups stream the file.
+ * <p>
+ * Probing works on line starts, so (as for {@link MappedCsvCounter}) the file must be uncompressed, in an encoding
+ * where line breaks are single bytes, and must not have line breaks inside quoted values or bare \r line endings.
+ * When the file is not sorted on the column, lookups on it may miss rows.
+ */
+public class SortedCsvFile implements CsvSource {
+    private final File file;
+    private final CsvFormat format;
+    private final int column;
+    private final Comparator<String> order;
+    private final StreamingCsvFile rows;
+    private final String[] header;
+    private final long dataStart;
+
+    /**
+     * @param file   The file to read
+     * @param format The format of the file
+     * @param column The name of the column the file is sorted on
+     * @param order  The order of the values in that column
+     * @throws IOException              when the header can not be read
+     * @throws IllegalArgumentException when the file has no such column
+     */
+    public SortedCsvFile(File file, CsvFormat format, String column, Comparator<String> order) throws IOException {
+        this.file = file;
+        this.format = format;
+        this.order = order;
+        this.rows = new StreamingCsvFile(file, format);
+        try (CsvRecordScanner scanner = CsvRecordScanner.open(file, format)) {
+            long start = scanner.position();
+            long end = scanner.nextRecordEnd();
+            if (end < 0) {
+                header = new String[0];
+                dataStart = start;
+            } else {
+                MappedFile mapped = MappedFile.map(file);
+                header = parse(mapped, start, end);
+                dataStart = end;
+            }
+        }
+        this.column = indexOfColumn(column);
+        if (this.column < 0) {
+            throw new IllegalArgumentException("No column " + column);
+        }
+    }
+
+    /**
+     * @param file   The file to check
+     * @param format The format of the file
+     * @return whether lines of the file can be found by byte offset
+     * @throws IOException when the file can not be read
+     */
+    public static boolean supports(File file, CsvFormat format) throws IOException {
+        return MappedCsvCounter.supports(format) && file.isFile() && !Compression.of(file).isCompressed();
+    }
+
+    @Override
+    public String[] header() {
+        return header;
+    }
+
+    @Override
+    public int numberOfRows() {
+        return rows.numberOfRows();
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        return rows.row(rowNumber);
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        if (column != this.column) {
+            return rows.nthRowWhere(column, value, occurrence);
+        }
+        if (occurrence < 1) {
+            return null;
+        }
+        try {
+            MappedFile mapped = MappedFile.map(file);
+            int matches = 0;
+            for (long start = lowerBound(mapped, value); start < mapped.size(); start = lineEnd(mapped, start)) {
+                String[] row = parse(mapped, start, lineEnd(mapped, start));
+                if (order.compare(keyOf(row), value) != 0) {
+                    return null;
+                }
+                if (++matches == occurrence) {
+                    return row;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        if (column != this.column) {
+            return rows.countWhere(column, value);
+        }
+        try {
+            MappedFile mapped = MappedFile.map(file);
+            int count = 0;
+            for (long start = lowerBound(mapped, value); start < mapped.size(); start = lineEnd(mapped, start)) {
+                if (order.compare(keyOf(parse(mapped, start, lineEnd(mapped, start))), value) != 0) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        return rows.nthRowMatching(column, condition, occurrence);
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        return rows.countMatching(column, condition);
+    }
+
+    /**
+     * Binary search on byte offsets: low is always the start of a line after which all keys are at least the value
+     * (or not yet known), lines starting before low have smaller keys.
+     *
+     * @return the start of the first line with a key not less than the value, or the size of the file
+     */
+    private long lowerBound(MappedFile mapped, String value) throws IOException {
+        long low = dataStart;
+        long high = mapped.size();
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long start = lineStartFrom(mapped, middle);
+            if (start >= high) {
+                high = middle;
+                continue;
+            }
+            long end = lineEnd(mapped, start);
+            if (order.compare(keyOf(parse(mapped, start, end)), value) < 0) {
+                low = end;
+            } else {
+                high = start;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first line start at or after the position
+     */
+    private long lineStartFrom(MappedFile mapped, long position) {
+        long start = position;
+        if (start == dataStart) {
+            return start;
+        }
+        while (start < mapped.size() && mapped.get(start - 1) != '\n') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return the position just after the line break of the line starting at the given position
+     */
+    private static long lineEnd(MappedFile mapped, long start) {
+        long end = start;
+        while (end < mapped.size() && mapped.get(end) != '\n') {
+            end++;
+        }
+        return Math.min(end + 1, mapped.size());
+    }
+
+    private String[] parse(MappedFile mapped, long start, long end) throws IOException {
+        String line = new String(mapped.bytes(start, Math.toIntExact(end - start)), format.getCharset());
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(line), format.getSeparator(), line.length() + 1)) {
+            String[] values = tokenizer.next();
+            return values == null ? new String[]{""} : values;
+        }
+    }
+
+    private String keyOf(String[] row) {
+        return column < row.length ? row[column] : "";
+    }
+}
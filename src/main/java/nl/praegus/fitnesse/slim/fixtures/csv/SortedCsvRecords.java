@@ -0,0 +1,310 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The records of a csv file in order of their key, sorted within a memory budget. Records are buffered until the
+ * budget is used, and each full buffer is sorted and written to a temporary run file. The runs are then merged while
+ * reading. A file that fits in the budget is sorted in memory without writing anything.
+ * Records with equal keys keep their order in the file.
+ */
+final class SortedCsvRecords implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FAN_IN = 64;
+    private static final Comparator<Record> BY_KEY = Comparator.comparing(r -> r.key);
+
+    private final Source source;
+    private final List<File> runFiles;
+    private final int numberOfRuns;
+
+    private SortedCsvRecords(Source source, List<File> runFiles, int numberOfRuns) {
+        this.source = source;
+        this.runFiles = runFiles;
+        this.numberOfRuns = numberOfRuns;
+    }
+
+    /**
+     * Read and sort the remaining records of a tokenizer
+     *
+     * @param tokenizer    The records to sort, positioned after the header
+     * @param keyColumns   The columns that make up the key
+     * @param memoryBudget The (estimated) number of bytes records may take in memory
+     * @param tempDir      The directory for run files, or null for the default temporary directory
+     * @return the sorted records
+     * @throws IOException when the records can not be read, or runs can not be written
+     */
+    static SortedCsvRecords sort(CsvTokenizer tokenizer, int[] keyColumns, long memoryBudget, File tempDir) throws IOException {
+        List<File> runs = new ArrayList<>();
+        try {
+            List<Record> buffer = new ArrayList<>();
+            long used = 0;
+            String[] values;
+            while ((values = tokenizer.next()) != null) {
+                buffer.add(new Record(keyOf(values, keyColumns), values));
+                used += estimateSize(values);
+                if (used > memoryBudget) {
+                    runs.add(writeRun(buffer, tempDir));
+                    buffer.clear();
+                    used = 0;
+                }
+            }
+            buffer.sort(BY_KEY);
+            if (runs.isEmpty()) {
+                Iterator<Record> records = buffer.iterator();
+                return new SortedCsvRecords(() -> records.hasNext() ? records.next() : null, runs, 0);
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(writeRun(buffer, tempDir));
+            }
+            int numberOfRuns = runs.size();
+            while (runs.size() > MAX_FAN_IN) {
+                runs = mergePass(runs, keyColumns, tempDir);
+            }
+            return new SortedCsvRecords(new Merge(runs, keyColumns), runs, numberOfRuns);
+        } catch (IOException | RuntimeException e) {
+            delete(runs);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the next record in key order, or null when all records are read
+     * @throws IOException when a run can not be read
+     */
+    Record next() throws IOException {
+        return source.next();
+    }
+
+    /**
+     * @return the number of run files that were written, 0 if the records were sorted in memory
+     */
+    int numberOfRuns() {
+        return numberOfRuns;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            delete(runFiles);
+        }
+    }
+
+    /**
+     * @return the values of the key columns, separated by \u0000 when there is more than one
+     */
+    static String keyOf(String[] values, int[] keyColumns) {
+        if (keyColumns.length == 1) {
+            return valueOf(values, keyColumns[0]);
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                key.append('\u0000');
+            }
+            key.append(valueOf(values, keyColumns[i]));
+        }
+        return key.toString();
+    }
+
+    static String valueOf(String[] values, int column) {
+        return column < values.length ? values[column] : "";
+    }
+
+    /**
+     * A rough, deliberately generous estimate of the heap used by a record: the array, and per field a String
+     * header, its backing array and its characters.
+     */
+    static long estimateSize(String[] values) {
+        long size = 64 + 4L * values.length;
+        for (String value : values) {
+            size += 56 + 2L * value.length();
+        }
+        return size;
+    }
+
+    private static File writeRun(List<Record> records, File tempDir) throws IOException {
+        records.sort(BY_KEY);
+        File run = Files.createTempFile(tempDir == null ? null : tempDir.toPath(), "csv-sort", ".run").toFile();
+        try (RunWriter writer = new RunWriter(run)) {
+            for (Record record : records) {
+                writer.write(record.values);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merge consecutive groups of runs into single runs, so that no more than MAX_FAN_IN files are open at once
+     */
+    private static List<File> mergePass(List<File> runs, int[] keyColumns, File tempDir) throws IOException {
+        List<File> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<File> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+                File run = Files.createTempFile(tempDir == null ? null : tempDir.toPath(), "csv-sort", ".run").toFile();
+                merged.add(run);
+                try (Merge merge = new Merge(group, keyColumns); RunWriter writer = new RunWriter(run)) {
+                    Record record;
+                    while ((record = merge.next()) != null) {
+                        writer.write(record.values);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(merged);
+            throw e;
+        }
+        delete(runs);
+        return merged;
+    }
+
+    private static void delete(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    static final class Record {
+        final String key;
+        final String[] values;
+
+        private Record(String key, String[] values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    private interface Source extends Closeable {
+        Record next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Reads runs in key order. Equal keys are taken from the earliest run first, which keeps the order of the file.
+     */
+    private static final class Merge implements Source {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.<RunReader, String>comparing(r -> r.current.key).thenComparingInt(r -> r.order));
+        private final int[] keyColumns;
+
+        private Merge(List<File> runs, int[] keyColumns) throws IOException {
+            this.keyColumns = keyColumns;
+            try {
+                for (File run : runs) {
+                    RunReader reader = new RunReader(run, readers.size());
+                    readers.add(reader);
+                    if (reader.advance(keyColumns)) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public Record next() throws IOException {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                return null;
+            }
+            Record record = reader.current;
+            if (reader.advance(keyColumns)) {
+                queue.add(reader);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.input.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * A run file holds per record the number of fields, followed by each field as its UTF-8 length and bytes
+     */
+    private static final class RunWriter implements Closeable {
+        private final DataOutputStream output;
+
+        private RunWriter(File run) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE));
+        }
+
+        private void write(String[] values) throws IOException {
+            output.writeInt(values.length);
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    private static final class RunReader {
+        private final DataInputStream input;
+        private final int order;
+        private Record current;
+
+        private RunReader(File run, int order) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+            this.order = order;
+        }
+
+        private boolean advance(int[] keyColumns) throws IOException {
+            int length;
+            try {
+                length = input.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            current = new Record(keyOf(values, keyColumns), values);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Predicate;
+
+/**
+ * Reads a csv file row by row on every call, keeping at most one row in memory. Lookups stop reading as soon as
+ * the requested row is found. Counts are done in parallel on the memory-mapped file where the format allows it.
+ */
+public class StreamingCsvFile implements CsvSource {
+    private final File file;
+    private final CsvFormat format;
+
+    public StreamingCsvFile(File file, CsvFormat format) {
+        this.file = file;
+        this.format = format;
+    }
+
+    @Override
+    public String[] header() {
+        String[] header = row(0);
+        return header == null ? new String[0] : header;
+    }
+
+    @Override
+    public int numberOfRows() {
+        if (MappedCsvCounter.supports(format)) {
+            long count = mapped(() -> MappedCsvCounter.countRecords(file, format));
+            if (count != MappedCsvCounter.UNSUPPORTED) {
+                return Math.toIntExact(count);
+            }
+        }
+        int count = 0;
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            while (tokenizer.skip()) {
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        String[][] result = {null};
+        int[] current = {0};
+        scan(row -> {
+            if (current[0]++ == rowNumber) {
+                result[0] = row;
+                return false;
+            }
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        String[][] result = {null};
+        int[] matches = {0};
+        scanData(row -> {
+            if (matches(row, column, value) && ++matches[0] == occurrence) {
+                result[0] = row;
+                return false;
+            }
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        if (MappedCsvCounter.supports(format)) {
+            long count = mapped(() -> MappedCsvCounter.countWhere(file, format, column, value));
+            if (count != MappedCsvCounter.UNSUPPORTED) {
+                return Math.toIntExact(count);
+            }
+        }
+        int count = 0;
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            tokenizer.skip();
+            // one array for all rows, so the tokenizer reuses its slots
+            int[] columns = {column};
+            String[] values;
+            while ((values = tokenizer.next(columns)) != null) {
+                if (value.equals(values[0])) {
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        String[][] result = {null};
+        int[] matches = {0};
+        scanData(row -> {
+            if (column < row.length && condition.test(row[column]) && ++matches[0] == occurrence) {
+                result[0] = row;
+                return false;
+            }
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        int count = 0;
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            tokenizer.skip();
+            // one array for all rows, so the tokenizer reuses its slots
+            int[] columns = {column};
+            String[] values;
+            while ((values = tokenizer.next(columns)) != null) {
+                if (values[0] != null && condition.test(values[0])) {
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    private void scanData(Predicate<String[]> visitor) {
+        boolean[] header = {true};
+        scan(row -> {
+            if (header[0]) {
+                header[0] = false;
+                return true;
+            }
+            return visitor.test(row);
+        });
+    }
+
+    /**
+     * Offer each row to the visitor, until the visitor returns false or the end of the file is reached
+     */
+    private void scan(Predicate<String[]> visitor) {
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] row;
+            while ((row = tokenizer.next()) != null) {
+                if (!visitor.test(row)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long mapped(MappedCount count) {
+        try {
+            return count.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean matches(String[] row, int column, String value) {
+        return column < row.length && row[column].equals(value);
+    }
+
+    @FunctionalInterface
+    private interface MappedCount {
+        long count() throws IOException;
+    }
+}
@@ -0,0 +1,89 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive int codes to distinct Strings. Uses an open addressing hash table of codes, so the only
+ * per-value overhead besides the String itself is a few ints.
+ */
+public final class StringDictionary {
+    private static final int NONE = -1;
+
+    private String[] values = new String[16];
+    private int[] table = newTable(32);
+    private int size;
+
+    /**
+     * @param value The value to encode
+     * @return the code of the value, a new code if it was not in the dictionary yet
+     */
+    public int add(String value) {
+        int slot = slotOf(value);
+        if (table[slot] != NONE) {
+            return table[slot];
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(16, size * 2));
+        }
+        values[size] = value;
+        table[slot] = size;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @param value The value to look up
+     * @return the code of the value, or -1 if it is not in the dictionary
+     */
+    public int codeOf(String value) {
+        return table[slotOf(value)];
+    }
+
+    public String valueOf(int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Release unused capacity once all values are added
+     */
+    public void trim() {
+        values = Arrays.copyOf(values, size);
+    }
+
+    private int slotOf(String value) {
+        int mask = table.length - 1;
+        int slot = spread(value.hashCode()) & mask;
+        while (table[slot] != NONE && !values[table[slot]].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        table = newTable(table.length * 2);
+        int mask = table.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = spread(values[code].hashCode()) & mask;
+            while (table[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = code;
+        }
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, NONE);
+        return table;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
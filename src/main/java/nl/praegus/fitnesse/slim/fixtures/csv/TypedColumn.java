@@ -0,0 +1,198 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * The values of a typed csv column as a long per row: int, long and decimal values as unscaled longs of the
+ * column's scale (the largest number of decimals in the column), dates as epoch days. Range lookups compare these
+ * longs, so values are parsed once when the file is read instead of on every lookup.
+ */
+final class TypedColumn {
+    /**
+     * The key of an empty cell. No value can have this key: numbers have at most 18 digits.
+     */
+    static final long NONE = Long.MIN_VALUE;
+
+    private final CsvColumnType type;
+    private final int scale;
+    private final long[] keys;
+
+    private TypedColumn(CsvColumnType type, int scale, long[] keys) {
+        this.type = type;
+        this.scale = scale;
+        this.keys = keys;
+    }
+
+    CsvColumnType type() {
+        return type;
+    }
+
+    /**
+     * @return the number of data rows with a key in the range
+     */
+    int count(ValueRange range) {
+        long[] bounds = bounds(range);
+        if (bounds == null) {
+            return 0;
+        }
+        long low = bounds[0];
+        long high = bounds[1];
+        int count = 0;
+        for (long key : keys) {
+            if (key >= low && key <= high) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the index (0 is the first data row) of the nth row with a key in the range, or -1 if there are fewer
+     */
+    int nth(ValueRange range, int occurrence) {
+        long[] bounds = bounds(range);
+        if (bounds == null || occurrence < 1) {
+            return -1;
+        }
+        long low = bounds[0];
+        long high = bounds[1];
+        int matches = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] >= low && keys[i] <= high && ++matches == occurrence) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long[] bounds(ValueRange range) {
+        long[] bounds = range.keys(type, scale);
+        if (bounds != null && bounds[0] == NONE) {
+            bounds[0] = NONE + 1;
+        }
+        return bounds;
+    }
+
+    /**
+     * Collects the values of a column, either checking them against a declared type or inferring the narrowest type
+     * that fits all of them (int, long, decimal or date; text when none does).
+     */
+    static final class Builder {
+        private final String name;
+        private final CsvColumnType declared;
+        private final PlainDecimal parsed = new PlainDecimal();
+        private CsvColumnType type;
+        private int scale;
+        private long[] keys = newKeys(0, 1024);
+
+        /**
+         * @param name     The name of the column, for error messages
+         * @param declared The type of the column, or null to infer it
+         */
+        Builder(String name, CsvColumnType declared) {
+            this.name = name;
+            this.declared = declared;
+            this.type = declared;
+        }
+
+        /**
+         * @param row   The index of the data row
+         * @param value The value of the column, or null if the row has no such column
+         * @throws IllegalArgumentException when the value does not match the declared type
+         */
+        void add(int row, String value) {
+            if (type == CsvColumnType.TEXT || value == null || value.isEmpty()) {
+                return;
+            }
+            boolean added = type == CsvColumnType.DATE
+                    ? addDate(row, value)
+                    : addNumber(row, value) || type == null && addDate(row, value);
+            if (!added) {
+                if (declared != null) {
+                    throw new IllegalArgumentException("Not a valid " + declared + " in column " + name + ": " + value);
+                }
+                type = CsvColumnType.TEXT;
+                keys = null;
+            }
+        }
+
+        /**
+         * @param rows The number of data rows
+         * @return the column, or null when it is text (or has only empty cells)
+         */
+        TypedColumn build(int rows) {
+            if (type == null || type == CsvColumnType.TEXT) {
+                return null;
+            }
+            if (keys.length != rows) {
+                long[] all = newKeys(0, rows);
+                System.arraycopy(keys, 0, all, 0, Math.min(keys.length, rows));
+                keys = all;
+            }
+            return new TypedColumn(type, scale, keys);
+        }
+
+        private boolean addNumber(int row, String value) {
+            if (!parsed.parse(value)) {
+                return false;
+            }
+            parsed.stripTrailingZeros();
+            long unscaled = parsed.unscaled();
+            int valueScale = parsed.scale();
+            CsvColumnType needed = valueScale > 0 ? CsvColumnType.DECIMAL
+                    : unscaled == (int) unscaled ? CsvColumnType.INT : CsvColumnType.LONG;
+            if (type == null || declared == null && needed.compareTo(type) > 0) {
+                type = needed;
+            } else if (needed.compareTo(type) > 0) {
+                return false;
+            }
+            try {
+                if (valueScale > scale) {
+                    rescale(valueScale);
+                }
+                set(row, Math.multiplyExact(unscaled, PlainDecimal.powerOfTen(scale - valueScale)));
+                return true;
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
+        private boolean addDate(int row, String value) {
+            try {
+                long day = LocalDate.parse(value).toEpochDay();
+                type = CsvColumnType.DATE;
+                set(row, day);
+                return true;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+
+        private void rescale(int newScale) {
+            long factor = PlainDecimal.powerOfTen(newScale - scale);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != NONE) {
+                    keys[i] = Math.multiplyExact(keys[i], factor);
+                }
+            }
+            scale = newScale;
+        }
+
+        private void set(int row, long key) {
+            if (row >= keys.length) {
+                long[] grown = newKeys(keys.length, Math.max(row + 1, keys.length * 2));
+                System.arraycopy(keys, 0, grown, 0, keys.length);
+                keys = grown;
+            }
+            keys[row] = key;
+        }
+
+        private static long[] newKeys(int from, int length) {
+            long[] keys = new long[length];
+            Arrays.fill(keys, from, length, NONE);
+            return keys;
+        }
+    }
+}
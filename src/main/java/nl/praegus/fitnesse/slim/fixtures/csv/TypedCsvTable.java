@@ -0,0 +1,160 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A csv source with typed columns: int, long, decimal and date columns are kept as a long per row (see
+ * {@link TypedColumn}), declared up front or inferred from the values. On those columns lookups compare values
+ * instead of text (100.0 finds 100) and range lookups scan the longs without parsing. Rows themselves, with the
+ * values as they appear in the file, come from the underlying source.
+ */
+public class TypedCsvTable implements CsvSource {
+    private final CsvSource rows;
+    private final TypedColumn[] columns;
+
+    private TypedCsvTable(CsvSource rows, TypedColumn[] columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Read the typed columns of a file
+     *
+     * @param file     The file to read
+     * @param format   The separator and encoding of the file
+     * @param rows     The source for the rows of the file
+     * @param declared The types of columns by name. Other columns are text, unless types are inferred
+     * @param infer    Whether to infer the types of columns that are not declared
+     * @return the typed table
+     * @throws IOException              when the file can not be read
+     * @throws IllegalArgumentException when a declared column is missing or has a value that does not match its type
+     */
+    public static TypedCsvTable read(File file, CsvFormat format, CsvSource rows,
+                                     Map<String, CsvColumnType> declared, boolean infer) throws IOException {
+        try (CsvTokenizer tokenizer = format.open(file)) {
+            String[] header = tokenizer.next();
+            if (header == null) {
+                return new TypedCsvTable(rows, new TypedColumn[0]);
+            }
+            for (String column : declared.keySet()) {
+                if (!Arrays.asList(header).contains(column)) {
+                    throw new IllegalArgumentException("No column " + column);
+                }
+            }
+            List<Integer> positions = new ArrayList<>();
+            List<TypedColumn.Builder> builders = new ArrayList<>();
+            for (int i = 0; i < header.length; i++) {
+                CsvColumnType type = declared.get(header[i]);
+                if (type != CsvColumnType.TEXT && (type != null || infer) && !positions.contains(i)) {
+                    positions.add(i);
+                    builders.add(new TypedColumn.Builder(header[i], type));
+                }
+            }
+            int[] projection = positions.stream().mapToInt(Integer::intValue).toArray();
+            int row = 0;
+            if (projection.length > 0) {
+                String[] values;
+                while ((values = tokenizer.next(projection)) != null) {
+                    for (int i = 0; i < projection.length; i++) {
+                        builders.get(i).add(row, values[i]);
+                    }
+                    row++;
+                }
+            }
+            TypedColumn[] columns = new TypedColumn[header.length];
+            for (int i = 0; i < projection.length; i++) {
+                columns[projection[i]] = builders.get(i).build(row);
+            }
+            return new TypedCsvTable(rows, columns);
+        }
+    }
+
+    /**
+     * @param column The index of the column
+     * @return the declared or inferred type of the column
+     */
+    public CsvColumnType columnType(int column) {
+        TypedColumn typed = typed(column);
+        return typed == null ? CsvColumnType.TEXT : typed.type();
+    }
+
+    @Override
+    public String[] header() {
+        return rows.header();
+    }
+
+    @Override
+    public int numberOfRows() {
+        return rows.numberOfRows();
+    }
+
+    @Override
+    public String[] row(int rowNumber) {
+        return rows.row(rowNumber);
+    }
+
+    @Override
+    public String[] nthRowWhere(int column, String value, int occurrence) {
+        if (typed(column) == null || value.isEmpty()) {
+            return rows.nthRowWhere(column, value, occurrence);
+        }
+        ValueRange range = equalTo(value);
+        return range == null ? null : nthRowMatching(column, range, occurrence);
+    }
+
+    @Override
+    public int countWhere(int column, String value) {
+        if (typed(column) == null || value.isEmpty()) {
+            return rows.countWhere(column, value);
+        }
+        ValueRange range = equalTo(value);
+        return range == null ? 0 : countMatching(column, range);
+    }
+
+    @Override
+    public String[] nthRowMatching(int column, Predicate<String> condition, int occurrence) {
+        TypedColumn typed = typed(column);
+        if (typed == null || !(condition instanceof ValueRange)) {
+            return rows.nthRowMatching(column, condition, occurrence);
+        }
+        int index = typed.nth((ValueRange) condition, occurrence);
+        return index < 0 ? null : rows.row(index + 1);
+    }
+
+    @Override
+    public int countMatching(int column, Predicate<String> condition) {
+        TypedColumn typed = typed(column);
+        if (typed == null || !(condition instanceof ValueRange)) {
+            return rows.countMatching(column, condition);
+        }
+        return typed.count((ValueRange) condition);
+    }
+
+    @Override
+    public void buildIndex(int column) {
+        if (typed(column) == null) {
+            rows.buildIndex(column);
+        }
+    }
+
+    private TypedColumn typed(int column) {
+        return column >= 0 && column < columns.length ? columns[column] : null;
+    }
+
+    /**
+     * @return the range of values equal to the value, or null when it is not a number or date (so nothing matches)
+     */
+    private static ValueRange equalTo(String value) {
+        try {
+            return ValueRange.equalTo(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
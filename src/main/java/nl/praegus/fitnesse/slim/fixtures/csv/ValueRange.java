@@ -0,0 +1,186 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.Predicate;
+
+/**
+ * A range of numbers or of dates that values of a column are matched against, e.g. 'greater than 100' or
+ * '2024-01-01 up to 2024-03-31'. Numbers are compared by value, so 100.0 equals 100. A range of numbers does not
+ * match dates or text and vice versa.
+ * <p>
+ * As a predicate it parses each value it is given. Typed columns (see {@link TypedCsvTable}) instead convert the
+ * range once to bounds on their stored keys.
+ */
+public final class ValueRange implements Predicate<String> {
+    private final boolean dates;
+    private final BigDecimal low;
+    private final boolean lowInclusive;
+    private final BigDecimal high;
+    private final boolean highInclusive;
+
+    private ValueRange(boolean dates, BigDecimal low, boolean lowInclusive, BigDecimal high, boolean highInclusive) {
+        this.dates = dates;
+        this.low = low;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highInclusive = highInclusive;
+    }
+
+    /**
+     * @param value A number or ISO date
+     * @return the range of values equal to the value
+     * @throws IllegalArgumentException when the value is not a number or date
+     */
+    public static ValueRange equalTo(String value) {
+        return between(value, value);
+    }
+
+    public static ValueRange greaterThan(String value) {
+        Bound bound = Bound.parse(value);
+        return new ValueRange(bound.date, bound.value, false, null, false);
+    }
+
+    public static ValueRange lessThan(String value) {
+        Bound bound = Bound.parse(value);
+        return new ValueRange(bound.date, null, false, bound.value, false);
+    }
+
+    /**
+     * @param low  The lowest value in the range
+     * @param high The highest value in the range
+     * @return the range including both bounds
+     * @throws IllegalArgumentException when the bounds are not both numbers or both dates
+     */
+    public static ValueRange between(String low, String high) {
+        Bound lowBound = Bound.parse(low);
+        Bound highBound = Bound.parse(high);
+        if (lowBound.date != highBound.date) {
+            throw new IllegalArgumentException("Can not compare a number with a date: " + low + " and " + high);
+        }
+        return new ValueRange(lowBound.date, lowBound.value, true, highBound.value, true);
+    }
+
+    /**
+     * @param value     A number or ISO date
+     * @param tolerance The maximum difference with the value (in days for dates)
+     * @return the range including value - tolerance and value + tolerance
+     * @throws IllegalArgumentException when the value is not a number or date, or the tolerance not a positive number
+     */
+    public static ValueRange within(String value, String tolerance) {
+        Bound bound = Bound.parse(value);
+        Bound margin = Bound.parse(tolerance);
+        if (margin.date || margin.value.signum() < 0) {
+            throw new IllegalArgumentException("Not a valid tolerance: " + tolerance);
+        }
+        return new ValueRange(bound.date, bound.value.subtract(margin.value), true, bound.value.add(margin.value), true);
+    }
+
+    @Override
+    public boolean test(String text) {
+        if (text == null || text.isEmpty()) {
+            return false;
+        }
+        BigDecimal value = dates ? Bound.dateValue(text) : Bound.numberValue(text);
+        if (value == null) {
+            return false;
+        }
+        if (low != null) {
+            int compared = value.compareTo(low);
+            if (compared < 0 || compared == 0 && !lowInclusive) {
+                return false;
+            }
+        }
+        if (high != null) {
+            int compared = value.compareTo(high);
+            return compared < 0 || compared == 0 && highInclusive;
+        }
+        return true;
+    }
+
+    /**
+     * Convert the range to bounds on the keys of a typed column: numbers stored as unscaled longs of the column's
+     * scale, or dates stored as epoch days.
+     *
+     * @param type  The type of the column
+     * @param scale The number of decimals of the keys
+     * @return the lowest and highest matching key, or null when no key can match
+     */
+    long[] keys(CsvColumnType type, int scale) {
+        if (type == CsvColumnType.TEXT || dates != (type == CsvColumnType.DATE)) {
+            return null;
+        }
+        BigDecimal lowest = BigDecimal.valueOf(Long.MIN_VALUE);
+        BigDecimal highest = BigDecimal.valueOf(Long.MAX_VALUE);
+        BigDecimal lowKey = lowest;
+        if (low != null) {
+            BigDecimal scaled = low.movePointRight(scale);
+            lowKey = lowInclusive
+                    ? scaled.setScale(0, RoundingMode.CEILING)
+                    : scaled.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+        }
+        BigDecimal highKey = highest;
+        if (high != null) {
+            BigDecimal scaled = high.movePointRight(scale);
+            highKey = highInclusive
+                    ? scaled.setScale(0, RoundingMode.FLOOR)
+                    : scaled.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+        }
+        if (lowKey.compareTo(highKey) > 0 || lowKey.compareTo(highest) > 0 || highKey.compareTo(lowest) < 0) {
+            return null;
+        }
+        return new long[]{lowKey.max(lowest).longValueExact(), highKey.min(highest).longValueExact()};
+    }
+
+    private static final class Bound {
+        private final boolean date;
+        private final BigDecimal value;
+
+        private Bound(boolean date, BigDecimal value) {
+            this.date = date;
+            this.value = value;
+        }
+
+        private static Bound parse(String text) {
+            String trimmed = text.trim();
+            if (trimmed.isEmpty()) {
+                throw new IllegalArgumentException("Not a number or date: '" + text + "'");
+            }
+            BigDecimal number = numberValue(trimmed);
+            if (number != null) {
+                return new Bound(false, number);
+            }
+            BigDecimal date = dateValue(trimmed);
+            if (date != null) {
+                return new Bound(true, date);
+            }
+            throw new IllegalArgumentException("Not a number or date: " + text);
+        }
+
+        private static BigDecimal numberValue(String text) {
+            PlainDecimal parsed = new PlainDecimal();
+            if (parsed.parse(text)) {
+                return BigDecimal.valueOf(parsed.unscaled(), parsed.scale());
+            }
+            char first = text.charAt(0);
+            if (first != '-' && first != '+' && first != '.' && (first < '0' || first > '9')) {
+                return null;
+            }
+            try {
+                return new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static BigDecimal dateValue(String text) {
+            try {
+                return BigDecimal.valueOf(LocalDate.parse(text).toEpochDay());
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * A template for the values of a generated column: literal text with ${...} expressions, e.g.
+ * {@code INV-${sequence(1000)}-${oneOf(NL,BE,DE)}}. Expressions:
+ * <ul>
+ *     <li>{@code row}: the number of the data row, starting at 1</li>
+ *     <li>{@code sequence(start)} or {@code sequence(start,step)}: start + (row - 1) * step</li>
+ *     <li>{@code oneOf(a,b,c)}: one of the values, at random</li>
+ *     <li>{@code int(min,max)}: a random whole number from min up to and including max</li>
+ *     <li>{@code decimal(min,max,scale)}: a random number from min to max with scale decimals</li>
+ *     <li>{@code date(from,to)}: a random date (yyyy-MM-dd) from from up to and including to</li>
+ *     <li>{@code text(length)}: random lower case letters</li>
+ *     <li>{@code uuid}: a random UUID</li>
+ * </ul>
+ * Templates are parsed once; generating a value only appends to a StringBuilder.
+ */
+public final class ValueTemplate {
+    private final List<Part> parts;
+
+    private ValueTemplate(List<Part> parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * @param template The template text
+     * @return the parsed template
+     * @throws IllegalArgumentException when an expression is not valid
+     */
+    public static ValueTemplate parse(String template) {
+        List<Part> parts = new ArrayList<>();
+        int position = 0;
+        while (position < template.length()) {
+            int start = template.indexOf("${", position);
+            if (start < 0) {
+                parts.add(literal(template.substring(position)));
+                break;
+            }
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated expression in template: " + template);
+            }
+            if (start > position) {
+                parts.add(literal(template.substring(position, start)));
+            }
+            parts.add(expression(template.substring(start + 2, end).trim()));
+            position = end + 1;
+        }
+        return new ValueTemplate(parts);
+    }
+
+    /**
+     * @param out    Receives the value
+     * @param row    The number of the data row (starting at 1)
+     * @param random The random source of the row's chunk
+     */
+    public void appendTo(StringBuilder out, long row, SplittableRandom random) {
+        for (Part part : parts) {
+            part.appendTo(out, row, random);
+        }
+    }
+
+    private static Part literal(String text) {
+        return (out, row, random) -> out.append(text);
+    }
+
+    private static Part expression(String expression) {
+        int open = expression.indexOf('(');
+        String name = open < 0 ? expression : expression.substring(0, open).trim();
+        String[] args = open < 0 ? new String[0] : arguments(expression, open);
+        try {
+            switch (name) {
+                case "row":
+                    checkArguments(args, 0, 0, expression);
+                    return (out, row, random) -> out.append(row);
+                case "sequence":
+                    checkArguments(args, 1, 2, expression);
+                    long start = Long.parseLong(args[0]);
+                    long step = args.length > 1 ? Long.parseLong(args[1]) : 1;
+                    return (out, row, random) -> out.append(start + (row - 1) * step);
+                case "oneOf":
+                    checkArguments(args, 1, Integer.MAX_VALUE, expression);
+                    return (out, row, random) -> out.append(args[random.nextInt(args.length)]);
+                case "int":
+                    checkArguments(args, 2, 2, expression);
+                    long min = Long.parseLong(args[0]);
+                    long bound = Math.addExact(Long.parseLong(args[1]), 1);
+                    checkRange(min, bound, expression);
+                    return (out, row, random) -> out.append(random.nextLong(min, bound));
+                case "decimal":
+                    checkArguments(args, 3, 3, expression);
+                    int scale = Integer.parseInt(args[2]);
+                    long low = new BigDecimal(args[0]).movePointRight(scale).longValueExact();
+                    long high = Math.addExact(new BigDecimal(args[1]).movePointRight(scale).longValueExact(), 1);
+                    checkRange(low, high, expression);
+                    return (out, row, random) -> out.append(BigDecimal.valueOf(random.nextLong(low, high), scale).toPlainString());
+                case "date":
+                    checkArguments(args, 2, 2, expression);
+                    long from = LocalDate.parse(args[0]).toEpochDay();
+                    long to = LocalDate.parse(args[1]).toEpochDay() + 1;
+                    checkRange(from, to, expression);
+                    return (out, row, random) -> out.append(LocalDate.ofEpochDay(random.nextLong(from, to)));
+                case "text":
+                    checkArguments(args, 1, 1, expression);
+                    int length = Integer.parseInt(args[0]);
+                    return (out, row, random) -> {
+                        for (int i = 0; i < length; i++) {
+                            out.append((char) ('a' + random.nextInt(26)));
+                        }
+                    };
+                case "uuid":
+                    checkArguments(args, 0, 0, expression);
+                    return (out, row, random) -> out.append(new UUID(random.nextLong(), random.nextLong()));
+                default:
+                    throw new IllegalArgumentException("Unknown expression in template: ${" + expression + "}");
+            }
+        } catch (NumberFormatException | DateTimeParseException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid expression in template: ${" + expression + "}", e);
+        }
+    }
+
+    private static String[] arguments(String expression, int open) {
+        if (!expression.endsWith(")")) {
+            throw new IllegalArgumentException("Invalid expression in template: ${" + expression + "}");
+        }
+        String list = expression.substring(open + 1, expression.length() - 1);
+        if (list.trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] args = list.split(",", -1);
+        for (int i = 0; i < args.length; i++) {
+            args[i] = args[i].trim();
+        }
+        return args;
+    }
+
+    private static void checkArguments(String[] args, int min, int max, String expression) {
+        if (args.length < min || args.length > max) {
+            throw new IllegalArgumentException("Wrong number of arguments in template: ${" + expression + "}");
+        }
+    }
+
+    private static void checkRange(long origin, long bound, String expression) {
+        if (bound <= origin) {
+            throw new IllegalArgumentException("Empty range in template: ${" + expression + "}");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Part {
+        void appendTo(StringBuilder out, long row, SplittableRandom random);
+    }
+}
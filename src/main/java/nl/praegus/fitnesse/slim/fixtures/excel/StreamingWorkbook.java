@@ -0,0 +1,400 @@
+package nl.praegus.fitnesse.slim.fixtures.excel;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only access to the cells of an xlsx file without loading the workbook: the shared strings and styles are read
+ * once, and sheets are parsed with SAX each time a row is needed that was not read yet. A parse stops as soon as the
+ * rows are found, and keeps a window of rows from the requested row on, so reading several cells of a row, or of
+ * the next rows, parses the sheet once. Only the values that are used are formatted. Memory is bounded by the shared
+ * strings and the window, whatever the number of rows.
+ * <p>
+ * Values are formatted as Excel shows them, as by {@link DataFormatter}. Formulas give their cached result.
+ */
+public final class StreamingWorkbook implements Closeable {
+    static final int WINDOW_ROWS = 1024;
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable strings;
+    private final StylesTable styles;
+    private final Map<String, PackagePart> sheets = new LinkedHashMap<>();
+    private final DataFormatter formatter = new DataFormatter();
+    private String windowSheet;
+    private int windowStart;
+    private int windowEnd;
+    private final Map<Integer, List<String>> window = new LinkedHashMap<>();
+
+    private StreamingWorkbook(OPCPackage pkg) throws IOException, SAXException, OpenXML4JException {
+        this.pkg = pkg;
+        XSSFReader reader = new XSSFReader(pkg);
+        strings = new ReadOnlySharedStringsTable(pkg);
+        styles = reader.getStylesTable();
+        XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (iterator.hasNext()) {
+            iterator.next().close();
+            sheets.put(iterator.getSheetName(), iterator.getSheetPart());
+        }
+    }
+
+    /**
+     * @param file An xlsx file
+     * @return the workbook, with the file opened read-only
+     * @throws IOException when the file can not be read or is not an xlsx file
+     */
+    public static StreamingWorkbook open(File file) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException | RuntimeException e) {
+            throw new IOException("Not an xlsx file: " + file, e);
+        }
+        try {
+            return new StreamingWorkbook(pkg);
+        } catch (SAXException | OpenXML4JException | RuntimeException e) {
+            pkg.revert();
+            throw new IOException("Not an xlsx file: " + file, e);
+        }
+    }
+
+    /**
+     * @return the names of the sheets, in workbook order
+     */
+    public List<String> sheetNames() {
+        return new ArrayList<>(sheets.keySet());
+    }
+
+    /**
+     * @param sheet The name of a sheet, or null for the first sheet
+     * @param row   The row number (0-based)
+     * @param col   The column number (0-based)
+     * @return the formatted value of the cell, empty for a cell without value
+     * @throws IOException when the sheet can not be read
+     */
+    public String value(String sheet, int row, int col) throws IOException {
+        List<String> values = row(sheet, row);
+        return col < values.size() ? values.get(col) : "";
+    }
+
+    /**
+     * @param sheet The name of a sheet, or null for the first sheet
+     * @param row   The row number (0-based)
+     * @return the formatted values of the cells of the row, up to its last cell with a value
+     * @throws IOException when the sheet can not be read
+     */
+    public List<String> row(String sheet, int row) throws IOException {
+        String name = sheetName(sheet);
+        if (!name.equals(windowSheet) || row < windowStart || row >= windowEnd) {
+            readWindow(name, row, -1, null);
+            // rows before the first row that was kept are not in the sheet
+            windowStart = row;
+        }
+        return window.getOrDefault(row, Collections.emptyList());
+    }
+
+    /**
+     * @param sheet The name of a sheet, or null for the first sheet
+     * @param col   The column number (0-based)
+     * @param value The formatted value to look for
+     * @return the number of the first row with the value in the column (0-based), or -1 if there is none
+     * @throws IOException when the sheet can not be read
+     */
+    public int findRow(String sheet, int col, String value) throws IOException {
+        int row = readWindow(sheetName(sheet), 0, col, value);
+        if (row < 0) {
+            // no row was kept, but the sheet may have rows
+            windowSheet = null;
+        }
+        return row;
+    }
+
+    @Override
+    public void close() {
+        pkg.revert();
+    }
+
+    private String sheetName(String sheet) {
+        if (sheet == null) {
+            if (sheets.isEmpty()) {
+                throw new IllegalArgumentException("Workbook has no sheets");
+            }
+            return sheets.keySet().iterator().next();
+        }
+        if (!sheets.containsKey(sheet)) {
+            throw new IllegalArgumentException("No sheet " + sheet + " (sheets are " + sheets.keySet() + ")");
+        }
+        return sheet;
+    }
+
+    /**
+     * Parse the sheet up to the first row from a row number on that matches, and keep it and the rows after it in
+     * the window
+     *
+     * @param matchCol   The column to look in, or -1 for the first row from the row number on
+     * @param matchValue The value to look for in the column
+     * @return the number of the first matching row, or -1 if there is none
+     */
+    private int readWindow(String sheet, int from, int matchCol, String matchValue) throws IOException {
+        window.clear();
+        windowSheet = null;
+        WindowHandler handler = new WindowHandler(from, matchCol, matchValue);
+        try (InputStream in = sheets.get(sheet).getInputStream()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(in));
+            handler.end = Integer.MAX_VALUE;
+        } catch (WindowFull e) {
+            // the window has all rows it can have
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Sheet " + sheet + " could not be read", e);
+        }
+        windowSheet = sheet;
+        windowStart = handler.start < 0 ? from : handler.start;
+        windowEnd = handler.end;
+        return handler.start;
+    }
+
+    /**
+     * @param type  The type of a cell (its t attribute)
+     * @param raw   The text of its v element, or of its inline string
+     * @param style The index of its style, or -1 for none
+     * @return the value as Excel shows it
+     */
+    private String format(String type, String raw, int style) {
+        switch (type) {
+            case "s":
+                return strings.getItemAt(Integer.parseInt(raw.trim())).getString();
+            case "b":
+                return "1".equals(raw) ? "TRUE" : "FALSE";
+            case "n":
+                if (raw.isEmpty()) {
+                    return "";
+                }
+                XSSFCellStyle cellStyle = style < 0 || styles == null ? null : styles.getStyleAt(style);
+                if (cellStyle == null || cellStyle.getDataFormat() == 0) {
+                    return isSmallWholeNumber(raw) ? raw : formatter.formatRawCellContents(Double.parseDouble(raw), 0, "General");
+                }
+                short format = cellStyle.getDataFormat();
+                String formatString = cellStyle.getDataFormatString();
+                if (formatString == null) {
+                    formatString = BuiltinFormats.getBuiltinFormat(format);
+                }
+                return formatter.formatRawCellContents(Double.parseDouble(raw), format, formatString);
+            default:
+                // str (formula text), inlineStr, e (error) and d (ISO date) are shown as they are
+                return raw;
+        }
+    }
+
+    /**
+     * Whole numbers of up to 11 digits are shown as they are in the General format, without formatting them
+     */
+    private static boolean isSmallWholeNumber(String raw) {
+        int first = raw.startsWith("-") ? 1 : 0;
+        if (raw.length() == first || raw.length() - first > 11 || raw.charAt(first) == '0' && !"0".equals(raw)) {
+            return false;
+        }
+        for (int i = first; i < raw.length(); i++) {
+            if (raw.charAt(i) < '0' || raw.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the rows of a sheet. The raw values of the cells of a row are kept until the end of the row, and are
+     * only formatted when they are needed: in the column that is looked in until the first match, and in all columns
+     * of the rows kept in the window.
+     */
+    private final class WindowHandler extends DefaultHandler {
+        private final int from;
+        private final int matchCol;
+        private final String matchValue;
+        private final List<RawCell> cells = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private int start = -1;
+        private int end;
+        private int row = -1;
+        private int col;
+        private String type;
+        private int style;
+        private boolean needed;
+        private boolean capture;
+        private boolean inlineString;
+        private boolean phonetic;
+
+        private WindowHandler(int from, int matchCol, String matchValue) {
+            this.from = from;
+            this.matchCol = matchCol;
+            this.matchValue = matchValue;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    row = r == null ? row + 1 : Integer.parseInt(r) - 1;
+                    cells.clear();
+                    col = -1;
+                    break;
+                case "c":
+                    String reference = attributes.getValue("r");
+                    col = reference == null ? col + 1 : column(reference);
+                    needed = row >= from;
+                    if (needed) {
+                        String t = attributes.getValue("t");
+                        type = t == null ? "n" : t;
+                        String s = attributes.getValue("s");
+                        style = s == null ? -1 : Integer.parseInt(s);
+                        text.setLength(0);
+                    }
+                    break;
+                case "v":
+                    capture = needed;
+                    break;
+                case "is":
+                    inlineString = true;
+                    break;
+                case "rPh":
+                    phonetic = true;
+                    break;
+                case "t":
+                    capture = needed && inlineString && !phonetic;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    capture = false;
+                    break;
+                case "is":
+                    inlineString = false;
+                    break;
+                case "rPh":
+                    phonetic = false;
+                    break;
+                case "c":
+                    if (needed) {
+                        cells.add(new RawCell(col, type, text.toString(), style));
+                    }
+                    break;
+                case "row":
+                    endRow();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int offset, int length) {
+            if (capture) {
+                text.append(ch, offset, length);
+            }
+        }
+
+        private void endRow() {
+            if (row < from) {
+                return;
+            }
+            if (start < 0 && (matchCol < 0 || matches())) {
+                start = row;
+            }
+            if (start >= 0) {
+                if (row >= start + WINDOW_ROWS) {
+                    end = start + WINDOW_ROWS;
+                    throw new WindowFull();
+                }
+                window.put(row, values());
+            }
+        }
+
+        private boolean matches() {
+            for (RawCell cell : cells) {
+                if (cell.col == matchCol) {
+                    return matchValue.equals(format(cell.type, cell.raw, cell.style));
+                }
+            }
+            return false;
+        }
+
+        private List<String> values() {
+            String[] values = new String[cells.isEmpty() ? 0 : cells.get(cells.size() - 1).col + 1];
+            Arrays.fill(values, "");
+            for (RawCell cell : cells) {
+                values[cell.col] = format(cell.type, cell.raw, cell.style);
+            }
+            return Collections.unmodifiableList(Arrays.asList(values));
+        }
+
+        /**
+         * The column of a reference like AB12, without parsing the row
+         */
+        private int column(String reference) {
+            int column = 0;
+            for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+                column = column * 26 + Character.toUpperCase(reference.charAt(i)) - 'A' + 1;
+            }
+            return column - 1;
+        }
+    }
+
+    private static final class RawCell {
+        private final int col;
+        private final String type;
+        private final String raw;
+        private final int style;
+
+        private RawCell(int col, String type, String raw, int style) {
+            this.col = col;
+            this.type = type;
+            this.raw = raw;
+            this.style = style;
+        }
+    }
+
+    /**
+     * Stops parsing a sheet once the window is full
+     */
+    private static final class WindowFull extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private WindowFull() {
+            super(null, null, false, false);
+        }
+    }
+}
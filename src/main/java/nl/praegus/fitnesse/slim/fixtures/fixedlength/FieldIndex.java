@@ -0,0 +1,186 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import nl.praegus.fitnesse.slim.fixtures.util.PartitionPool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A hash index on the value of a field in every line of a fixed length file. The file is scanned once, in parallel
+ * chunks, to compute the hash code of the value in each line; after that a lookup only decodes the lines whose value
+ * has the same hash code, whatever the size of the file.
+ * <p>
+ * Only hash codes, offsets and line numbers are kept (about 24 bytes per line), not the values themselves. Lines are
+ * chained per hash bucket in file order, so lines with the same value are found in file order, and a value that is
+ * on many lines does not slow down building the index.
+ */
+public final class FieldIndex {
+    private final FixedLengthFile file;
+    private final Function<String, String> key;
+    private final int[] hashes;
+    private final long[] offsets;
+    private final int[] lineNumbers;
+    private final int[] next;
+    private final int[] buckets;
+    private final int mask;
+
+    private FieldIndex(FixedLengthFile file, Function<String, String> key, int size) {
+        this.file = file;
+        this.key = key;
+        hashes = new int[size];
+        offsets = new long[size];
+        lineNumbers = new int[size];
+        next = new int[size];
+        int capacity = 16;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        buckets = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @param file The file to index
+     * @param key  The value to index of a line, or null to leave the line out of the index
+     * @return the index
+     */
+    public static FieldIndex build(FixedLengthFile file, Function<String, String> key) {
+        List<Chunk> chunks = PartitionPool.map(file.chunks(), range -> scan(file, range[0], range[1], key));
+        int size = 0;
+        for (Chunk chunk : chunks) {
+            size = Math.addExact(size, chunk.size);
+        }
+        FieldIndex index = new FieldIndex(file, key, size);
+        int entry = 0;
+        int firstLine = 1;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                index.add(entry++, chunk.hashes[i], chunk.offsets[i], firstLine + chunk.lines[i]);
+            }
+            firstLine += chunk.numberOfLines;
+        }
+        index.link();
+        return index;
+    }
+
+    /**
+     * @param value The value to look for
+     * @return the number of the first line with the value (1-based), or 0 if there is none
+     */
+    public int firstLineNumber(String value) {
+        return lineNumber(value, 1);
+    }
+
+    /**
+     * @param value      The value to look for
+     * @param occurrence The number of the line among the lines with the value (1-based)
+     * @return the number of the line (1-based), or 0 if there are fewer lines with the value
+     */
+    public int lineNumber(String value, int occurrence) {
+        int entry = find(value, occurrence);
+        return entry < 0 ? 0 : lineNumbers[entry];
+    }
+
+    /**
+     * @param value      The value to look for
+     * @param occurrence The number of the line among the lines with the value (1-based)
+     * @return the line, or null if there are fewer lines with the value
+     */
+    public String line(String value, int occurrence) {
+        int entry = find(value, occurrence);
+        return entry < 0 ? null : file.lineAt(offsets[entry]);
+    }
+
+    /**
+     * @param value The value to look for
+     * @return the number of lines with the value
+     */
+    public int count(String value) {
+        int hash = value.hashCode();
+        int count = 0;
+        for (int entry = buckets[bucketOf(hash)] - 1; entry >= 0; entry = next[entry] - 1) {
+            if (matches(entry, hash, value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int find(String value, int occurrence) {
+        if (occurrence < 1) {
+            return -1;
+        }
+        int hash = value.hashCode();
+        int found = 0;
+        for (int entry = buckets[bucketOf(hash)] - 1; entry >= 0; entry = next[entry] - 1) {
+            if (matches(entry, hash, value) && ++found == occurrence) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lines with the same hash code as the value are compared on their value, as hash codes are not unique
+     */
+    private boolean matches(int entry, int hash, String value) {
+        return hashes[entry] == hash && value.equals(key.apply(file.lineAt(offsets[entry])));
+    }
+
+    private void add(int entry, int hash, long offset, int lineNumber) {
+        hashes[entry] = hash;
+        offsets[entry] = offset;
+        lineNumbers[entry] = lineNumber;
+    }
+
+    /**
+     * Entries are put in front of their bucket's chain from last to first, so each chain is in file order
+     */
+    private void link() {
+        for (int entry = hashes.length - 1; entry >= 0; entry--) {
+            int bucket = bucketOf(hashes[entry]);
+            next[entry] = buckets[bucket];
+            buckets[bucket] = entry + 1;
+        }
+    }
+
+    private int bucketOf(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static Chunk scan(FixedLengthFile file, long from, long to, Function<String, String> key) {
+        Chunk chunk = new Chunk();
+        long position = from;
+        while (position < to) {
+            long end = file.lineEnd(position);
+            String value = key.apply(file.decode(position, end));
+            if (value != null) {
+                chunk.add(value.hashCode(), position, chunk.numberOfLines);
+            }
+            chunk.numberOfLines++;
+            position = file.nextLine(end);
+        }
+        return chunk;
+    }
+
+    private static final class Chunk {
+        private int[] hashes = new int[1024];
+        private long[] offsets = new long[1024];
+        private int[] lines = new int[1024];
+        private int size;
+        private int numberOfLines;
+
+        private void add(int hash, long offset, int line) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            hashes[size] = hash;
+            offsets[size] = offset;
+            lines[size] = line;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The type of a field in a record layout:
+ * <ul>
+ * <li>text: any characters</li>
+ * <li>number: digits with an optional leading sign, e.g. 000123 or -42. The value has no leading zeros.</li>
+ * <li>decimal(n): a number with n implied decimals, e.g. 0012345 is 123.45 as decimal(2). Values with a decimal
+ * point are taken as they are.</li>
+ * <li>date(pattern): a date in a java.time pattern, e.g. date(yyyyMMdd). The value is the text of the field.</li>
+ * <li>zoned(n): a zoned decimal (COBOL DISPLAY number) with n implied decimals, whose last digit can carry the sign
+ * as an overpunched character, e.g. 0001234} is -123.40 as zoned(2).</li>
+ * <li>packed(n): a packed decimal (COBOL COMP-3) with n implied decimals: two digits per byte and a sign nibble.
+ * Its value is read from the bytes of the field, so its length is in bytes; it is never trimmed.</li>
+ * </ul>
+ * The decimals can be left out for number types: decimal, zoned and packed are then whole numbers.
+ * Fields of other types than text must not be blank.
+ */
+public final class FieldType {
+    public static final FieldType TEXT = new FieldType(Kind.TEXT, "text", 0, null);
+
+    private static final Pattern SPEC = Pattern.compile("\\s*(\\w+)\\s*(?:\\((.*)\\))?\\s*");
+    private static final Pattern NUMBER = Pattern.compile("[+-]?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+|\\d*\\.\\d+)");
+
+    private enum Kind {TEXT, NUMBER, DECIMAL, DATE, ZONED, PACKED}
+
+    private final Kind kind;
+    private final String spec;
+    private final int scale;
+    private final DateTimeFormatter dateFormat;
+
+    private FieldType(Kind kind, String spec, int scale, DateTimeFormatter dateFormat) {
+        this.kind = kind;
+        this.spec = spec;
+        this.scale = scale;
+        this.dateFormat = dateFormat;
+    }
+
+    /**
+     * @param spec The type, e.g. text, number, decimal(2) or date(yyyyMMdd)
+     * @return the type
+     * @throws IllegalArgumentException when the type is not known or its argument is not valid
+     */
+    public static FieldType of(String spec) {
+        Matcher matcher = SPEC.matcher(spec);
+        if (!matcher.matches()) {
+            throw unknown(spec);
+        }
+        String name = matcher.group(1).toLowerCase(Locale.ROOT);
+        String argument = matcher.group(2) == null ? null : matcher.group(2).trim();
+        switch (name) {
+            case "text":
+                if (argument != null) {
+                    throw invalid(spec);
+                }
+                return TEXT;
+            case "number":
+                if (argument != null) {
+                    throw invalid(spec);
+                }
+                return new FieldType(Kind.NUMBER, "number", 0, null);
+            case "decimal":
+            case "zoned":
+            case "packed":
+                if (argument != null && !argument.matches("\\d{1,2}")) {
+                    throw invalid(spec);
+                }
+                int scale = argument == null ? 0 : Integer.parseInt(argument);
+                Kind kind = Kind.valueOf(name.toUpperCase(Locale.ROOT));
+                return new FieldType(kind, name + "(" + scale + ")", scale, null);
+            case "date":
+                if (argument == null || argument.isEmpty()) {
+                    throw invalid(spec);
+                }
+                try {
+                    // with a strict resolver 'y' (year of era) needs an era, 'u' (year) does not
+                    DateTimeFormatter format = DateTimeFormatter.ofPattern(argument.replace('y', 'u'), Locale.ROOT)
+                            .withResolverStyle(ResolverStyle.STRICT);
+                    return new FieldType(Kind.DATE, "date(" + argument + ")", 0, format);
+                } catch (IllegalArgumentException e) {
+                    throw invalid(spec);
+                }
+            default:
+                throw unknown(spec);
+        }
+    }
+
+    /**
+     * @return true for number, decimal, zoned and packed types
+     */
+    public boolean isNumeric() {
+        return kind != Kind.TEXT && kind != Kind.DATE;
+    }
+
+    /**
+     * @return true if values are read from the bytes of the field instead of its text (packed decimals)
+     */
+    public boolean isBinary() {
+        return kind == Kind.PACKED;
+    }
+
+    /**
+     * @param text The (trimmed) text of a field
+     * @return true if the text is a value of this type (never for binary types)
+     */
+    public boolean isValid(String text) {
+        switch (kind) {
+            case ZONED:
+                return MainframeDecimals.zoned(text, scale) != null;
+            case PACKED:
+                return false;
+            case NUMBER:
+                return NUMBER.matcher(text).matches();
+            case DECIMAL:
+                return DECIMAL.matcher(text).matches();
+            case DATE:
+                try {
+                    dateFormat.parse(text);
+                    return true;
+                } catch (DateTimeParseException e) {
+                    return false;
+                }
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @param text The (trimmed) text of a field
+     * @return the value of the field, or the text itself when it is not a value of this type
+     */
+    public String valueOf(String text) {
+        if (kind == Kind.ZONED) {
+            BigDecimal number = MainframeDecimals.zoned(text, scale);
+            return number == null ? text : number.toPlainString();
+        }
+        if (!isNumeric() || !isValid(text)) {
+            return text;
+        }
+        BigDecimal number = new BigDecimal(text);
+        if (kind == Kind.DECIMAL && text.indexOf('.') < 0) {
+            number = number.movePointLeft(scale);
+        }
+        return number.toPlainString();
+    }
+
+    /**
+     * @param bytes The bytes of a field of a binary type
+     * @return the value of the field, or null if the bytes are not a value of this type
+     */
+    String valueOf(byte[] bytes) {
+        BigDecimal number = MainframeDecimals.packed(bytes, scale);
+        return number == null ? null : number.toPlainString();
+    }
+
+    /**
+     * Format a value for a field of this type, the reverse of {@link #valueOf(String)}: numbers are written with
+     * leading zeros to fill the field (and without decimal point for implied decimals), dates in the pattern of the
+     * type. Dates can be given in the pattern or as yyyy-MM-dd. Text is returned as it is.
+     *
+     * @param value    The value
+     * @param length   The length of the field
+     * @param encoding The encoding of the file, to turn the bytes of binary fields into characters
+     * @return the text of the field, which is shorter than the field only for text
+     * @throws IllegalArgumentException when the value is not of this type or does not fit in the field
+     */
+    String format(String value, int length, Charset encoding) {
+        switch (kind) {
+            case TEXT:
+                return value;
+            case DATE:
+                if (isValid(value)) {
+                    return value;
+                }
+                try {
+                    return dateFormat.format(LocalDate.parse(value));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("'" + value + "' is not a " + spec, e);
+                }
+            default:
+                return formatNumber(value, length, encoding);
+        }
+    }
+
+    private String formatNumber(String value, int length, Charset encoding) {
+        BigDecimal number;
+        try {
+            number = new BigDecimal(value.trim()).setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("'" + value + "' is not a " + spec, e);
+        }
+        String digits = number.unscaledValue().abs().toString();
+        boolean negative = number.signum() < 0;
+        int size = kind == Kind.PACKED ? length * 2 - 1 : negative && kind != Kind.ZONED ? length - 1 : length;
+        if (digits.length() > size) {
+            throw new IllegalArgumentException("'" + value + "' does not fit in a " + spec + " of length " + length);
+        }
+        StringBuilder text = new StringBuilder(length);
+        if (negative && kind != Kind.ZONED && kind != Kind.PACKED) {
+            text.append('-');
+        }
+        for (int i = digits.length(); i < size; i++) {
+            text.append('0');
+        }
+        text.append(digits);
+        if (kind == Kind.ZONED && negative) {
+            int last = text.length() - 1;
+            text.setCharAt(last, MainframeDecimals.NEGATIVE_OVERPUNCH.charAt(text.charAt(last) - '0'));
+        }
+        if (kind == Kind.PACKED) {
+            return new String(MainframeDecimals.pack(text, negative), encoding);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static IllegalArgumentException unknown(String spec) {
+        return new IllegalArgumentException("Unknown field type: " + spec
+                + " (use text, number, decimal(decimals), zoned(decimals), packed(decimals) or date(pattern))");
+    }
+
+    private static IllegalArgumentException invalid(String spec) {
+        return new IllegalArgumentException("Invalid field type: " + spec);
+    }
+}
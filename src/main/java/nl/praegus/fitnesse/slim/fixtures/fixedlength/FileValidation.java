@@ -0,0 +1,284 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import nl.praegus.fitnesse.slim.fixtures.util.PartitionPool;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks every line of a fixed length file against its record layout: the length of the line and the type of each
+ * field. Optionally the first line is checked against a header layout and the last line against a trailer layout,
+ * whose fields can hold the number of records or the total of a field of all records.
+ * <p>
+ * The mapped file is split into chunks at line starts, and the chunks are checked in parallel. All violations are
+ * counted, and the first ones (by line number) are kept as examples.
+ */
+public final class FileValidation {
+    private final RecordLayout layout;
+    private RecordLayout header;
+    private RecordLayout trailer;
+    private int lineLength;
+    private int maxExamples = 10;
+    private final List<String[]> totals = new ArrayList<>();
+    private String countField;
+
+    /**
+     * @param layout The layout of the records
+     */
+    public FileValidation(RecordLayout layout) {
+        this.layout = layout;
+    }
+
+    public FileValidation withHeader(RecordLayout header) {
+        this.header = header;
+        return this;
+    }
+
+    public FileValidation withTrailer(RecordLayout trailer) {
+        this.trailer = trailer;
+        return this;
+    }
+
+    /**
+     * @param lineLength The length every line must have, or 0 for the record length of its layout
+     */
+    public FileValidation withLineLength(int lineLength) {
+        this.lineLength = lineLength;
+        return this;
+    }
+
+    public FileValidation withMaxExamples(int maxExamples) {
+        this.maxExamples = maxExamples;
+        return this;
+    }
+
+    /**
+     * @param trailerField A field of the trailer layout
+     * @param field        A numeric field of the record layout, of which the trailer field holds the total
+     */
+    public FileValidation withTotal(String trailerField, String field) {
+        totals.add(new String[]{trailerField, field});
+        return this;
+    }
+
+    /**
+     * @param trailerField A field of the trailer layout that holds the number of records (header and trailer excluded)
+     */
+    public FileValidation withRecordCount(String trailerField) {
+        this.countField = trailerField;
+        return this;
+    }
+
+    /**
+     * @param file The file to check
+     * @return the violations found
+     * @throws IllegalArgumentException when a total or count is checked without a trailer layout, or refers to an
+     *                                  unknown field
+     */
+    public Result validate(FixedLengthFile file) {
+        int[] totalFields = new int[totals.size()];
+        for (int i = 0; i < totalFields.length; i++) {
+            totalFields[i] = fieldOf(layout, totals.get(i)[1]);
+            if (!layout.type(totalFields[i]).isNumeric()) {
+                throw new IllegalArgumentException("Field " + totals.get(i)[1] + " is not a number or decimal");
+            }
+        }
+        if (trailer != null) {
+            for (String[] total : totals) {
+                fieldOf(trailer, total[0]);
+            }
+            if (countField != null) {
+                fieldOf(trailer, countField);
+            }
+        } else if (!totals.isEmpty() || countField != null) {
+            throw new IllegalArgumentException("Totals and counts are checked against a trailer layout, but none is set");
+        }
+
+        List<long[]> chunks = file.chunks();
+        List<Chunk> results = PartitionPool.map(chunks, range -> check(file, range[0], range[1], totalFields));
+
+        Result result = new Result();
+        BigDecimal[] sums = new BigDecimal[totalFields.length];
+        Arrays.fill(sums, BigDecimal.ZERO);
+        long records = 0;
+        String trailerLine = null;
+        for (Chunk chunk : results) {
+            for (Violation example : chunk.examples) {
+                if (result.examples.size() < maxExamples) {
+                    result.examples.add("line " + (result.lines + example.line) + ": " + example.message);
+                }
+            }
+            result.lines += chunk.lines;
+            result.violations += chunk.violations;
+            records += chunk.records;
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] = sums[i].add(chunk.sums[i]);
+            }
+            if (chunk.trailerLine != null) {
+                trailerLine = chunk.trailerLine;
+            }
+        }
+        if (trailerLine != null) {
+            checkTrailer(result, trailerLine, sums, records);
+        }
+        return result;
+    }
+
+    private void checkTrailer(Result result, String trailerLine, BigDecimal[] sums, long records) {
+        for (int i = 0; i < sums.length; i++) {
+            String trailerField = totals.get(i)[0];
+            String value = trailer.value(trailerLine, fieldOf(trailer, trailerField));
+            if (!sameNumber(value, sums[i])) {
+                result.addTrailerViolation(trailerField + " is " + value + ", total of " + totals.get(i)[1]
+                        + " is " + sums[i].toPlainString(), maxExamples);
+            }
+        }
+        if (countField != null) {
+            String value = trailer.value(trailerLine, fieldOf(trailer, countField));
+            if (!sameNumber(value, BigDecimal.valueOf(records))) {
+                result.addTrailerViolation(countField + " is " + value + ", number of records is " + records, maxExamples);
+            }
+        }
+    }
+
+    private Chunk check(FixedLengthFile file, long from, long to, int[] totalFields) {
+        Chunk chunk = new Chunk(totalFields.length);
+        long size = file.size();
+        long position = from;
+        while (position < to) {
+            long end = file.lineEnd(position);
+            long next = file.nextLine(end);
+            String line = file.decode(position, end);
+            chunk.lines++;
+            if (position == 0 && header != null) {
+                checkLine(chunk, header, line);
+            } else if (next >= size && trailer != null) {
+                checkLine(chunk, trailer, line);
+                chunk.trailerLine = line;
+            } else {
+                chunk.records++;
+                checkLine(chunk, layout, line);
+                for (int i = 0; i < totalFields.length; i++) {
+                    if (layout.isValid(line, totalFields[i])) {
+                        chunk.sums[i] = chunk.sums[i].add(new BigDecimal(layout.value(line, totalFields[i])));
+                    }
+                }
+            }
+            position = next;
+        }
+        return chunk;
+    }
+
+    private void checkLine(Chunk chunk, RecordLayout recordLayout, String line) {
+        int expected = lineLength > 0 ? lineLength : recordLayout.recordLength();
+        if (line.length() != expected) {
+            chunk.add("length " + line.length() + " instead of " + expected, maxExamples);
+        }
+        for (int i = 0; i < recordLayout.numberOfFields(); i++) {
+            if (!recordLayout.isValid(line, i)) {
+                chunk.add(recordLayout.fieldName(i) + " is not a " + recordLayout.type(i) + ": '"
+                        + recordLayout.value(line, i) + "'", maxExamples);
+            }
+        }
+    }
+
+    private static int fieldOf(RecordLayout recordLayout, String field) {
+        int index = recordLayout.indexOf(field);
+        if (index < 0) {
+            throw new IllegalArgumentException("No field " + field + " in layout " + recordLayout.getName());
+        }
+        return index;
+    }
+
+    private static boolean sameNumber(String value, BigDecimal number) {
+        try {
+            return new BigDecimal(value).compareTo(number) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The outcome of a validation
+     */
+    public static final class Result {
+        private long lines;
+        private long violations;
+        private final List<String> examples = new ArrayList<>();
+
+        public long numberOfLines() {
+            return lines;
+        }
+
+        public long numberOfViolations() {
+            return violations;
+        }
+
+        /**
+         * @return the first violations, e.g. "line 12: amount is not a decimal(2): 'abc'"
+         */
+        public List<String> examples() {
+            return Collections.unmodifiableList(examples);
+        }
+
+        /**
+         * @return the number of lines and violations, followed by the examples on separate lines
+         */
+        public String summary() {
+            if (violations == 0) {
+                return lines + " lines, no violations";
+            }
+            StringBuilder summary = new StringBuilder()
+                    .append(violations).append(violations == 1 ? " violation" : " violations")
+                    .append(" in ").append(lines).append(" lines");
+            for (String example : examples) {
+                summary.append('\n').append(example);
+            }
+            if (violations > examples.size()) {
+                summary.append("\n...");
+            }
+            return summary.toString();
+        }
+
+        private void addTrailerViolation(String message, int maxExamples) {
+            violations++;
+            if (examples.size() < maxExamples) {
+                examples.add("trailer: " + message);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private long lines;
+        private long records;
+        private long violations;
+        private final List<Violation> examples = new ArrayList<>();
+        private final BigDecimal[] sums;
+        private String trailerLine;
+
+        private Chunk(int totals) {
+            sums = new BigDecimal[totals];
+            Arrays.fill(sums, BigDecimal.ZERO);
+        }
+
+        private void add(String message, int maxExamples) {
+            violations++;
+            if (examples.size() < maxExamples) {
+                examples.add(new Violation(lines, message));
+            }
+        }
+    }
+
+    private static final class Violation {
+        private final long line;
+        private final String message;
+
+        private Violation(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import nl.praegus.fitnesse.slim.fixtures.util.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The lines of a memory-mapped file, addressed by line number. The start of each line is found the first time a
+ * line at or beyond it is used, so only the part of the file up to the last line used is scanned, and memory is
+ * 8 bytes per scanned line whatever the length of the lines. Only the lines that are used are decoded.
+ * Lines end with \n, \r\n or \r, as with {@link java.nio.file.Files#lines}.
+ * <p>
+ * Files can also consist of records of a fixed number of bytes without line breaks, as mainframe extracts do. The
+ * records are then the lines, found by multiplication instead of scanning, and any single byte encoding (such as
+ * the EBCDIC code pages IBM037 and IBM1047) can be used.
+ * <p>
+ * The mapping is of the file as it was when it was opened; use {@link #isChanged()} to find out whether it must be
+ * opened again.
+ */
+public final class FixedLengthFile {
+    private static final int INITIAL_LINES = 1024;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    private final File file;
+    private final long lastModified;
+    private final MappedFile mapped;
+    private final Charset charset;
+    private final int recordLength;
+    private long[] starts = new long[INITIAL_LINES];
+    private int scannedLines;
+    private long scanPosition;
+
+    private FixedLengthFile(File file, Charset charset, int recordLength) throws IOException {
+        this.file = file;
+        // before mapping, so a change while mapping is seen as a change
+        lastModified = file.lastModified();
+        mapped = MappedFile.map(file);
+        this.charset = charset;
+        this.recordLength = recordLength;
+    }
+
+    /**
+     * Map a file. No lines are read yet.
+     *
+     * @param file    The file to read
+     * @param charset The encoding of the file, see {@link #supports(Charset)}
+     * @return the file
+     * @throws IOException when the file can not be read
+     */
+    public static FixedLengthFile open(File file, Charset charset) throws IOException {
+        if (!supports(charset)) {
+            throw new IllegalArgumentException("Files in " + charset + " can not be read line by line");
+        }
+        return new FixedLengthFile(file, charset, 0);
+    }
+
+    /**
+     * Map a file of records of a fixed length without line breaks. The last record may be shorter.
+     *
+     * @param file         The file to read
+     * @param charset      The encoding of the file, see {@link #supportsRecords(Charset)}
+     * @param recordLength The length of the records in bytes
+     * @return the file
+     * @throws IOException when the file can not be read
+     */
+    public static FixedLengthFile openRecords(File file, Charset charset, int recordLength) throws IOException {
+        if (recordLength < 1) {
+            throw new IllegalArgumentException("Record length must be positive");
+        }
+        if (!supportsRecords(charset)) {
+            throw new IllegalArgumentException("Records in " + charset + " can not be read byte by byte");
+        }
+        return new FixedLengthFile(file, charset, recordLength);
+    }
+
+    /**
+     * @param charset The encoding of a file
+     * @return true if line breaks are single, unambiguous bytes in the encoding
+     */
+    public static boolean supports(Charset charset) {
+        String name = charset.name();
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || name.startsWith("ISO-8859-")
+                || name.startsWith("windows-125");
+    }
+
+    /**
+     * @param charset The encoding of a file
+     * @return true if each character is a single byte in the encoding, so positions in records are byte positions
+     */
+    public static boolean supportsRecords(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+    /**
+     * @return true if the size or modification time of the file changed since it was opened, so the mapping and
+     * the line positions may no longer match its content
+     */
+    public boolean isChanged() {
+        return file.length() != mapped.size() || file.lastModified() != lastModified;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the number of lines, which scans the rest of the file
+     */
+    public synchronized int numberOfLines() {
+        if (recordLength > 0) {
+            return (int) ((mapped.size() + recordLength - 1) / recordLength);
+        }
+        scanTo(Integer.MAX_VALUE);
+        return scannedLines;
+    }
+
+    /**
+     * @param lineNumber The line number (1-based)
+     * @return the line without its line break, or null if the file has fewer lines
+     */
+    public String line(int lineNumber) {
+        long start = start(lineNumber);
+        if (start < 0) {
+            return null;
+        }
+        return lineAt(start);
+    }
+
+    /**
+     * @param lineNumber The line number (1-based)
+     * @return the offset of the first byte of the line, or -1 if the file has fewer lines
+     */
+    synchronized long start(int lineNumber) {
+        if (lineNumber < 1) {
+            return -1;
+        }
+        if (recordLength > 0) {
+            long start = (long) (lineNumber - 1) * recordLength;
+            return start < mapped.size() ? start : -1;
+        }
+        scanTo(lineNumber);
+        return lineNumber <= scannedLines ? starts[lineNumber - 1] : -1;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    long size() {
+        return mapped.size();
+    }
+
+    byte byteAt(long position) {
+        return mapped.get(position);
+    }
+
+    /**
+     * @param start The offset of the first byte of a line
+     * @return the text of the line
+     */
+    String lineAt(long start) {
+        return decode(start, lineEnd(start));
+    }
+
+    /**
+     * @param start The offset of the first byte of a line
+     * @param end   The offset of the line break ending the line
+     * @return the text of the line
+     */
+    String decode(long start, long end) {
+        return new String(mapped.bytes(start, (int) (end - start)), charset);
+    }
+
+    /**
+     * @param start The offset of the first byte of a line
+     * @return the offset of the line break ending the line, or the size of the file for the last line
+     */
+    long lineEnd(long start) {
+        long size = mapped.size();
+        if (recordLength > 0) {
+            return Math.min(start + recordLength, size);
+        }
+        long position = start;
+        while (position < size) {
+            byte b = mapped.get(position);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * @param end The offset of the line break ending a line
+     * @return the offset of the next line, after the line break (the same offset for records)
+     */
+    long nextLine(long end) {
+        if (recordLength > 0) {
+            return end;
+        }
+        if (end + 1 < mapped.size() && mapped.get(end) == '\r' && mapped.get(end + 1) == '\n') {
+            return end + 2;
+        }
+        return end + 1;
+    }
+
+    /**
+     * @param position An offset in the file
+     * @return the offset of the first line starting at or after the offset, or the size of the file if there is none
+     */
+    long lineStartFrom(long position) {
+        long size = mapped.size();
+        if (position <= 0) {
+            return 0;
+        }
+        if (recordLength > 0) {
+            return Math.min((position + recordLength - 1) / recordLength * recordLength, size);
+        }
+        long current = position;
+        byte previous = mapped.get(current - 1);
+        while (current < size) {
+            byte b = mapped.get(current);
+            if (previous == '\n' || (previous == '\r' && b != '\n')) {
+                return current;
+            }
+            previous = b;
+            current++;
+        }
+        return size;
+    }
+
+    /**
+     * Split the file into ranges of whole lines, to be read in parallel: a few per processor, of at least 1MB
+     *
+     * @return the start and end offset of each range
+     */
+    List<long[]> chunks() {
+        long size = mapped.size();
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = (int) Math.max(1, Math.min(processors * 4L, size / MIN_CHUNK_SIZE));
+        List<long[]> chunks = new ArrayList<>(count);
+        long start = 0;
+        for (int i = 1; i <= count; i++) {
+            long end = i == count ? size : lineStartFrom(size / count * i);
+            if (end > start) {
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new long[]{0, 0});
+        }
+        return chunks;
+    }
+
+    /**
+     * Find the starts of lines until the start of line number 'lines' is known or the end of the file is reached
+     */
+    private void scanTo(int lines) {
+        long size = mapped.size();
+        while (scannedLines < lines && scanPosition < size) {
+            if (scannedLines == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[scannedLines++] = scanPosition;
+            scanPosition = nextLine(lineEnd(scanPosition));
+        }
+    }
+}
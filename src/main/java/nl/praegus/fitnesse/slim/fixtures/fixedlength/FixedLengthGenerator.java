@@ -0,0 +1,206 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import nl.praegus.fitnesse.slim.fixtures.csv.ValueTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes fixed length files, from given records or with generated records. Values are padded and aligned to their
+ * fields by the {@link RecordLayout}. Generated records are formatted in chunks on all processors and the chunks are
+ * written to the file in order through a file channel, with a bounded number of chunks in memory at a time.
+ * <p>
+ * Records end with a line break, unless a record length is set: then they are padded to that length and written
+ * without line breaks, as mainframe files are. Each chunk has its own random source, derived from the seed and the
+ * number of the chunk, so a seed always gives the same file, however many threads are used.
+ */
+public final class FixedLengthGenerator {
+    static final int CHUNK_RECORDS = 8192;
+
+    private final RecordLayout layout;
+    private final Charset charset;
+    private final ValueTemplate[] templates;
+    private int recordLength;
+    private long seed;
+    private LongConsumer progress = written -> {
+    };
+
+    /**
+     * @param layout  The layout of the records
+     * @param charset The encoding of the file
+     */
+    public FixedLengthGenerator(RecordLayout layout, Charset charset) {
+        this.layout = layout;
+        this.charset = charset;
+        templates = new ValueTemplate[layout.numberOfFields()];
+    }
+
+    /**
+     * @param field    The name of a field of the layout
+     * @param template The template of its generated values, see {@link ValueTemplate}. Fields without a template
+     *                 are spaces.
+     * @return this generator
+     */
+    public FixedLengthGenerator withField(String field, ValueTemplate template) {
+        int index = layout.indexOf(field);
+        if (index < 0) {
+            throw new IllegalArgumentException("No field " + field + " in layout " + layout.getName());
+        }
+        templates[index] = template;
+        return this;
+    }
+
+    /**
+     * @param recordLength The length of the records, to write them without line breaks, or 0 for lines as long as
+     *                     the layout
+     * @return this generator
+     */
+    public FixedLengthGenerator withRecordLength(int recordLength) {
+        this.recordLength = recordLength;
+        return this;
+    }
+
+    public FixedLengthGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param progress Receives the number of records written after each chunk, on the writing thread
+     * @return this generator
+     */
+    public FixedLengthGenerator withProgress(LongConsumer progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Write a file with given records
+     *
+     * @param file    The file to (over)write
+     * @param records The values of each record by field index, null for fields without value
+     * @return the number of bytes written
+     * @throws IOException when the file can not be written
+     */
+    public long write(File file, List<String[]> records) throws IOException {
+        int length = length();
+        long bytes = 0;
+        try (FileChannel channel = open(file)) {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < records.size(); i++) {
+                appendRecord(out, records.get(i), length);
+                if ((i + 1) % CHUNK_RECORDS == 0 || i == records.size() - 1) {
+                    bytes += write(channel, out.toString().getBytes(charset));
+                    out.setLength(0);
+                    progress.accept(i + 1);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Write a file with a number of generated records
+     *
+     * @param file    The file to (over)write
+     * @param records The number of records
+     * @return the number of bytes written
+     * @throws IOException when the file can not be written
+     */
+    public long generate(File file, long records) throws IOException {
+        int length = length();
+        long chunks = (records + CHUNK_RECORDS - 1) / CHUNK_RECORDS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long bytes = 0;
+        try (FileChannel channel = open(file)) {
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            long next = 0;
+            long written = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < 2 * threads) {
+                    long chunk = next++;
+                    pending.add(pool.submit(() -> format(chunk, records, length)));
+                }
+                bytes += write(channel, pending.remove().get());
+                written = Math.min(written + CHUNK_RECORDS, records);
+                progress.accept(written);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw new IllegalArgumentException(e.getCause().getMessage(), e.getCause());
+            }
+            throw new IllegalStateException("Generating records failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating records", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return bytes;
+    }
+
+    private byte[] format(long chunk, long records, int length) {
+        SplittableRandom random = new SplittableRandom(seed ^ (chunk * 0x9E3779B97F4A7C15L));
+        long first = chunk * CHUNK_RECORDS + 1;
+        long last = Math.min(first + CHUNK_RECORDS - 1, records);
+        String[] values = new String[templates.length];
+        StringBuilder value = new StringBuilder();
+        StringBuilder out = new StringBuilder(CHUNK_RECORDS * (length + 1));
+        for (long record = first; record <= last; record++) {
+            for (int i = 0; i < templates.length; i++) {
+                if (templates[i] != null) {
+                    value.setLength(0);
+                    templates[i].appendTo(value, record, random);
+                    values[i] = value.toString();
+                }
+            }
+            appendRecord(out, values, length);
+        }
+        return out.toString().getBytes(charset);
+    }
+
+    private void appendRecord(StringBuilder out, String[] values, int length) {
+        layout.appendTo(out, values, length);
+        if (recordLength == 0) {
+            out.append('\n');
+        }
+    }
+
+    private int length() {
+        if (recordLength == 0) {
+            return layout.recordLength();
+        }
+        if (recordLength < layout.recordLength()) {
+            throw new IllegalArgumentException("Layout " + layout.getName() + " has length " + layout.recordLength()
+                    + ", which is more than the record length " + recordLength);
+        }
+        return recordLength;
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static int write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return bytes.length;
+    }
+}
@@ -0,0 +1,111 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Decoders for the decimal formats of mainframe (COBOL) records: packed decimals (COMP-3) and zoned decimals
+ * (DISPLAY numbers with an overpunched sign).
+ */
+final class MainframeDecimals {
+    static final String POSITIVE_OVERPUNCH = "{ABCDEFGHI";
+    static final String NEGATIVE_OVERPUNCH = "}JKLMNOPQR";
+
+    private MainframeDecimals() {
+    }
+
+    /**
+     * A packed decimal has two digits per byte (one per nibble), except for the last byte, whose low nibble is the
+     * sign: C, A, E or F for positive, D or B for negative.
+     *
+     * @param bytes The bytes of the field
+     * @param scale The number of implied decimals
+     * @return the value, or null if the bytes are not a packed decimal
+     */
+    static BigDecimal packed(byte[] bytes, int scale) {
+        if (bytes.length == 0) {
+            return null;
+        }
+        int sign = bytes[bytes.length - 1] & 0x0F;
+        if (sign < 0x0A) {
+            return null;
+        }
+        int digits = bytes.length * 2 - 1;
+        StringBuilder text = new StringBuilder(digits + 1);
+        if (sign == 0x0D || sign == 0x0B) {
+            text.append('-');
+        }
+        for (int i = 0; i < digits; i++) {
+            int nibble = (i % 2 == 0 ? bytes[i / 2] >> 4 : bytes[i / 2]) & 0x0F;
+            if (nibble > 9) {
+                return null;
+            }
+            text.append((char) ('0' + nibble));
+        }
+        return new BigDecimal(new BigInteger(text.toString()), scale);
+    }
+
+    /**
+     * @param digits   An odd number of digits
+     * @param negative Whether the number is negative
+     * @return the packed decimal: two digits per byte, and sign nibble C or D
+     */
+    static byte[] pack(CharSequence digits, boolean negative) {
+        byte[] bytes = new byte[(digits.length() + 1) / 2];
+        for (int i = 0; i < digits.length(); i++) {
+            int nibble = digits.charAt(i) - '0';
+            bytes[i / 2] |= i % 2 == 0 ? nibble << 4 : nibble;
+        }
+        bytes[bytes.length - 1] |= negative ? 0x0D : 0x0C;
+        return bytes;
+    }
+
+    /**
+     * A zoned decimal is a number of digits, of which the last one can carry the sign as an overpunched character:
+     * { and A-I for +0 to +9, } and J-R for -0 to -9. A last digit without sign is positive.
+     *
+     * @param text  The (decoded) text of the field
+     * @param scale The number of implied decimals
+     * @return the value, or null if the text is not a zoned decimal
+     */
+    static BigDecimal zoned(String text, int scale) {
+        int length = text.length();
+        if (length == 0) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(length + 1);
+        for (int i = 0; i < length - 1; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            digits.append(c);
+        }
+        char last = text.charAt(length - 1);
+        int positive = POSITIVE_OVERPUNCH.indexOf(last);
+        int negative = NEGATIVE_OVERPUNCH.indexOf(last);
+        if (last >= '0' && last <= '9') {
+            digits.append(last);
+        } else if (positive >= 0) {
+            digits.append((char) ('0' + positive));
+        } else if (negative >= 0) {
+            digits.insert(0, '-').append((char) ('0' + negative));
+        } else {
+            return null;
+        }
+        return new BigDecimal(new BigInteger(digits.toString()), scale);
+    }
+
+    /**
+     * @param bytes Bytes to show
+     * @return the bytes in hexadecimal, e.g. X'01234C'
+     */
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder("X'");
+        for (byte b : bytes) {
+            hex.append(Character.toUpperCase(Character.forDigit((b >> 4) & 0x0F, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(b & 0x0F, 16)));
+        }
+        return hex.append('\'').toString();
+    }
+}
@@ -0,0 +1,271 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The named fields of a record in a fixed length file, like a copybook. Fields are added one by one, and the layout
+ * is compiled into arrays of offsets, types and trim rules on first use after a change, so extracting a field is a
+ * table lookup and a substring, and extracting a whole record is a single pass over the tables.
+ * <p>
+ * Positions are 1-based character positions. Fields may overlap (to give parts of a field their own name), and
+ * fields beyond the end of a short line are cut off at the end of the line.
+ * <p>
+ * Binary (packed) fields are read from the bytes of the line in the encoding of the file, which must be a single
+ * byte encoding such as an EBCDIC code page, so their positions are byte positions.
+ */
+public final class RecordLayout {
+    private final String name;
+    private final Map<String, FieldDefinition> fields = new LinkedHashMap<>();
+    private volatile Compiled compiled;
+    private volatile Charset encoding = StandardCharsets.ISO_8859_1;
+
+    public RecordLayout(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param encoding The encoding of the files read with this layout, to read binary fields with
+     */
+    public void setEncoding(Charset encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Add a field, or replace the field with the same name. Fields are trimmed on both sides, except binary fields.
+     *
+     * @param field  The name of the field
+     * @param start  The position of its first character (1-based)
+     * @param length The number of characters
+     * @param type   The type of its values
+     * @throws IllegalArgumentException when the position or length is not positive
+     */
+    public synchronized void addField(String field, int start, int length, FieldType type) {
+        if (start < 1 || length < 1) {
+            throw new IllegalArgumentException("Field " + field + " must have a positive position and length");
+        }
+        fields.put(field, new FieldDefinition(start - 1, length, type, type.isBinary() ? Trim.NONE : Trim.BOTH));
+        compiled = null;
+    }
+
+    /**
+     * @param field The name of the field
+     * @param trim  The padding to remove from its values
+     * @throws IllegalArgumentException when there is no such field, or it is a binary field
+     */
+    public synchronized void setTrim(String field, Trim trim) {
+        FieldDefinition definition = fields.get(field);
+        if (definition == null) {
+            throw new IllegalArgumentException("No field " + field + " in layout " + name);
+        }
+        if (definition.type.isBinary() && trim != Trim.NONE) {
+            throw new IllegalArgumentException("Field " + field + " is a " + definition.type + " and can not be trimmed");
+        }
+        fields.put(field, new FieldDefinition(definition.offset, definition.length, definition.type, trim));
+        compiled = null;
+    }
+
+    /**
+     * @return the names of the fields, in the order they were added
+     */
+    public List<String> fieldNames() {
+        return Collections.unmodifiableList(Arrays.asList(compiled().names));
+    }
+
+    public int numberOfFields() {
+        return compiled().names.length;
+    }
+
+    /**
+     * @param field The name of a field
+     * @return its index in {@link #fieldNames()}, or -1 if there is no such field
+     */
+    public int indexOf(String field) {
+        Integer index = compiled().indexes.get(field);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the position of the last character of the field that ends last
+     */
+    public int recordLength() {
+        return compiled().recordLength;
+    }
+
+    public String fieldName(int field) {
+        return compiled().names[field];
+    }
+
+    public FieldType type(int field) {
+        return compiled().types[field];
+    }
+
+    /**
+     * @param line  A line of the file
+     * @param field The index of a field
+     * @return the text of the field in the line, without padding
+     */
+    public String text(String line, int field) {
+        return compiled().text(line, field);
+    }
+
+    /**
+     * @param line  A line of the file
+     * @param field The index of a field
+     * @return true if the field in the line holds a value of its type
+     */
+    public boolean isValid(String line, int field) {
+        Compiled layout = compiled();
+        FieldType type = layout.types[field];
+        if (type.isBinary()) {
+            return type.valueOf(layout.text(line, field).getBytes(encoding)) != null;
+        }
+        return type.isValid(layout.text(line, field));
+    }
+
+    /**
+     * @param line  A line of the file
+     * @param field The index of a field
+     * @return the value of the field in the line (numbers without leading zeros and with implied decimals). Binary
+     * fields that hold no valid value are shown as hexadecimal bytes, e.g. X'00AF'.
+     */
+    public String value(String line, int field) {
+        return compiled().value(line, field, encoding);
+    }
+
+    /**
+     * @param line A line of the file
+     * @return the values of all fields in the line, by field name
+     */
+    public Map<String, String> record(String line) {
+        Compiled layout = compiled();
+        Charset lineEncoding = encoding;
+        Map<String, String> record = new LinkedHashMap<>();
+        for (int i = 0; i < layout.names.length; i++) {
+            record.put(layout.names[i], layout.value(line, i, lineEncoding));
+        }
+        return record;
+    }
+
+    /**
+     * Append a record with values for some or all fields. Numbers are padded with zeros, text is padded with spaces:
+     * on the left for fields trimmed on the left only (right aligned), on the right otherwise. Fields without a
+     * value are spaces.
+     *
+     * @param out          Receives the record, without line break
+     * @param values       The values by field index (see {@link #indexOf(String)}), null for fields without value
+     * @param recordLength The length of the record, at least {@link #recordLength()}
+     * @throws IllegalArgumentException when a value does not fit in its field, or is not of the field's type
+     */
+    public void appendTo(StringBuilder out, String[] values, int recordLength) {
+        Compiled layout = compiled();
+        Charset lineEncoding = encoding;
+        int start = out.length();
+        for (int i = 0; i < recordLength; i++) {
+            out.append(' ');
+        }
+        for (int i = 0; i < layout.names.length; i++) {
+            if (values[i] != null) {
+                int length = layout.ends[i] - layout.starts[i];
+                String text;
+                try {
+                    text = layout.types[i].format(values[i], length, lineEncoding);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Field " + layout.names[i] + ": " + e.getMessage(), e);
+                }
+                if (text.length() > length) {
+                    throw new IllegalArgumentException("Field " + layout.names[i] + ": '" + text
+                            + "' does not fit in " + length + " characters");
+                }
+                int offset = layout.trims[i] == Trim.LEFT ? length - text.length() : 0;
+                out.replace(start + layout.starts[i] + offset, start + layout.starts[i] + offset + text.length(), text);
+            }
+        }
+    }
+
+    private Compiled compiled() {
+        Compiled current = compiled;
+        if (current == null) {
+            synchronized (this) {
+                if (compiled == null) {
+                    compiled = new Compiled(fields);
+                }
+                current = compiled;
+            }
+        }
+        return current;
+    }
+
+    private static final class FieldDefinition {
+        private final int offset;
+        private final int length;
+        private final FieldType type;
+        private final Trim trim;
+
+        private FieldDefinition(int offset, int length, FieldType type, Trim trim) {
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.trim = trim;
+        }
+    }
+
+    private static final class Compiled {
+        private final String[] names;
+        private final int[] starts;
+        private final int[] ends;
+        private final FieldType[] types;
+        private final Trim[] trims;
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final int recordLength;
+
+        private Compiled(Map<String, FieldDefinition> fields) {
+            int count = fields.size();
+            names = new String[count];
+            starts = new int[count];
+            ends = new int[count];
+            types = new FieldType[count];
+            trims = new Trim[count];
+            int length = 0;
+            int i = 0;
+            for (Map.Entry<String, FieldDefinition> entry : fields.entrySet()) {
+                FieldDefinition field = entry.getValue();
+                names[i] = entry.getKey();
+                starts[i] = field.offset;
+                ends[i] = field.offset + field.length;
+                types[i] = field.type;
+                trims[i] = field.trim;
+                indexes.put(names[i], i);
+                length = Math.max(length, ends[i]);
+                i++;
+            }
+            recordLength = length;
+        }
+
+        private String text(String line, int field) {
+            int end = Math.min(ends[field], line.length());
+            int start = Math.min(starts[field], end);
+            return trims[field].apply(line, start, end);
+        }
+
+        private String value(String line, int field, Charset encoding) {
+            String text = text(line, field);
+            if (types[field].isBinary()) {
+                byte[] bytes = text.getBytes(encoding);
+                String value = types[field].valueOf(bytes);
+                return value == null ? MainframeDecimals.hex(bytes) : value;
+            }
+            return types[field].valueOf(text);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import nl.praegus.fitnesse.slim.fixtures.util.PartitionPool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The lines of a file with several types of records (e.g. header, detail and trailer records), grouped by the type
+ * code at a fixed position in each line. The file is scanned once, in parallel chunks, to collect per type code the
+ * offsets of its lines in file order; after that the n-th record of a type is found without reading other lines.
+ * <p>
+ * The position of the type code is in bytes, which is the same as in characters for single byte encodings and
+ * for lines that only have ASCII characters before the type code. Type codes are trimmed.
+ */
+public final class RecordTypeIndex {
+    private final FixedLengthFile file;
+    private final Map<String, Offsets> offsets;
+
+    private RecordTypeIndex(FixedLengthFile file, Map<String, Offsets> offsets) {
+        this.file = file;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param file   The file to index
+     * @param start  The position of the type code in each line (1-based)
+     * @param length The length of the type code
+     * @return the index
+     */
+    public static RecordTypeIndex build(FixedLengthFile file, int start, int length) {
+        List<Map<String, Offsets>> chunks = PartitionPool.map(file.chunks(),
+                range -> scan(file, range[0], range[1], start - 1, length));
+        Map<String, Offsets> merged = new LinkedHashMap<>();
+        for (Map<String, Offsets> chunk : chunks) {
+            for (Map.Entry<String, Offsets> entry : chunk.entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), k -> new Offsets()).addAll(entry.getValue());
+            }
+        }
+        return new RecordTypeIndex(file, merged);
+    }
+
+    /**
+     * @return the type codes in the file, in order of their first record
+     */
+    public Set<String> types() {
+        return Collections.unmodifiableSet(offsets.keySet());
+    }
+
+    public int numberOfRecords(String type) {
+        Offsets typeOffsets = offsets.get(type);
+        return typeOffsets == null ? 0 : typeOffsets.size;
+    }
+
+    /**
+     * @param type       A type code
+     * @param occurrence The number of the record among the records of the type (1-based)
+     * @return the line of the record, or null if there are fewer records of the type
+     */
+    public String record(String type, int occurrence) {
+        Offsets typeOffsets = offsets.get(type);
+        if (typeOffsets == null || occurrence < 1 || occurrence > typeOffsets.size) {
+            return null;
+        }
+        return file.lineAt(typeOffsets.values[occurrence - 1]);
+    }
+
+    /**
+     * Type codes are looked up by their bytes packed in a long, so each distinct code is decoded only once per chunk
+     */
+    private static Map<String, Offsets> scan(FixedLengthFile file, long from, long to, int offset, int length) {
+        Map<String, Offsets> chunk = new LinkedHashMap<>();
+        Map<Long, Offsets> byKey = new HashMap<>();
+        long position = from;
+        while (position < to) {
+            long end = file.lineEnd(position);
+            long codeStart = Math.min(position + offset, end);
+            long codeEnd = Math.min(codeStart + length, end);
+            Offsets typeOffsets;
+            if (codeEnd - codeStart < Long.BYTES) {
+                long key = codeEnd - codeStart;
+                for (long i = codeStart; i < codeEnd; i++) {
+                    key = (key << 8) | (file.byteAt(i) & 0xFF);
+                }
+                typeOffsets = byKey.get(key);
+                if (typeOffsets == null) {
+                    typeOffsets = chunk.computeIfAbsent(file.decode(codeStart, codeEnd).trim(), k -> new Offsets());
+                    byKey.put(key, typeOffsets);
+                }
+            } else {
+                typeOffsets = chunk.computeIfAbsent(file.decode(codeStart, codeEnd).trim(), k -> new Offsets());
+            }
+            typeOffsets.add(position);
+            position = file.nextLine(end);
+        }
+        return chunk;
+    }
+
+    private static final class Offsets {
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(Offsets other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
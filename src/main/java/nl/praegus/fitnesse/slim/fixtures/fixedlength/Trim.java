@@ -0,0 +1,50 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import java.util.Locale;
+
+/**
+ * The padding that is removed from the text of a field
+ */
+public enum Trim {
+    NONE, LEFT, RIGHT, BOTH;
+
+    /**
+     * @param name The name of the trim rule, in any case
+     * @return the rule
+     * @throws IllegalArgumentException when there is no such rule
+     */
+    public static Trim of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown trim: " + name + " (use none, left, right or both)", e);
+        }
+    }
+
+    /**
+     * @param text  The text of a line
+     * @param start The index of the first character of the field
+     * @param end   The index after the last character of the field
+     * @return the text of the field without padding
+     */
+    String apply(String text, int start, int end) {
+        int from = start;
+        int to = end;
+        if (this == LEFT || this == BOTH) {
+            while (from < to && text.charAt(from) == ' ') {
+                from++;
+            }
+        }
+        if (this == RIGHT || this == BOTH) {
+            while (to > from && text.charAt(to - 1) == ' ') {
+                to--;
+            }
+        }
+        return text.substring(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,75 @@
+package nl.praegus.fitnesse.slim.fixtures.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a complete file. Files larger than 2GB are mapped in segments, positions are
+ * absolute offsets in the file.
+ */
+public final class MappedFile {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedFile(MappedByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Map a file. The mapping remains valid after this method returns; it is released when it is garbage collected.
+     *
+     * @param file The file to map
+     * @return the mapped file
+     * @throws IOException when the file can not be read
+     */
+    public static MappedFile map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+            return new MappedFile(segments, size);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Copy a range of the file
+     *
+     * @param position The offset of the first byte
+     * @param length   The number of bytes
+     * @return the bytes
+     */
+    public byte[] bytes(long position, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; ) {
+            long current = position + i;
+            MappedByteBuffer segment = segments[(int) (current >>> SEGMENT_SHIFT)];
+            int offset = (int) (current & SEGMENT_MASK);
+            int count = Math.min(length - i, segment.limit() - offset);
+            ByteBuffer view = segment.duplicate();
+            view.position(offset);
+            view.get(result, i, count);
+            i += count;
+        }
+        return result;
+    }
+}
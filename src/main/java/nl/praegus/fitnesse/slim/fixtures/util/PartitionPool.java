@@ -0,0 +1,70 @@
+package nl.praegus.fitnesse.slim.fixtures.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs work on the parts of a file set, or the chunks of a large file, in parallel, on a pool with one (daemon)
+ * thread per processor. The pool is shared by all fixtures, so the number of files read at once stays bounded
+ * however many parts there are.
+ */
+public final class PartitionPool {
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static ExecutorService pool;
+
+    private PartitionPool() {
+    }
+
+    /**
+     * @param parts    The parts to work on
+     * @param function The work to do per part
+     * @return the results, in the order of the parts
+     */
+    public static <T, R> List<R> map(List<T> parts, Function<T, R> function) {
+        List<R> results = new ArrayList<>(parts.size());
+        if (parts.size() == 1) {
+            results.add(function.apply(parts.get(0)));
+            return results;
+        }
+        List<Callable<R>> tasks = new ArrayList<>(parts.size());
+        for (T part : parts) {
+            tasks.add(() -> function.apply(part));
+        }
+        try {
+            for (Future<R> future : pool().invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading parts", e);
+        }
+        return results;
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "file-part-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+}
@@ -1,13 +1,34 @@
 package nl.praegus.fitnesse.slim.fixtures;
 
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
 
 public class CsvFileFixtureTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void when_csv_file_is_found_a_row_can_be_retreived(){
         CsvFileFixture fileFixture = new CsvFileFixture();
@@ -41,4 +62,299 @@ public class CsvFileFixtureTest {
         assertThat(result).isEqualTo("inhoud1");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void when_a_cached_csv_file_changes_it_is_read_again() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        File csv = csvFile(folder, "id,name\n1,first\n");
+
+        assertThat(fileFixture.valueOfInRowWhereIsIn("name", "id", "1", csv.getAbsolutePath())).isEqualTo("first");
+
+        Files.write(csv.toPath(), "id,name\n1,changed\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(fileFixture.valueOfInRowWhereIsIn("name", "id", "1", csv.getAbsolutePath())).isEqualTo("changed");
+    }
+
+    @Test
+    public void lookups_and_counts_use_the_first_data_row_and_skip_the_header() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csvFile(folder, "id,status\n1,status\n2,open\n3,open\n").getAbsolutePath());
+
+        assertThat(fileFixture.numberOfLines()).isEqualTo(4);
+        assertThat(fileFixture.numberOfLinesWhereIs("status", "open")).isEqualTo(2);
+        assertThat(fileFixture.numberOfLinesWhereIs("status", "status")).isEqualTo(1);
+        assertThat(fileFixture.valueOfInRowWhereIs("id", "status", "open")).isEqualTo("2");
+    }
+
+    @Test
+    public void pre_indexed_columns_are_used_for_lookups_and_counts() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csvFile(folder, "id,status\n1,open\n2,closed\n3,open\n").getAbsolutePath());
+
+        fileFixture.indexColumns("id, status");
+
+        assertThat(fileFixture.numberOfLinesWhereIs("status", "open")).isEqualTo(2);
+        assertThat(fileFixture.dataInRowWhereIs("id", "2")).containsEntry("status", "closed");
+        assertThat(fileFixture.numberOfLinesWhereIs("status", "pending")).isEqualTo(0);
+    }
+
+    @Test
+    public void indexing_an_unknown_column_fails() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csvFile(folder, "id,status\n1,open\n").getAbsolutePath());
+
+        assertThat(catchThrowable(() -> fileFixture.indexColumns("missing"))).isInstanceOf(SlimFixtureException.class);
+    }
+
+    @Test
+    public void streaming_columnar_and_indexed_modes_give_the_same_results_as_reading_the_whole_file() throws IOException {
+        String csv = csvFile(folder, "id,status\n1,open\n2,closed\n3,open\n").getAbsolutePath();
+        CsvFileFixture cached = new CsvFileFixture();
+        CsvFileFixture streaming = new CsvFileFixture();
+        streaming.setStreaming(true);
+        CsvFileFixture columnar = new CsvFileFixture();
+        columnar.setColumnar(true);
+        CsvFileFixture indexed = new CsvFileFixture();
+        indexed.setSidecarIndex(true);
+
+        for (CsvFileFixture fileFixture : new CsvFileFixture[]{cached, streaming, columnar, indexed}) {
+            fileFixture.setCsvFile(csv);
+            assertThat(fileFixture.dataInRow(3)).containsEntry("status", "open");
+            assertThat(fileFixture.numberOfLines()).isEqualTo(4);
+            assertThat(fileFixture.numberOfLinesWhereIs("status", "open")).isEqualTo(2);
+            assertThat(fileFixture.valueOfInNthRowWhereIs("id", 2, "status", "open")).isEqualTo("3");
+            assertThat(fileFixture.valueOfInRowNumber("status", 2)).isEqualTo("closed");
+            assertThat(fileFixture.nameOfColumn(1)).isEqualTo("status");
+            assertThat(catchThrowable(() -> fileFixture.valueOfInNthRowWhereIs("id", 3, "status", "open")))
+                    .isInstanceOf(SlimFixtureException.class);
+        }
+    }
+
+    @Test
+    public void quoted_values_and_literal_separators_are_supported() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setSeparator("\\|");
+        fileFixture.setCsvFile(csvFile(folder, "id|name|remark\n1|\"Doe| John\"|\n").getAbsolutePath());
+
+        assertThat(fileFixture.valueOfInRowWhereIs("name", "id", "1")).isEqualTo("Doe| John");
+        assertThat(fileFixture.dataInRow(1)).containsEntry("remark", "");
+    }
+
+    @Test
+    public void columns_can_be_aggregated() throws IOException {
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csvFile(folder, "type,amount,name\nA,10.5,x\nB,-2,y\nA,,x\nA,1.25,z\nB,3,y\n").getAbsolutePath());
+
+        assertThat(fileFixture.sumOfColumn("amount")).isEqualTo("12.75");
+        assertThat(fileFixture.sumOfColumnWhereIs("amount", "type", "A")).isEqualTo("11.75");
+        assertThat(fileFixture.averageOfColumn("amount")).isEqualTo("3.1875");
+        assertThat(fileFixture.minimumOfColumn("amount")).isEqualTo("-2");
+        assertThat(fileFixture.maximumOfColumn("amount")).isEqualTo("10.5");
+        assertThat(fileFixture.numberOfDistinctValuesInColumn("name")).isEqualTo(3);
+        assertThat(fileFixture.numberOfLinesPerValueOf("type")).containsExactly(entry("A", 3L), entry("B", 2L));
+        assertThat(fileFixture.sumOfColumnPerValueOf("amount", "type")).containsExactly(entry("A", "11.75"), entry("B", "1"));
+        assertThat(catchThrowable(() -> fileFixture.sumOfColumn("name"))).isInstanceOf(SlimFixtureException.class);
+        assertThat(catchThrowable(() -> fileFixture.sumOfColumn("price"))).isInstanceOf(SlimFixtureException.class);
+    }
+
+    @Test
+    public void compressed_files_are_read_directly() throws IOException {
+        byte[] content = "id,status\n1,open\n2,closed\n3,open\n".getBytes(StandardCharsets.UTF_8);
+        File gzip = folder.newFile("data.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzip))) {
+            out.write(content);
+        }
+        File gzipWithoutExtension = folder.newFile("data.csv");
+        Files.copy(gzip.toPath(), gzipWithoutExtension.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        File zip = folder.newFile("data.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("data.csv"));
+            out.write(content);
+        }
+        File bzip2WithoutExtension = folder.newFile("data-bz.csv");
+        try (OutputStream out = new BZip2CompressorOutputStream(new FileOutputStream(bzip2WithoutExtension))) {
+            out.write(content);
+        }
+        CsvFileFixture cached = new CsvFileFixture();
+        CsvFileFixture streaming = new CsvFileFixture();
+        streaming.setStreaming(true);
+
+        for (File file : new File[]{gzip, gzipWithoutExtension, zip, bzip2WithoutExtension}) {
+            for (CsvFileFixture fileFixture : new CsvFileFixture[]{cached, streaming}) {
+                fileFixture.setCsvFile(file.getAbsolutePath());
+                assertThat(fileFixture.valueOfInRowWhereIs("id", "status", "closed")).isEqualTo("2");
+                assertThat(fileFixture.numberOfLines()).isEqualTo(4);
+                assertThat(fileFixture.numberOfLinesWhereIs("status", "open")).isEqualTo(2);
+            }
+        }
+
+        File startsLikeBzip2 = csvFile(folder, "BZh91AY,status\n1,open\n");
+        cached.setCsvFile(startsLikeBzip2.getAbsolutePath());
+        assertThat(cached.valueOfInRowWhereIs("BZh91AY", "status", "open")).isEqualTo("1");
+    }
+
+    @Test
+    public void polling_waits_for_an_appended_row() throws IOException {
+        File csv = csvFile(folder, "id,status\n1,done\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csv.getAbsolutePath());
+        fileFixture.setTailFromEnd(true);
+        fileFixture.repeatAtMostTimes(2);
+        fileFixture.setRepeatIntervalToMilliseconds(1);
+
+        fileFixture.startTailing();
+
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "done")).isFalse();
+        Files.write(csv.toPath(), "2,done\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "done")).isTrue();
+        assertThat(catchThrowable(() -> fileFixture.pollUntilRowWhereIsAppears("state", "done")))
+                .isInstanceOf(SlimFixtureException.class);
+    }
+
+    @Test
+    public void without_tail_from_end_rows_already_in_the_file_are_found() throws IOException {
+        File csv = csvFile(folder, "id,status\n1,done\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csv.getAbsolutePath());
+        fileFixture.repeatAtMostTimes(2);
+        fileFixture.setRepeatIntervalToMilliseconds(1);
+
+        fileFixture.startTailing();
+
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "done")).isTrue();
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "done")).isFalse();
+    }
+
+    @Test
+    public void rows_appended_after_a_polled_row_are_checked_by_the_next_poll() throws IOException {
+        File csv = csvFile(folder, "id,status\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csv.getAbsolutePath());
+        fileFixture.setTailFromEnd(true);
+        fileFixture.repeatAtMostTimes(2);
+        fileFixture.setRepeatIntervalToMilliseconds(1);
+
+        fileFixture.startTailing();
+
+        Files.write(csv.toPath(), "1,started\n2,finished\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "started")).isTrue();
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "finished")).isTrue();
+        assertThat(fileFixture.pollUntilRowWhereIsAppears("status", "finished")).isFalse();
+    }
+
+    @Test
+    public void a_file_that_can_not_be_read_while_streaming_fails_as_a_fixture_exception() throws IOException {
+        File csv = csvFile(folder, "id,status\n1,done\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setStreaming(true);
+        fileFixture.setCsvFile(csv.getAbsolutePath());
+        assertThat(fileFixture.valueOfInRowNumber("status", 1)).isEqualTo("done");
+
+        Files.delete(csv.toPath());
+
+        assertThat(catchThrowable(() -> fileFixture.valueOfInRowNumber("status", 1)))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasCauseInstanceOf(IOException.class);
+        assertThat(catchThrowable(fileFixture::numberOfLines))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void part_files_in_a_directory_or_matching_a_pattern_are_used_as_one_file() throws IOException {
+        File parts = folder.newFolder("parts");
+        write(new File(parts, "part-0000.csv"), "id,type,amount\n1,a,1.5\n2,b,2\n");
+        write(new File(parts, "part-0001.csv"), "");
+        write(new File(parts, "part-0002.csv"), "id,type,amount\n3,a,3\n4,a,-1\n5,b,0.25\n");
+        write(new File(parts, "_SUCCESS"), "");
+
+        for (boolean streaming : new boolean[]{false, true}) {
+            for (String name : new String[]{parts.getAbsolutePath(), new File(parts, "part-*.csv").getAbsolutePath()}) {
+                CsvFileFixture fileFixture = new CsvFileFixture();
+                fileFixture.setStreaming(streaming);
+                fileFixture.setCsvFile(name);
+
+                assertThat(fileFixture.numberOfLines()).isEqualTo(6);
+                assertThat(fileFixture.numberOfLinesWhereIs("type", "a")).isEqualTo(3);
+                assertThat(fileFixture.valueOfInRowNumber("id", 4)).isEqualTo("4");
+                assertThat(fileFixture.valueOfInRowWhereIs("id", "type", "b")).isEqualTo("2");
+                assertThat(fileFixture.valueOfInNthRowWhereIs("id", 2, "type", "b")).isEqualTo("5");
+                assertThat(fileFixture.nameOfColumn(2)).isEqualTo("amount");
+                assertThat(fileFixture.sumOfColumn("amount")).isEqualTo("5.75");
+                assertThat(fileFixture.sumOfColumnPerValueOf("amount", "type"))
+                        .containsExactly(entry("a", "3.5"), entry("b", "2.25"));
+            }
+        }
+
+        write(new File(parts, "part-0003.csv"), "id,kind,amount\n6,c,1\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(parts.getAbsolutePath());
+        assertThat(catchThrowable(fileFixture::numberOfLines))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("part-0003.csv");
+        assertThat(catchThrowable(() -> fileFixture.numberOfLinesIn(new File(parts, "none-*.csv").getAbsolutePath())))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("No files found");
+
+        File bracketed = new File(folder.getRoot(), "report[1].csv");
+        write(bracketed, "id\n1\n2\n");
+        assertThat(fileFixture.numberOfLinesIn(bracketed.getAbsolutePath())).isEqualTo(3);
+    }
+
+    @Test
+    public void range_lookups_work_with_and_without_typed_columns() throws IOException {
+        File csv = csvFile(folder, "id,amount,booked\n1,100,2024-01-15\n2,99.99,2024-02-01\n3,100.0,\n4,250,2024-03-10\n");
+        CsvFileFixture text = new CsvFileFixture();
+        CsvFileFixture typed = new CsvFileFixture();
+        typed.setColumnType("amount", "decimal");
+        typed.setInferColumnTypes(true);
+        CsvFileFixture streamingTyped = new CsvFileFixture();
+        streamingTyped.setStreaming(true);
+        streamingTyped.setInferColumnTypes(true);
+
+        for (CsvFileFixture fileFixture : new CsvFileFixture[]{text, typed, streamingTyped}) {
+            fileFixture.setCsvFile(csv.getAbsolutePath());
+            assertThat(fileFixture.numberOfLinesWhereIsGreaterThan("amount", "99.99")).isEqualTo(3);
+            assertThat(fileFixture.numberOfLinesWhereIsLessThan("booked", "2024-02-01")).isEqualTo(1);
+            assertThat(fileFixture.numberOfLinesWhereIsBetweenAnd("booked", "2024-02-01", "2024-03-10")).isEqualTo(2);
+            assertThat(fileFixture.numberOfLinesWhereIsWithin("amount", "100", "0.01")).isEqualTo(3);
+            assertThat(fileFixture.valueOfInRowWhereIsBetweenAnd("id", "amount", "200", "300")).isEqualTo("4");
+            assertThat(fileFixture.valueOfInRowWhereIsWithin("id", "booked", "2024-02-03", "2")).isEqualTo("2");
+        }
+        assertThat(text.numberOfLinesWhereIs("amount", "100")).isEqualTo(1);
+        assertThat(typed.numberOfLinesWhereIs("amount", "100")).isEqualTo(2);
+        assertThat(typed.valueOfInNthRowWhereIs("id", 2, "amount", "100")).isEqualTo("3");
+        assertThat(typed.typeOfColumn("id")).isEqualTo("int");
+        assertThat(typed.typeOfColumn("booked")).isEqualTo("date");
+        assertThat(text.typeOfColumn("amount")).isEqualTo("text");
+        assertThat(catchThrowable(() -> text.numberOfLinesWhereIsGreaterThan("amount", "lots")))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("Not a number or date");
+
+        typed.setColumnType("booked", "int");
+        assertThat(catchThrowable(typed::numberOfLines))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("Not a valid int in column booked");
+    }
+
+    @Test
+    public void lookups_on_the_sorted_column_binary_search_the_file() throws IOException {
+        File csv = csvFile(folder, "id,name\n2,two\n9,nine\n10,ten\n10,ten again\n");
+        CsvFileFixture fileFixture = new CsvFileFixture();
+        fileFixture.setCsvFile(csv.getAbsolutePath());
+        fileFixture.setSortedOnColumnOfType("id", "int");
+
+        assertThat(fileFixture.valueOfInNthRowWhereIs("name", 2, "id", "10")).isEqualTo("ten again");
+        assertThat(fileFixture.numberOfLinesWhereIs("id", "10.0")).isEqualTo(2);
+        assertThat(fileFixture.numberOfLinesWhereIs("id", "3")).isEqualTo(0);
+        assertThat(fileFixture.valueOfInRowWhereIs("id", "name", "nine")).isEqualTo("9");
+
+        fileFixture.setSortedOnColumn("code");
+        assertThat(catchThrowable(fileFixture::numberOfLines))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("No column code");
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CsvGeneratorFixtureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generated_rows_follow_the_templates() throws IOException {
+        CsvGeneratorFixture generator = new CsvGeneratorFixture();
+        generator.setColumnTemplate("id", "${row}");
+        generator.setColumnTemplate("invoice", "INV-${sequence(1000,5)}");
+        generator.setColumnTemplate("country", "${oneOf(NL, BE)}");
+        generator.setColumnTemplate("amount", "${decimal(-1,1,2)}");
+        generator.setColumnTemplate("date", "${date(2024-01-01,2024-01-31)}");
+        generator.setColumnTemplate("remark", "say \"${text(3)}\", ok");
+        File csv = new File(folder.getRoot(), "generated.csv");
+
+        generator.generateRowsIn(20_000, csv.getAbsolutePath());
+
+        generator.setCsvFile(csv.getAbsolutePath());
+        assertThat(generator.numberOfLines()).isEqualTo(20_001);
+        assertThat(generator.valueOfInRowNumber("invoice", 20_000)).isEqualTo("INV-100995");
+        assertThat(generator.numberOfLinesWhereIs("country", "NL") + generator.numberOfLinesWhereIs("country", "BE"))
+                .isEqualTo(20_000);
+        assertThat(generator.numberOfLinesWhereIsBetweenAnd("amount", "-1", "1")).isEqualTo(20_000);
+        assertThat(generator.numberOfLinesWhereIsBetweenAnd("date", "2024-01-01", "2024-01-31")).isEqualTo(20_000);
+        assertThat(generator.valueOfInRowNumber("remark", 1)).matches("say \"[a-z]{3}\", ok");
+        assertThat(generator.rowsPerSecond()).isPositive();
+
+        File again = new File(folder.getRoot(), "again.csv");
+        generator.generateRowsIn(20_000, again.getAbsolutePath());
+        assertThat(Files.readAllBytes(again.toPath())).isEqualTo(Files.readAllBytes(csv.toPath()));
+    }
+
+    @Test
+    public void invalid_templates_are_reported() {
+        CsvGeneratorFixture generator = new CsvGeneratorFixture();
+
+        assertThat(catchThrowable(() -> generator.setColumnTemplate("a", "${nope}")))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("Unknown expression");
+        assertThat(catchThrowable(() -> generator.setColumnTemplate("a", "${int(5,1)}")))
+                .hasMessageContaining("Empty range");
+        assertThat(catchThrowable(() -> generator.setColumnTemplate("a", "${date(2024-13-01,2024-12-31)}")))
+                .hasMessageContaining("Invalid expression");
+        assertThat(catchThrowable(() -> generator.generateRowsIn(1, "x.csv")))
+                .hasMessageContaining("column templates");
+    }
+}
@@ -0,0 +1,39 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CsvVerificationTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matching_mismatching_missing_and_surplus_rows_are_reported() throws IOException {
+        File csv = folder.newFile();
+        Files.write(csv.toPath(), "id,name,amount\n1,one,10\n2,two,20\n4,four,40\n".getBytes(StandardCharsets.UTF_8));
+        CsvVerificationTable verificationTable = new CsvVerificationTable(csv.getAbsolutePath(), "id");
+
+        List<List<String>> result = verificationTable.doTable(Arrays.asList(
+                Arrays.asList("id", "amount"),
+                Arrays.asList("1", "10"),
+                Arrays.asList("2", "25"),
+                Arrays.asList("3", "30")));
+
+        assertThat(result.get(1)).containsExactly("pass", "pass");
+        assertThat(result.get(2)).containsExactly("pass", "fail:[20] expected [25]");
+        assertThat(result.get(3)).containsExactly("fail:3 (missing)", "");
+        assertThat(result.get(4)).containsExactly("fail:4 (surplus)", "report:40");
+        assertThat(result.get(5)).containsExactly("report:missing: 1, surplus: 1, mismatching: 1");
+    }
+}
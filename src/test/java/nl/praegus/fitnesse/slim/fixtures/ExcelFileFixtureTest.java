@@ -0,0 +1,94 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ExcelFileFixtureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streaming_reads_the_same_values_as_the_workbook() throws IOException {
+        String file = workbook(3000);
+        ExcelFileFixture normal = new ExcelFileFixture();
+        normal.openExcelSheet(file);
+        ExcelFileFixture streaming = new ExcelFileFixture();
+        streaming.openExcelSheetForStreaming(file);
+
+        for (int row : new int[]{0, 1, 1500, 2999, 1024, 3000, 2}) {
+            for (int col = 0; col < 5; col++) {
+                assertThat(streaming.valueInRowColumn(row, col))
+                        .as("row %s column %s", row, col)
+                        .isEqualTo(normal.valueInRowColumn(row, col));
+            }
+        }
+        assertThat(streaming.valueInRowColumn(2999, 1)).isEqualTo("invoice 2999");
+        assertThat(streaming.valueInRowColumn(2999, 2)).isEqualTo("2,999.50");
+        assertThat(streaming.valueInRowColumn(2000, 3)).isEmpty();
+        assertThat(streaming.valuesInRow(2001)).containsExactly("2001", "invoice 2001", "2,001.50", "", "NL");
+        assertThat(streaming.valuesInRow(2001)).isEqualTo(normal.valuesInRow(2001));
+        assertThat(streaming.valueInRowColumnInSheet(1, 0, "totals")).isEqualTo("total");
+
+        assertThat(streaming.rowWhereColumnIs(1, "invoice 2500")).isEqualTo(2500);
+        assertThat(normal.rowWhereColumnIs(1, "invoice 2500")).isEqualTo(2500);
+        assertThat(streaming.valueInRowColumn(2500, 0)).isEqualTo("2500");
+        assertThat(streaming.valuesInRow(2500)).containsExactly("2500", "invoice 2500", "2,500.50", "", "BE");
+        assertThat(streaming.rowWhereColumnIs(0, "2501")).isEqualTo(2501);
+        assertThat(streaming.valuesInRow(2501)).isEqualTo(normal.valuesInRow(2501));
+        assertThat(streaming.rowWhereColumnIs(1, "invoice 9999")).isNull();
+        assertThat(streaming.valueInRowColumn(10, 1)).isEqualTo("invoice 10");
+        assertThat(streaming.rowWhereColumnIsInSheet(1, "3", "totals")).isEqualTo(1);
+
+        assertThat(catchThrowable(() -> streaming.valueInRowColumnInSheet(0, 0, "missing")))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("No sheet missing");
+        assertThat(catchThrowable(() -> streaming.writeToRowColumn("x", 0, 0)))
+                .hasMessageContaining("read only");
+    }
+
+    private String workbook(int rows) throws IOException {
+        File file = folder.newFile("report.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+            CellStyle amount = workbook.createCellStyle();
+            amount.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+            XSSFSheet sheet = workbook.createSheet("report");
+            XSSFRow header = sheet.createRow(0);
+            header.createCell(0).setCellValue("id");
+            header.createCell(1).setCellValue("invoice");
+            header.createCell(2).setCellValue("amount");
+            for (int i = 1; i < rows; i++) {
+                if (i == 1024) {
+                    continue;
+                }
+                XSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellValue("invoice " + i);
+                row.createCell(2).setCellValue(i + 0.5);
+                row.getCell(2).setCellStyle(amount);
+                if (i % 1000 != 0) {
+                    row.createCell(4).setCellValue(i % 2 == 0 ? "BE" : "NL");
+                }
+            }
+            XSSFRow total = workbook.createSheet("totals").createRow(1);
+            total.createCell(0).setCellValue("total");
+            total.createCell(1).setCellValue(3);
+            workbook.write(out);
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,260 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+
+public class FixedLengthFileFixtureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fields_are_read_by_name_with_a_record_layout() throws IOException {
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(file(
+                "00000042Jansen              000001234520240131\n",
+                "00000043de Vries            -00000050020240229\n",
+                "00000044Short\n"));
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("customer", "number", 1, 8, "customer");
+        fixture.addFieldOnPositionWithLengthToLayout("name", 9, 20, "customer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("amount", "decimal(2)", 29, 10, "customer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("date", "date(yyyyMMdd)", 39, 8, "customer");
+        fixture.addFieldOnPositionWithLengthToLayout("year", 39, 4, "customer");
+
+        assertThat(fixture.valueOfFieldOnLine("customer", 1)).isEqualTo("42");
+        assertThat(fixture.valueOfFieldOnLine("amount", 1)).isEqualTo("123.45");
+        assertThat(fixture.valueOfFieldOnLine("amount", 2)).isEqualTo("-5.00");
+        assertThat(fixture.recordOnLine(2))
+                .containsExactly(
+                        entry("customer", "43"), entry("name", "de Vries"), entry("amount", "-5.00"),
+                        entry("date", "20240229"), entry("year", "2024"));
+        assertThat(fixture.recordOnLine(3)).containsEntry("name", "Short").containsEntry("amount", "");
+
+        fixture.setTrimOfFieldInLayout("right", "name", "customer");
+        fixture.addFieldOnPositionWithLengthToLayout("code", 1, 2, "other");
+        fixture.useLayout("customer");
+        assertThat(fixture.valueOfFieldOnLine("name", 1)).isEqualTo("Jansen");
+        assertThat(fixture.valueOnPositionWithLengthOnLine(9, 6, 2)).isEqualTo("de Vri");
+
+        assertThat(catchThrowable(() -> fixture.valueOfFieldOnLine("missing", 1)))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("No field missing in layout customer");
+        assertThat(catchThrowable(() -> fixture.valueOfFieldOnLine("name", 4)))
+                .hasMessageContaining("File has no line 4 (it has 3 lines)");
+        assertThat(catchThrowable(() -> fixture.addFieldOfTypeOnPositionWithLengthToLayout("x", "decimal(x)", 1, 1, "customer")))
+                .hasMessageContaining("Invalid field type: decimal(x)");
+        assertThat(catchThrowable(() -> fixture.setTrimOfFieldInLayout("middle", "name", "customer")))
+                .hasMessageContaining("Unknown trim");
+    }
+
+    @Test
+    public void validation_checks_all_lines_in_parallel_and_reports_the_first_violations() throws IOException {
+        StringBuilder content = new StringBuilder("HDR20240131\n");
+        long total = 0;
+        int records = 60_000;
+        for (int i = 1; i <= records; i++) {
+            String amount = String.format("%09d", i);
+            if (i == 30_000) {
+                amount = "00000ABCD";
+            } else {
+                total += i;
+            }
+            content.append(String.format("%08d%-20s%s%s\n", i, "name " + i, amount, i == 45_000 ? "20240230" : "20240131"));
+        }
+        content.append(String.format("TRL%08d%015d\n", records, total));
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(file(content.toString()));
+        fixture.addFieldOnPositionWithLengthToLayout("type", 1, 3, "header");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("date", "date(yyyyMMdd)", 4, 8, "header");
+        fixture.addFieldOnPositionWithLengthToLayout("type", 1, 3, "trailer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("count", "number", 4, 8, "trailer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("total", "decimal(2)", 12, 15, "trailer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 1, 8, "record");
+        fixture.addFieldOnPositionWithLengthToLayout("name", 9, 20, "record");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("amount", "decimal(2)", 29, 9, "record");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("date", "date(yyyyMMdd)", 38, 8, "record");
+        fixture.setHeaderLayout("header");
+        fixture.setTrailerLayout("trailer");
+        fixture.checkThatTrailerFieldIsNumberOfRecords("count");
+        fixture.checkThatTrailerFieldIsTotalOf("total", "amount");
+
+        fixture.setMaximumNumberOfExamples(3);
+
+        assertThat(fixture.validateFile()).isEqualTo("2 violations in 60002 lines\n"
+                + "line 30001: amount is not a decimal(2): '00000ABCD'\n"
+                + "line 45001: date is not a date(yyyyMMdd): '20240230'");
+        assertThat(fixture.numberOfViolations()).isEqualTo(2);
+
+        fixture.checkThatTrailerFieldIsTotalOf("count", "id");
+        assertThat(fixture.validateFile()).endsWith("trailer: count is 60000, total of id is 1800030000");
+    }
+
+    @Test
+    public void records_are_read_by_record_type() throws IOException {
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(file(
+                "0120240131BANK\n",
+                "02NL01BANK0001 0000001000\n",
+                "02NL02BANK0002 0000002500\n",
+                "03000002\n",
+                "02NL03BANK0003-0000000100\n"));
+        fixture.setRecordTypeOnPositionWithLength(1, 2);
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("date", "date(yyyyMMdd)", 3, 8, "header");
+        fixture.addFieldOnPositionWithLengthToLayout("account", 3, 12, "detail");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("amount", "decimal(2)", 15, 11, "detail");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("count", "number", 3, 6, "trailer");
+        fixture.setLayoutForRecordType("header", "01");
+        fixture.setLayoutForRecordType("detail", "02");
+        fixture.setLayoutForRecordType("trailer", "03");
+
+        assertThat(fixture.numberOfRecordsOfType("02")).isEqualTo(3);
+        assertThat(fixture.numberOfRecordsOfType("04")).isZero();
+        assertThat(fixture.valueOfFieldInRecordOfType("amount", 3, "02")).isEqualTo("-1.00");
+        assertThat(fixture.valueOfFieldInRecordOfType("count", 1, "03")).isEqualTo("2");
+        assertThat(fixture.recordOfType(1, "01")).containsExactly(entry("date", "20240131"));
+        assertThat(fixture.recordOfTypeWhereIs("02", "account", "NL02BANK0002"))
+                .containsExactly(entry("account", "NL02BANK0002"), entry("amount", "25.00"));
+        assertThat(fixture.valueOfFieldInRecordOfTypeWhereIs("amount", "02", "account", "NL01BANK0001")).isEqualTo("10.00");
+        assertThat(fixture.recordOfTypeWhereIs("02", "account", "NL99")).isNull();
+
+        assertThat(catchThrowable(() -> fixture.valueOfFieldInRecordOfType("amount", 4, "02")))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("File has no record 4 of type 02 (it has 3)");
+        assertThat(catchThrowable(() -> fixture.recordOfType(1, "04")))
+                .hasMessageContaining("No layout for record type 04");
+    }
+
+    @Test
+    public void lines_are_found_by_field_value_with_an_index() throws IOException {
+        StringBuilder content = new StringBuilder();
+        int lines = 80_000;
+        for (int i = 1; i <= lines; i++) {
+            String city = i % 20_000 == 0 ? "Utrecht" : "Amsterdam";
+            content.append(String.format("%08d%-20s%-12s%09d\n", i, "name " + i, city, i * 10));
+        }
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(file(content.toString()));
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 1, 8, "customer");
+        fixture.addFieldOnPositionWithLengthToLayout("name", 9, 20, "customer");
+        fixture.addFieldOnPositionWithLengthToLayout("city", 29, 12, "customer");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("amount", "decimal(2)", 41, 9, "customer");
+
+        assertThat(fixture.lineNumberWhereFieldIs("id", "65432")).isEqualTo(65432);
+        assertThat(fixture.lineNumberWhereFieldIs("id", "00065432")).isNull();
+        assertThat(fixture.lineNumberWhereFieldIs("name", "name 79999")).isEqualTo(79999);
+        assertThat(fixture.lineNumberWhereFieldIs("city", "Utrecht")).isEqualTo(20000);
+        assertThat(fixture.numberOfLinesWhereFieldIs("city", "Utrecht")).isEqualTo(4);
+        assertThat(fixture.numberOfLinesWhereFieldIs("city", "Rotterdam")).isZero();
+        assertThat(fixture.recordWhereFieldIs("id", "12")).containsExactly(
+                entry("id", "12"), entry("name", "name 12"), entry("city", "Amsterdam"), entry("amount", "1.20"));
+        assertThat(fixture.recordWhereFieldIs("id", "0")).isNull();
+        assertThat(fixture.valueOfFieldWhereFieldIs("amount", "name", "name 40000")).isEqualTo("4000.00");
+        assertThat(fixture.lineNumberWherePositionWithLengthIs(1, 8, "00065432")).isEqualTo(65432);
+        assertThat(fixture.lineNumberWherePositionWithLengthIs(29, 12, "Utrecht")).isEqualTo(20000);
+
+        fixture.setTrimOfFieldInLayout("none", "city", "customer");
+        assertThat(fixture.lineNumberWhereFieldIs("city", "Utrecht")).isNull();
+        assertThat(fixture.lineNumberWhereFieldIs("city", "Utrecht     ")).isEqualTo(20000);
+        assertThat(catchThrowable(() -> fixture.lineNumberWhereFieldIs("missing", "1")))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("No field missing in layout customer");
+    }
+
+    @Test
+    public void ebcdic_records_with_packed_and_zoned_decimals_are_read_without_conversion() throws IOException {
+        Charset ebcdic = Charset.forName("IBM037");
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        records.write("01JANSEN  ".getBytes(ebcdic));
+        records.write(new byte[]{0x00, 0x12, 0x34, 0x5C});
+        records.write("00012}".getBytes(ebcdic));
+        records.write("02DE VRIES".getBytes(ebcdic));
+        records.write(new byte[]{0x00, 0x00, 0x10, 0x0D});
+        records.write("00050A".getBytes(ebcdic));
+        records.write("01BAD     ".getBytes(ebcdic));
+        records.write(new byte[]{0x12, 0x34, 0x56, 0x78});
+        records.write("0000A0".getBytes(ebcdic));
+        File file = folder.newFile();
+        Files.write(file.toPath(), records.toByteArray());
+
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(file.getAbsolutePath());
+        fixture.setRecordLength(20);
+        fixture.setEncoding("IBM037");
+        fixture.addFieldOnPositionWithLengthToLayout("type", 1, 2, "record");
+        fixture.addFieldOnPositionWithLengthToLayout("name", 3, 8, "record");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("amount", "packed(2)", 11, 4, "record");
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("balance", "zoned(2)", 15, 6, "record");
+
+        assertThat(fixture.numberOfLines()).isEqualTo(3);
+        assertThat(fixture.recordOnLine(1)).containsExactly(
+                entry("type", "01"), entry("name", "JANSEN"), entry("amount", "123.45"), entry("balance", "-1.20"));
+        assertThat(fixture.valueOfFieldOnLine("amount", 2)).isEqualTo("-1.00");
+        assertThat(fixture.valueOfFieldOnLine("balance", 2)).isEqualTo("5.01");
+        assertThat(fixture.valueOfFieldOnLine("amount", 3)).isEqualTo("X'12345678'");
+
+        assertThat(fixture.validateFile()).isEqualTo("2 violations in 3 lines\n"
+                + "line 3: amount is not a packed(2): 'X'12345678''\n"
+                + "line 3: balance is not a zoned(2): '0000A0'");
+
+        fixture.setRecordTypeOnPositionWithLength(1, 2);
+        fixture.setLayoutForRecordType("record", "01");
+        assertThat(fixture.valueOfFieldInRecordOfType("name", 2, "01")).isEqualTo("BAD");
+        assertThat(catchThrowable(() -> fixture.setTrimOfFieldInLayout("both", "amount", "record")))
+                .hasMessageContaining("can not be trimmed");
+    }
+
+    @Test
+    public void a_rewritten_file_is_read_again() throws IOException {
+        String name = file("00000001\n00000002\n00000003\n");
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(name);
+        fixture.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 1, 8, "customer");
+        assertThat(fixture.numberOfLines()).isEqualTo(3);
+        assertThat(fixture.lineNumberWhereFieldIs("id", "3")).isEqualTo(3);
+
+        assertThat(fixture.valueOfFieldOnLine("id", 1)).isEqualTo("1");
+
+        File file = new File(name);
+        Files.write(file.toPath(), "00000009\n00000003\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(fixture.valueOfFieldOnLine("id", 1)).isEqualTo("9");
+        assertThat(fixture.lineNumberWhereFieldIs("id", "3")).isEqualTo(2);
+
+        Files.write(file.toPath(), "00000003\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(fixture.lineNumberWhereFieldIs("id", "3")).isEqualTo(1);
+        assertThat(fixture.lineNumberWhereFieldIs("id", "9")).isNull();
+
+        Files.write(file.toPath(), "00000005\n00000006\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(fixture.lineNumberWherePositionWithLengthIs(1, 8, "00000006")).isEqualTo(2);
+        assertThat(fixture.numberOfLines()).isEqualTo(2);
+
+        long modified = file.lastModified();
+        Files.write(file.toPath(), "00000007\n00000008\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(file.setLastModified(modified - 2000)).isTrue();
+        assertThat(fixture.valueOfFieldOnLine("id", 1)).isEqualTo("7");
+    }
+
+    @Test
+    public void the_record_type_index_follows_a_rewritten_file() throws IOException {
+        String name = file("H1\nD1\nD2\n");
+        FixedLengthFileFixture fixture = new FixedLengthFileFixture(name);
+        fixture.setRecordTypeOnPositionWithLength(1, 1);
+        assertThat(fixture.numberOfRecordsOfType("D")).isEqualTo(2);
+
+        Files.write(new File(name).toPath(), "H1\nD1\nD2\nD3\nT1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(fixture.numberOfRecordsOfType("D")).isEqualTo(3);
+    }
+
+    private String file(String... lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), String.join("", lines).getBytes(StandardCharsets.UTF_8));
+        return file.getAbsolutePath();
+    }
+}
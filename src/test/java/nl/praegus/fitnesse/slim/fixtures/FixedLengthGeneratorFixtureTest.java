@@ -0,0 +1,125 @@
+package nl.praegus.fitnesse.slim.fixtures;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class FixedLengthGeneratorFixtureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void records_are_padded_and_aligned_to_their_fields() throws IOException {
+        FixedLengthGeneratorFixture generator = new FixedLengthGeneratorFixture();
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 1, 6, "customer");
+        generator.addFieldOnPositionWithLengthToLayout("name", 7, 10, "customer");
+        generator.addFieldOnPositionWithLengthToLayout("code", 17, 4, "customer");
+        generator.setTrimOfFieldInLayout("left", "code", "customer");
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("amount", "decimal(2)", 21, 8, "customer");
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("date", "date(ddMMyyyy)", 29, 8, "customer");
+        generator.setValueForField("42", "id");
+        generator.setValueForField("Jansen", "name");
+        generator.setValueForField("AB", "code");
+        generator.setValueForField("-123.4", "amount");
+        generator.setValueForField("2024-01-31", "date");
+        generator.addRecord();
+        generator.setValueForField("43", "id");
+        generator.addRecord();
+        File file = new File(folder.getRoot(), "customers.txt");
+
+        generator.writeRecordsTo(file.getAbsolutePath());
+
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo(
+                "000042Jansen      AB-001234031012024\n"
+                        + "000043" + String.format("%30s", "") + "\n");
+
+        generator.setValueForField("1234567", "id");
+        generator.addRecord();
+        assertThat(catchThrowable(() -> generator.writeRecordsTo(file.getAbsolutePath())))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("Field id: '1234567' does not fit in a number of length 6");
+        generator.clearRecords();
+        generator.setValueForField("x", "missing");
+        generator.addRecord();
+        assertThat(catchThrowable(() -> generator.writeRecordsTo(file.getAbsolutePath())))
+                .hasMessageContaining("No field missing in layout customer");
+    }
+
+    @Test
+    public void generated_records_can_be_read_back() throws IOException {
+        FixedLengthGeneratorFixture generator = new FixedLengthGeneratorFixture();
+        generator.setRecordLength(30);
+        generator.setEncoding("IBM037");
+        generator.addFieldOnPositionWithLengthToLayout("type", 1, 2, "record");
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 3, 8, "record");
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("amount", "packed(2)", 11, 5, "record");
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("balance", "zoned(2)", 16, 7, "record");
+        generator.addFieldOnPositionWithLengthToLayout("country", 23, 2, "record");
+        generator.setFieldTemplate("type", "01");
+        generator.setFieldTemplate("id", "${row}");
+        generator.setFieldTemplate("amount", "${decimal(-1000,1000,2)}");
+        generator.setFieldTemplate("balance", "-${sequence(100)}.5");
+        generator.setFieldTemplate("country", "${oneOf(NL,BE)}");
+        File file = new File(folder.getRoot(), "records.dat");
+
+        generator.generateRecordsIn(50_000, file.getAbsolutePath());
+
+        assertThat(file.length()).isEqualTo(50_000 * 30);
+        assertThat(generator.recordsWritten()).isEqualTo(50_000);
+        assertThat(generator.recordsPerSecond()).isPositive();
+        FixedLengthFileFixture reader = new FixedLengthFileFixture(file.getAbsolutePath());
+        reader.setRecordLength(30);
+        reader.setEncoding("IBM037");
+        reader.addFieldOnPositionWithLengthToLayout("type", 1, 2, "record");
+        reader.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 3, 8, "record");
+        reader.addFieldOfTypeOnPositionWithLengthToLayout("amount", "packed(2)", 11, 5, "record");
+        reader.addFieldOfTypeOnPositionWithLengthToLayout("balance", "zoned(2)", 16, 7, "record");
+        reader.addFieldOnPositionWithLengthToLayout("country", 23, 2, "record");
+        assertThat(reader.numberOfLines()).isEqualTo(50_000);
+        assertThat(reader.recordOnLine(50_000))
+                .containsEntry("type", "01")
+                .containsEntry("id", "50000")
+                .containsEntry("balance", "-50099.50");
+        reader.setLineLength(30);
+        assertThat(reader.validateFile()).isEqualTo("50000 lines, no violations");
+
+        File again = new File(folder.getRoot(), "again.dat");
+        generator.generateRecordsIn(50_000, again.getAbsolutePath());
+        assertThat(Files.readAllBytes(again.toPath())).isEqualTo(Files.readAllBytes(file.toPath()));
+
+        generator.setFieldTemplate("amount", "${decimal(0,1,3)}");
+        assertThat(catchThrowable(() -> generator.generateRecordsIn(10, again.getAbsolutePath())))
+                .isInstanceOf(SlimFixtureException.class)
+                .hasMessageContaining("is not a packed(2)");
+        assertThat(generator.recordsWritten()).isZero();
+    }
+
+    @Test
+    public void the_loaded_file_is_read_again_after_writing_it() {
+        FixedLengthGeneratorFixture generator = new FixedLengthGeneratorFixture();
+        generator.addFieldOfTypeOnPositionWithLengthToLayout("id", "number", 1, 6, "record");
+        generator.setFieldTemplate("id", "${row}");
+        String file = new File(folder.getRoot(), "ids.txt").getAbsolutePath();
+        generator.generateRecordsIn(10, file);
+        generator.loadFile(file);
+        assertThat(generator.numberOfLines()).isEqualTo(10);
+        assertThat(generator.lineNumberWhereFieldIs("id", "10")).isEqualTo(10);
+
+        generator.setFieldTemplate("id", "${sequence(100)}");
+        generator.generateRecordsIn(20, file);
+
+        assertThat(generator.numberOfLines()).isEqualTo(20);
+        assertThat(generator.lineNumberWhereFieldIs("id", "119")).isEqualTo(20);
+        assertThat(generator.lineNumberWhereFieldIs("id", "10")).isNull();
+    }
+}
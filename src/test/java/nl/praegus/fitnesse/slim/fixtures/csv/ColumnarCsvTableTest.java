@@ -0,0 +1,40 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarCsvTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rows_of_different_widths_are_restored() throws IOException {
+        ColumnarCsvTable table = ColumnarCsvTable.read(csvFile(folder, "a,b,c\n1\n2,x,\n3,x,y,extra\n"), CsvFormat.DEFAULT);
+
+        assertThat(table.numberOfRows()).isEqualTo(4);
+        assertThat(table.row(1)).containsExactly("1");
+        assertThat(table.row(2)).containsExactly("2", "x", "");
+        assertThat(table.row(3)).containsExactly("3", "x", "y", "extra");
+        assertThat(table.row(4)).isNull();
+    }
+
+    @Test
+    public void lookups_give_the_same_results_with_and_without_index() throws IOException {
+        ColumnarCsvTable table = ColumnarCsvTable.read(csvFile(folder, "id,status\n1,open\n2,closed\n3,open\n4\n"), CsvFormat.DEFAULT);
+
+        for (int pass = 0; pass < 2; pass++) {
+            assertThat(table.countWhere(1, "open")).isEqualTo(2);
+            assertThat(table.countWhere(1, "unknown")).isEqualTo(0);
+            assertThat(table.nthRowWhere(1, "open", 2)).containsExactly("3", "open");
+            assertThat(table.nthRowWhere(1, "open", 3)).isNull();
+            table.buildIndex(1);
+        }
+    }
+}
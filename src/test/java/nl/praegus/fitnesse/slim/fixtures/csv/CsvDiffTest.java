@@ -0,0 +1,83 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CsvDiffTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rows_are_matched_on_key_regardless_of_order() throws IOException {
+        File expected = csvFile(folder, "id,name,amount\n1,a,10\n2,b,20\n3,c,30\n4,d,40\n");
+        File actual = csvFile(folder, "amount,id,name,extra\n30,3,c,x\n21,2,b,x\n10,1,a,x\n50,5,e,x\n");
+        CsvDiff diff = new CsvDiff(CsvFormat.DEFAULT, Collections.singletonList("id"));
+
+        CsvDiffResult result = diff.compare(expected, actual);
+
+        assertThat(result.equalRows()).isEqualTo(2);
+        assertThat(result.differentRows()).isEqualTo(1);
+        assertThat(result.missingRows()).isEqualTo(1);
+        assertThat(result.surplusRows()).isEqualTo(1);
+        assertThat(result.numberOfRuns()).isEqualTo(0);
+        assertThat(result.surplusColumns()).containsExactly("extra");
+        assertThat(result.examples()).extracting(CsvDiffResult.Difference::getDescription)
+                .contains("amount: expected [20] actual [21]");
+        assertThat(result.toHtml("report")).contains("<td>2</td><td>different</td>");
+    }
+
+    @Test
+    public void files_that_exceed_the_memory_budget_are_sorted_on_disk_with_the_same_result() throws IOException {
+        StringBuilder expectedContent = new StringBuilder("region,id,value\n");
+        StringBuilder actualContent = new StringBuilder("region,id,value\n");
+        for (int i = 0; i < 5000; i++) {
+            expectedContent.append(i % 7).append(',').append(i).append(',').append(i * 3).append('\n');
+            int j = 4999 - i;
+            if (j % 100 != 0) {
+                actualContent.append(j % 7).append(',').append(j).append(',').append(j % 250 == 1 ? -1 : j * 3).append('\n');
+            }
+        }
+        actualContent.append("0,dup,1\n0,dup,2\n");
+        File expected = csvFile(folder, expectedContent.toString());
+        File actual = csvFile(folder, actualContent.toString());
+        CsvDiff inMemory = new CsvDiff(CsvFormat.DEFAULT, Arrays.asList("region", "id"));
+        CsvDiff onDisk = new CsvDiff(CsvFormat.DEFAULT, Arrays.asList("region", "id"));
+        onDisk.setMemoryBudget(10_000);
+        onDisk.setTempDir(folder.getRoot());
+
+        CsvDiffResult memoryResult = inMemory.compare(expected, actual);
+        CsvDiffResult diskResult = onDisk.compare(expected, actual);
+
+        assertThat(memoryResult.numberOfRuns()).isEqualTo(0);
+        assertThat(diskResult.numberOfRuns()).isGreaterThan(64);
+        for (CsvDiffResult result : Arrays.asList(memoryResult, diskResult)) {
+            assertThat(result.missingRows()).isEqualTo(50);
+            assertThat(result.differentRows()).isEqualTo(20);
+            assertThat(result.surplusRows()).isEqualTo(2);
+            assertThat(result.equalRows()).isEqualTo(4930);
+            assertThat(result.examples()).hasSize(72);
+        }
+        assertThat(folder.getRoot().listFiles((dir, name) -> name.endsWith(".run"))).isEmpty();
+    }
+
+    @Test
+    public void a_key_column_must_be_in_both_files() throws IOException {
+        File expected = csvFile(folder, "id,name\n1,a\n");
+        File actual = csvFile(folder, "nr,name\n1,a\n");
+
+        Throwable thrown = catchThrowable(() -> new CsvDiff(CsvFormat.DEFAULT, Collections.singletonList("id")).compare(expected, actual));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("actual");
+    }
+}
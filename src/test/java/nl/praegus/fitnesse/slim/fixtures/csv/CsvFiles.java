@@ -0,0 +1,28 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Creates csv files for tests
+ */
+public final class CsvFiles {
+    private CsvFiles() {
+    }
+
+    /**
+     * @param folder  The folder to create the file in
+     * @param content The content of the file
+     * @return a new file with the content in UTF-8
+     * @throws IOException when the file can not be written
+     */
+    public static File csvFile(TemporaryFolder folder, String content) throws IOException {
+        File csv = folder.newFile();
+        Files.write(csv.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return csv;
+    }
+}
@@ -0,0 +1,81 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CsvTailTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void only_complete_appended_rows_are_read() throws IOException {
+        File csv = folder.newFile();
+        CsvTail tail = new CsvTail(csv, CsvFormat.DEFAULT, false);
+        List<String[]> rows = new ArrayList<>();
+
+        append(csv, "id,remark\n1,\"first\nline\"\n2,sec");
+        assertThat(tail.poll(rows::add)).isEqualTo(1);
+        assertThat(tail.header()).containsExactly("id", "remark");
+        assertThat(rows.get(0)).containsExactly("1", "first\nline");
+
+        append(csv, "ond\r");
+        assertThat(tail.poll(rows::add)).isEqualTo(0);
+
+        append(csv, "\n3,third\n");
+        assertThat(tail.poll(rows::add)).isEqualTo(2);
+        assertThat(rows.get(1)).containsExactly("2", "second");
+        assertThat(rows.get(2)).containsExactly("3", "third");
+        assertThat(tail.numberOfRows()).isEqualTo(3);
+    }
+
+    @Test
+    public void existing_rows_can_be_skipped_and_a_truncated_file_is_read_again() throws IOException {
+        File csv = folder.newFile();
+        append(csv, "id\n1\n2\n");
+        CsvTail tail = new CsvTail(csv, CsvFormat.DEFAULT, true);
+        List<String[]> rows = new ArrayList<>();
+
+        assertThat(tail.poll(rows::add)).isEqualTo(0);
+        assertThat(tail.header()).containsExactly("id");
+        assertThat(tail.numberOfRows()).isEqualTo(2);
+
+        append(csv, "3\n");
+        assertThat(tail.poll(rows::add)).isEqualTo(1);
+        assertThat(rows.get(0)).containsExactly("3");
+
+        Files.write(csv.toPath(), "id\n9\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(tail.poll(rows::add)).isEqualTo(1);
+        assertThat(rows.get(1)).containsExactly("9");
+    }
+
+    @Test
+    public void rows_after_a_matching_row_are_read_by_the_next_poll() throws IOException {
+        File csv = folder.newFile();
+        CsvTail tail = new CsvTail(csv, CsvFormat.DEFAULT, false);
+
+        append(csv, "id\n1\n2\n3\n");
+        assertThat(tail.pollUntil(row -> row[0].equals("2"))).isTrue();
+        assertThat(tail.numberOfRows()).isEqualTo(2);
+
+        List<String[]> rows = new ArrayList<>();
+        assertThat(tail.poll(rows::add)).isEqualTo(1);
+        assertThat(rows.get(0)).containsExactly("3");
+        assertThat(tail.pollUntil(row -> true)).isFalse();
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,49 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CsvTokenizerTest {
+
+    @Test
+    public void quoted_fields_may_contain_separators_quotes_and_line_breaks() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a,\"b,c\",\"say \"\"hi\"\"\",\"multi\r\nline\"\r\nnext,row\n", ',');
+
+        assertThat(tokenizer.next()).containsExactly("a", "b,c", "say \"hi\"", "multi\r\nline");
+        assertThat(tokenizer.next()).containsExactly("next", "row");
+        assertThat(tokenizer.next()).isNull();
+    }
+
+    @Test
+    public void empty_trailing_fields_are_kept() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a,,\n,\n", ',');
+
+        assertThat(tokenizer.next()).containsExactly("a", "", "");
+        assertThat(tokenizer.next()).containsExactly("", "");
+        assertThat(tokenizer.next()).isNull();
+    }
+
+    @Test
+    public void the_separator_is_not_a_regular_expression() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a|b.c|d", '|');
+
+        assertThat(tokenizer.next()).containsExactly("a", "b.c", "d");
+    }
+
+    @Test
+    public void only_requested_columns_are_returned() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a,\"b\nb\",c,d\ne,f\n", ',');
+
+        assertThat(tokenizer.next(3, 0)).containsExactly("d", "a");
+        assertThat(tokenizer.next(3, 0)).containsExactly(null, "e");
+        assertThat(tokenizer.skip()).isFalse();
+    }
+
+    private CsvTokenizer tokenizer(String content, char separator) {
+        return new CsvTokenizer(new StringReader(content), separator);
+    }
+}
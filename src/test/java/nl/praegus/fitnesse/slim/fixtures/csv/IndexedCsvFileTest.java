@@ -0,0 +1,61 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexedCsvFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rows_are_found_through_the_index() throws IOException {
+        File csv = csvFile(folder, "﻿id,code,remark\r\n1,Aa,\"multi\r\nline\"\r\n2,BB,\"say \"\"hi\"\"\"\r\n3,Aa,x\r\n\r\n4,é,short\r\n5\r\n");
+
+        IndexedCsvFile indexed = IndexedCsvFile.open(csv, CsvFormat.DEFAULT);
+
+        assertThat(IndexedCsvFile.indexFileOf(csv)).isFile();
+        assertThat(indexed.header()).containsExactly("id", "code", "remark");
+        assertThat(indexed.numberOfRows()).isEqualTo(7);
+        assertThat(indexed.row(1)).containsExactly("1", "Aa", "multi\r\nline");
+        assertThat(indexed.row(4)).containsExactly("");
+        assertThat(indexed.row(6)).containsExactly("5");
+        assertThat(indexed.row(7)).isNull();
+        // "Aa" and "BB" have the same hash code
+        assertThat(indexed.countWhere(1, "Aa")).isEqualTo(2);
+        assertThat(indexed.countWhere(1, "BB")).isEqualTo(1);
+        assertThat(indexed.nthRowWhere(1, "Aa", 2)).containsExactly("3", "Aa", "x");
+        assertThat(indexed.nthRowWhere(1, "Aa", 3)).isNull();
+        assertThat(indexed.firstRowWhere(2, "say \"hi\"")[0]).isEqualTo("2");
+        assertThat(indexed.firstRowWhere(1, "é")[0]).isEqualTo("4");
+        assertThat(indexed.countWhere(1, "")).isEqualTo(0);
+        assertThat(indexed.countWhere(0, "missing")).isEqualTo(0);
+    }
+
+    @Test
+    public void the_index_is_reused_until_the_file_changes() throws IOException {
+        File csv = csvFile(folder, "id,name\n1,first\n");
+        IndexedCsvFile.open(csv, CsvFormat.DEFAULT);
+        File index = IndexedCsvFile.indexFileOf(csv);
+        assertThat(index.setLastModified(1_000_000L)).isTrue();
+
+        IndexedCsvFile.open(csv, CsvFormat.DEFAULT);
+        assertThat(index.lastModified()).isEqualTo(1_000_000L);
+
+        Files.write(csv.toPath(), "id,name\n1,changed\n2,second\n".getBytes(StandardCharsets.UTF_8));
+        IndexedCsvFile reindexed = IndexedCsvFile.open(csv, CsvFormat.DEFAULT);
+
+        assertThat(index.lastModified()).isNotEqualTo(1_000_000L);
+        assertThat(reindexed.firstRowWhere(0, "1")).containsExactly("1", "changed");
+        assertThat(IndexedCsvFile.open(csv, CsvFormat.DEFAULT.withSeparator(';')).header()).containsExactly("id,name");
+    }
+}
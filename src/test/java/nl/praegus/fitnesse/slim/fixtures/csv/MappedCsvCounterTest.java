@@ -0,0 +1,53 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCsvCounterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void records_and_matches_are_counted_across_chunks() throws IOException {
+        File csv = folder.newFile();
+        try (BufferedWriter writer = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id,status,remark\r\n");
+            for (int i = 0; i < 300_000; i++) {
+                writer.write(i + "," + (i % 3 == 0 ? "\"open\"" : "closed") + ",some text to make the file larger\r\n");
+            }
+        }
+
+        assertThat(MappedCsvCounter.countRecords(csv, CsvFormat.DEFAULT)).isEqualTo(300_001);
+        assertThat(MappedCsvCounter.countWhere(csv, CsvFormat.DEFAULT, 1, "open")).isEqualTo(100_000);
+        assertThat(MappedCsvCounter.countWhere(csv, CsvFormat.DEFAULT, 0, "299999")).isEqualTo(1);
+    }
+
+    @Test
+    public void quoted_values_are_compared_without_their_quotes() throws IOException {
+        File csv = csvFile(folder, "name,city\n\"Doe, John\",\"Den \"\"Haag\"\"\"\nsmith,x\n\"Doe, John\",\n");
+
+        assertThat(MappedCsvCounter.countWhere(csv, CsvFormat.DEFAULT, 0, "Doe, John")).isEqualTo(2);
+        assertThat(MappedCsvCounter.countWhere(csv, CsvFormat.DEFAULT, 1, "Den \"Haag\"")).isEqualTo(1);
+        assertThat(MappedCsvCounter.countWhere(csv, CsvFormat.DEFAULT, 1, "")).isEqualTo(1);
+        assertThat(MappedCsvCounter.countRecords(csv, CsvFormat.DEFAULT)).isEqualTo(4);
+    }
+
+    @Test
+    public void line_breaks_in_quoted_fields_are_not_supported() throws IOException {
+        File csv = csvFile(folder, "name,remark\na,\"multi\nline\"\n");
+
+        assertThat(MappedCsvCounter.countRecords(csv, CsvFormat.DEFAULT)).isEqualTo(MappedCsvCounter.UNSUPPORTED);
+        assertThat(new StreamingCsvFile(csv, CsvFormat.DEFAULT).numberOfRows()).isEqualTo(2);
+    }
+}
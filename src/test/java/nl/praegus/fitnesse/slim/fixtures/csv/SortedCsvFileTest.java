@@ -0,0 +1,60 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SortedCsvFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void binary_search_finds_the_same_rows_as_a_scan() throws IOException {
+        StringBuilder content = new StringBuilder("﻿key,payload\r\n");
+        Random random = new Random(15);
+        int key = 0;
+        for (int i = 0; i < 2000; i++) {
+            key += random.nextInt(3);
+            content.append(String.format("k%05d", key)).append(',');
+            for (int length = random.nextInt(40); length > 0; length--) {
+                content.append((char) ('a' + random.nextInt(26)));
+            }
+            content.append(random.nextBoolean() ? "\r\n" : "\n");
+        }
+        File csv = csvFile(folder, content.toString());
+        SortedCsvFile sorted = new SortedCsvFile(csv, CsvFormat.DEFAULT, "key", CsvColumnType.TEXT.order());
+        StreamingCsvFile streaming = new StreamingCsvFile(csv, CsvFormat.DEFAULT);
+
+        assertThat(sorted.header()).containsExactly("key", "payload");
+        for (int k = -1; k <= key + 1; k++) {
+            String value = String.format("k%05d", k);
+            int count = streaming.countWhere(0, value);
+            assertThat(sorted.countWhere(0, value)).as(value).isEqualTo(count);
+            for (int occurrence = 1; occurrence <= count + 1; occurrence++) {
+                assertThat(sorted.nthRowWhere(0, value, occurrence)).as(value)
+                        .isEqualTo(streaming.nthRowWhere(0, value, occurrence));
+            }
+        }
+    }
+
+    @Test
+    public void keys_can_be_compared_by_value() throws IOException {
+        File csv = csvFile(folder, "id,name\n,none\n-5,minus five\n2,two\n10,ten\n10.0,ten again\n100,hundred");
+        SortedCsvFile sorted = new SortedCsvFile(csv, CsvFormat.DEFAULT, "id", CsvColumnType.DECIMAL.order());
+
+        assertThat(sorted.nthRowWhere(0, "10", 2)).containsExactly("10.0", "ten again");
+        assertThat(sorted.nthRowWhere(0, "100", 1)).containsExactly("100", "hundred");
+        assertThat(sorted.countWhere(0, "-5")).isEqualTo(1);
+        assertThat(sorted.countWhere(0, "")).isEqualTo(1);
+        assertThat(sorted.countWhere(0, "3")).isEqualTo(0);
+        assertThat(sorted.nthRowWhere(1, "two", 1)).containsExactly("2", "two");
+    }
+}
@@ -0,0 +1,84 @@
+package nl.praegus.fitnesse.slim.fixtures.csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import static nl.praegus.fitnesse.slim.fixtures.csv.CsvFiles.csvFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TypedCsvTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void column_types_are_inferred_from_all_values() throws IOException {
+        File csv = csvFile(folder, "id,big,amount,date,mixed,empty\n"
+                + "1,1,100,2024-01-31,1,\n"
+                + "2,12345678901,100.0,,2024-01-01,\n"
+                + "3,,-0.125,2024-02-29,x,\n"
+                + "4,-3,12.50,2023-12-31,2,\n");
+
+        TypedCsvTable table = read(csv, Collections.emptyMap());
+
+        assertThat(table.columnType(0)).isEqualTo(CsvColumnType.INT);
+        assertThat(table.columnType(1)).isEqualTo(CsvColumnType.LONG);
+        assertThat(table.columnType(2)).isEqualTo(CsvColumnType.DECIMAL);
+        assertThat(table.columnType(3)).isEqualTo(CsvColumnType.DATE);
+        assertThat(table.columnType(4)).isEqualTo(CsvColumnType.TEXT);
+        assertThat(table.columnType(5)).isEqualTo(CsvColumnType.TEXT);
+
+        assertThat(table.countWhere(2, "100")).isEqualTo(2);
+        assertThat(table.nthRowWhere(2, "100.00", 2)[0]).isEqualTo("2");
+        assertThat(table.row(2)[2]).isEqualTo("100.0");
+        assertThat(table.countWhere(2, "abc")).isEqualTo(0);
+        assertThat(table.countWhere(3, "")).isEqualTo(1);
+        assertThat(table.countMatching(2, ValueRange.greaterThan("12.5"))).isEqualTo(2);
+        assertThat(table.countMatching(2, ValueRange.lessThan("12.5"))).isEqualTo(1);
+        assertThat(table.countMatching(2, ValueRange.between("-0.125", "12.5"))).isEqualTo(2);
+        assertThat(table.countMatching(2, ValueRange.within("100.001", "0.001"))).isEqualTo(2);
+        assertThat(table.countMatching(1, ValueRange.greaterThan("9999999999999999999999"))).isEqualTo(0);
+        assertThat(table.countMatching(1, ValueRange.greaterThan("-9999999999999999999999"))).isEqualTo(3);
+        assertThat(table.countMatching(3, ValueRange.between("2024-01-01", "2024-12-31"))).isEqualTo(2);
+        assertThat(table.nthRowMatching(3, ValueRange.within("2024-01-01", "1"), 1)[0]).isEqualTo("4");
+        assertThat(table.countMatching(3, ValueRange.greaterThan("5"))).isEqualTo(0);
+        assertThat(table.countMatching(4, ValueRange.greaterThan("1"))).isEqualTo(1);
+    }
+
+    @Test
+    public void typed_and_text_lookups_give_the_same_ranges() throws IOException {
+        File csv = csvFile(folder, "amount\n1.5\n-2\n\n3.25\n1.50\n0\n");
+        TypedCsvTable typed = read(csv, Collections.emptyMap());
+        CsvTable text = CsvTable.read(csv, CsvFormat.DEFAULT);
+
+        for (ValueRange range : new ValueRange[]{ValueRange.equalTo("1.5"), ValueRange.greaterThan("0"),
+                ValueRange.lessThan("1.5"), ValueRange.between("-2", "1.5"), ValueRange.within("3", "0.25")}) {
+            assertThat(typed.countMatching(0, range)).isEqualTo(text.countMatching(0, range));
+        }
+    }
+
+    @Test
+    public void declared_types_are_checked() throws IOException {
+        File csv = csvFile(folder, "id,amount\n1,2.5\n");
+
+        assertThat(read(csv, Collections.singletonMap("amount", CsvColumnType.DECIMAL)).columnType(1))
+                .isEqualTo(CsvColumnType.DECIMAL);
+        assertThat(catchThrowable(() -> read(csv, Collections.singletonMap("amount", CsvColumnType.INT))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not a valid int in column amount: 2.5");
+        assertThat(catchThrowable(() -> read(csv, Collections.singletonMap("other", CsvColumnType.INT))))
+                .hasMessage("No column other");
+        assertThat(catchThrowable(() -> CsvColumnType.of("money"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TypedCsvTable read(File csv, Map<String, CsvColumnType> declared) throws IOException {
+        return TypedCsvTable.read(csv, CsvFormat.DEFAULT, CsvTable.read(csv, CsvFormat.DEFAULT), declared, declared.isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package nl.praegus.fitnesse.slim.fixtures.fixedlength;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FixedLengthFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lines_are_read_like_files_lines() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "0001é  x\r\n0002\n\r0004\r\n".getBytes(StandardCharsets.UTF_8));
+
+        FixedLengthFile lines = FixedLengthFile.open(file, StandardCharsets.UTF_8);
+
+        assertThat(lines.line(2)).isEqualTo("0002");
+        assertThat(lines.start(3)).isEqualTo(16);
+        assertThat(lines.line(1)).isEqualTo("0001é  x");
+        assertThat(lines.line(3)).isEmpty();
+        assertThat(lines.line(4)).isEqualTo("0004");
+        assertThat(lines.line(5)).isNull();
+        assertThat(lines.line(0)).isNull();
+        assertThat(lines.numberOfLines()).isEqualTo(4);
+    }
+
+    @Test
+    public void lines_can_be_read_in_any_order() throws IOException {
+        File file = folder.newFile();
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            content.append(String.format("%08d%s%n", i, i % 2 == 0 ? "EVEN" : "ODD "));
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        FixedLengthFile lines = FixedLengthFile.open(file, StandardCharsets.ISO_8859_1);
+
+        assertThat(lines.line(3)).isEqualTo("00000003ODD ");
+        assertThat(lines.line(4321)).isEqualTo("00004321ODD ");
+        assertThat(lines.line(2000)).isEqualTo("00002000EVEN");
+        assertThat(lines.numberOfLines()).isEqualTo(5000);
+        assertThat(FixedLengthFile.open(folder.newFile(), StandardCharsets.UTF_8).numberOfLines()).isZero();
+        assertThat(FixedLengthFile.supports(StandardCharsets.UTF_16)).isFalse();
+    }
+}